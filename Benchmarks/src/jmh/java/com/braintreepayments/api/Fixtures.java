@@ -0,0 +1,107 @@
+package com.braintreepayments.api;
+
+import android.util.Base64;
+
+import com.braintreepayments.api.simulator.GatewaySimulator;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Request and response bodies used by the benchmarks. Gateway responses come from the {@link GatewaySimulator}, so
+ * the benchmarks parse the same payloads the integration and load tests see.
+ */
+public class Fixtures {
+
+    public static final String CLIENT_API_URL = "http://127.0.0.1:3000/merchants/" + GatewaySimulator.MERCHANT_ID +
+            "/client_api/";
+
+    public static final String CREDIT_CARD_ERROR_RESPONSE = "{" +
+            "\"error\":{\"message\":\"Credit card is invalid\"}," +
+            "\"fieldErrors\":[{\"field\":\"creditCard\",\"fieldErrors\":[" +
+            "{\"field\":\"expirationYear\",\"message\":\"Expiration year is invalid\"}," +
+            "{\"field\":\"number\",\"message\":\"Credit card number is required\"}," +
+            "{\"field\":\"base\",\"message\":\"Credit card must include number, payment_method_nonce, or " +
+            "venmo_sdk_payment_method_code\"}]}]}";
+
+    /**
+     * @return the configuration returned by the gateway.
+     */
+    public static String configuration() {
+        return body(new GatewaySimulator().handle("GET", CLIENT_API_URL + "v1/configuration"));
+    }
+
+    /**
+     * @param count the number of payment methods in the response.
+     * @return a response to a request for the vaulted payment methods of a customer.
+     */
+    public static String paymentMethods(int count) {
+        return body(new GatewaySimulator()
+                .paymentMethodCount(count)
+                .handle("GET", CLIENT_API_URL + "v1/payment_methods"));
+    }
+
+    /**
+     * @param padding the number of bytes to pad the response with.
+     * @return a response to a card tokenization.
+     */
+    public static String tokenizeResponse(int padding) {
+        return body(new GatewaySimulator()
+                .responsePadding(padding)
+                .handle("POST", CLIENT_API_URL + "v1/payment_methods/credit_cards"));
+    }
+
+    /**
+     * @return a base64 encoded client token for the simulated merchant.
+     */
+    public static String clientToken() {
+        try {
+            String clientToken = new JSONObject()
+                    .put("configUrl", CLIENT_API_URL + "v1/configuration")
+                    .put("authorizationFingerprint", "fingerprint-" + new String(new char[64]).replace('\0', 'a'))
+                    .toString();
+            return Base64.encodeToString(clientToken.getBytes("UTF-8"), Base64.NO_WRAP);
+        } catch (JSONException | UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param count the number of events in the batch.
+     * @return a batch of analytics events as it is uploaded by the SDK.
+     */
+    public static String analyticsBatch(int count) {
+        try {
+            JSONArray events = new JSONArray();
+            for (int i = 0; i < count; i++) {
+                events.put(new JSONObject()
+                        .put("kind", "android.custom.started.client-token")
+                        .put("timestamp", 1500000000000L + i));
+            }
+
+            return new JSONObject()
+                    .put("analytics", events)
+                    .put("_meta", new JSONObject()
+                            .put("platform", "Android")
+                            .put("platformVersion", "25")
+                            .put("sdkVersion", BuildConfig.VERSION_NAME)
+                            .put("merchantAppId", "com.braintreepayments.demo")
+                            .put("sessionId", "0123456789abcdef0123456789abcdef")
+                            .put("deviceNetworkType", "wifi"))
+                    .toString();
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String body(GatewaySimulator.Response response) {
+        try {
+            return new String(response.getBody(), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.braintreepayments.api.exceptions;
+
+import com.braintreepayments.api.Fixtures;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class ErrorWithResponseBenchmark {
+
+    @Benchmark
+    public ErrorWithResponse fromJson() throws JSONException {
+        return ErrorWithResponse.fromJson(Fixtures.CREDIT_CARD_ERROR_RESPONSE);
+    }
+}
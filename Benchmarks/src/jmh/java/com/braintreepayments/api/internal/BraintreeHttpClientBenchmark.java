@@ -0,0 +1,45 @@
+package com.braintreepayments.api.internal;
+
+import com.braintreepayments.api.Fixtures;
+import com.braintreepayments.api.exceptions.InvalidArgumentException;
+import com.braintreepayments.api.models.Authorization;
+import com.braintreepayments.api.models.CardBuilder;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures adding the authorization fingerprint to request bodies, which {@link BraintreeHttpClient} does for every
+ * POST made with a client token.
+ */
+@State(Scope.Benchmark)
+public class BraintreeHttpClientBenchmark {
+
+    @Param({"tokenize", "analytics"})
+    public String body;
+
+    private BraintreeHttpClient mHttpClient;
+    private String mBody;
+
+    @Setup
+    public void setup() throws InvalidArgumentException {
+        mHttpClient = new BraintreeHttpClient(Authorization.fromString(Fixtures.clientToken()));
+        if ("tokenize".equals(body)) {
+            mBody = new CardBuilder()
+                    .cardNumber("4111111111111111")
+                    .expirationDate("12/30")
+                    .build();
+        } else {
+            mBody = Fixtures.analyticsBatch(50);
+        }
+    }
+
+    @Benchmark
+    public String getAuthorizedBody() throws JSONException {
+        return mHttpClient.getAuthorizedBody(mBody);
+    }
+}
@@ -0,0 +1,51 @@
+package com.braintreepayments.api.internal;
+
+import com.braintreepayments.api.Fixtures;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures reading a successful response body, as {@link HttpClient} does for every request, with and without gzip
+ * content encoding.
+ */
+@State(Scope.Benchmark)
+public class HttpClientReadStreamBenchmark {
+
+    @Param({"1024", "65536"})
+    public int responseSize;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private HttpClient mHttpClient;
+    private byte[] mBody;
+
+    @Setup
+    public void setup() throws IOException {
+        mHttpClient = new HttpClient();
+
+        byte[] body = Fixtures.tokenizeResponse(responseSize).getBytes("UTF-8");
+        if (gzip) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+            gzipOut.write(body);
+            gzipOut.close();
+            body = out.toByteArray();
+        }
+        mBody = body;
+    }
+
+    @Benchmark
+    public String readStream() throws Exception {
+        return mHttpClient.parseResponse(200, new ByteArrayInputStream(mBody), gzip);
+    }
+}
@@ -0,0 +1,38 @@
+package com.braintreepayments.api.models;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class CardBuilderBenchmark {
+
+    private CardBuilder mCardBuilder;
+
+    @Setup
+    public void setup() {
+        mCardBuilder = new CardBuilder()
+                .cardNumber("4111111111111111")
+                .cvv("123")
+                .expirationMonth("12")
+                .expirationYear("2030")
+                .cardholderName("Joe Smith")
+                .firstName("Joe")
+                .lastName("Smith")
+                .streetAddress("123 Fake St")
+                .locality("Oakland")
+                .region("CA")
+                .postalCode("94602")
+                .countryName("United States")
+                .integration("custom")
+                .source("form")
+                .setSessionId("0123456789abcdef0123456789abcdef")
+                .validate(true);
+    }
+
+    @Benchmark
+    public String build() {
+        return mCardBuilder.build();
+    }
+}
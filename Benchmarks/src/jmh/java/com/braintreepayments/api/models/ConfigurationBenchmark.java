@@ -0,0 +1,50 @@
+package com.braintreepayments.api.models;
+
+import com.braintreepayments.api.Fixtures;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class ConfigurationBenchmark {
+
+    private String mConfiguration;
+
+    @Setup
+    public void setup() {
+        mConfiguration = Fixtures.configuration();
+    }
+
+    @Benchmark
+    public Configuration fromJson() throws JSONException {
+        return Configuration.fromJson(mConfiguration);
+    }
+
+    /**
+     * What a card checkout reads from the configuration before its first request.
+     */
+    @Benchmark
+    public void fromJsonForCardCheckout(Blackhole blackhole) throws JSONException {
+        Configuration configuration = Configuration.fromJson(mConfiguration);
+        blackhole.consume(configuration.getClientApiUrl());
+        blackhole.consume(configuration.getAnalytics().isEnabled());
+        blackhole.consume(configuration.getCardConfiguration().getSupportedCardTypes());
+        blackhole.consume(configuration.isCvvChallengePresent());
+    }
+
+    @Benchmark
+    public void fromJsonForAllPaymentMethods(Blackhole blackhole) throws JSONException {
+        Configuration configuration = Configuration.fromJson(mConfiguration);
+        blackhole.consume(configuration.getCardConfiguration());
+        blackhole.consume(configuration.getPayPal());
+        blackhole.consume(configuration.getAndroidPay());
+        blackhole.consume(configuration.getPayWithVenmo());
+        blackhole.consume(configuration.getUnionPay());
+        blackhole.consume(configuration.getVisaCheckout());
+        blackhole.consume(configuration.getKount());
+    }
+}
@@ -0,0 +1,40 @@
+package com.braintreepayments.api.models;
+
+import android.util.JsonReader;
+
+import com.braintreepayments.api.Fixtures;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class PaymentMethodNonceBenchmark {
+
+    @Param({"1", "20"})
+    public int paymentMethodCount;
+
+    private String mPaymentMethods;
+
+    @Setup
+    public void setup() {
+        mPaymentMethods = Fixtures.paymentMethods(paymentMethodCount);
+    }
+
+    @Benchmark
+    public List<PaymentMethodNonce> parsePaymentMethodNonces() throws JSONException {
+        return PaymentMethodNonce.parsePaymentMethodNonces(mPaymentMethods);
+    }
+
+    @Benchmark
+    public List<PaymentMethodNonce> parsePaymentMethodNoncesFromReader() throws JSONException, IOException {
+        return PaymentMethodNonce.parsePaymentMethodNonces(new JsonReader(new StringReader(mPaymentMethods)));
+    }
+}
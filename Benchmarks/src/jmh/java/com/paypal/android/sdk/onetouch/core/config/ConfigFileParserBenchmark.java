@@ -0,0 +1,22 @@
+package com.paypal.android.sdk.onetouch.core.config;
+
+import com.paypal.android.sdk.onetouch.core.BuildConfig;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures parsing the bundled One Touch configuration, including reading it into a {@link JSONObject}, as
+ * {@link ConfigManager} does when the configuration is loaded.
+ */
+@State(Scope.Benchmark)
+public class ConfigFileParserBenchmark {
+
+    @Benchmark
+    public OtcConfiguration getParsedConfig() throws JSONException {
+        return new ConfigFileParser().getParsedConfig(new JSONObject(BuildConfig.CONFIGURATION));
+    }
+}
@@ -0,0 +1,75 @@
+package com.paypal.android.sdk.onetouch.core.encryption;
+
+import com.paypal.android.sdk.onetouch.core.network.PayPalCertificates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Measures encrypting the key sent to the PayPal app and decrypting its response.
+ */
+@State(Scope.Benchmark)
+public class OtcCryptoBenchmark {
+
+    private static final int MAX_RSA_ENCRYPTABLE_BYTES = 214;
+    private static final int RESPONSE_SIZE = 512;
+
+    private final OtcCrypto mOtcCrypto = new OtcCrypto();
+
+    private Certificate mCertificate;
+    private byte[] mPlainData;
+    private byte[] mKey;
+    private byte[] mCipherData;
+
+    @Setup
+    public void setup() throws GeneralSecurityException {
+        SecureRandom random = new SecureRandom();
+        mCertificate = PayPalCertificates.getCertificate();
+        mPlainData = new byte[MAX_RSA_ENCRYPTABLE_BYTES];
+        random.nextBytes(mPlainData);
+        mKey = mOtcCrypto.generateRandom256BitKey();
+
+        // lay out the data the way the PayPal app does: digest, nonce, then the encrypted response
+        byte[] nonce = new byte[16];
+        random.nextBytes(nonce);
+        byte[] response = new byte[RESPONSE_SIZE];
+        random.nextBytes(response);
+
+        Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(mKey, 0, 16, "AES"), new IvParameterSpec(nonce));
+        byte[] encrypted = cipher.doFinal(response);
+
+        byte[] signedData = new byte[nonce.length + encrypted.length];
+        System.arraycopy(nonce, 0, signedData, 0, nonce.length);
+        System.arraycopy(encrypted, 0, signedData, nonce.length, encrypted.length);
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(mKey, 16, 16, "HmacSHA256"));
+        byte[] digest = mac.doFinal(signedData);
+
+        mCipherData = new byte[digest.length + signedData.length];
+        System.arraycopy(digest, 0, mCipherData, 0, digest.length);
+        System.arraycopy(signedData, 0, mCipherData, digest.length, signedData.length);
+    }
+
+    @Benchmark
+    public byte[] encryptRSAData() throws Exception {
+        return mOtcCrypto.encryptRSAData(mPlainData, mCertificate);
+    }
+
+    @Benchmark
+    public byte[] decryptAESCTRData() throws Exception {
+        return mOtcCrypto.decryptAESCTRData(mCipherData, mKey);
+    }
+}
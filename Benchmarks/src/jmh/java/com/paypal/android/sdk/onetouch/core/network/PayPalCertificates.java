@@ -0,0 +1,25 @@
+package com.paypal.android.sdk.onetouch.core.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+
+/**
+ * Gives benchmarks outside this package access to the certificates pinned by {@link PayPalHttpClient}.
+ */
+public class PayPalCertificates {
+
+    /**
+     * @return the first certificate pinned by {@link PayPalHttpClient}.
+     */
+    public static Certificate getCertificate() throws CertificateException {
+        try {
+            return CertificateFactory.getInstance("X.509").generateCertificate(
+                    new ByteArrayInputStream(PayPalCertificate.getCertificate().getBytes("UTF-8")));
+        } catch (UnsupportedEncodingException e) {
+            throw new CertificateException(e);
+        }
+    }
+}
@@ -76,6 +76,7 @@ public class BraintreeFragmentTestUtils {
         }
 
         writeMockConfiguration(getTargetContext(), auth.getConfigUrl(), appendedAuthorization, configuration);
+        ConfigurationManager.clearMemoryCache();
     }
 
     public static CardNonce tokenize(BraintreeFragment fragment, CardBuilder cardBuilder) {
@@ -12,11 +12,13 @@ import com.braintreepayments.api.models.TokenizationKey;
 import com.braintreepayments.api.test.EnvironmentHelper;
 
 import org.json.JSONException;
+import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.util.concurrent.CountDownLatch;
@@ -27,6 +29,7 @@ import static com.braintreepayments.testutils.TestTokenizationKey.TOKENIZATION_K
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 
@@ -57,6 +60,19 @@ public class BraintreeHttpClientTest {
                 connection.getRequestProperty("User-Agent"));
     }
 
+    @Test(timeout = 1000)
+    public void sharesPinnedSSLSocketFactoryBetweenClients() throws Exception {
+        BraintreeHttpClient httpClient = new BraintreeHttpClient(TokenizationKey.fromString(TOKENIZATION_KEY));
+        BraintreeHttpClient otherHttpClient = new BraintreeHttpClient(
+                Authorization.fromString(stringFromFixture("client_token.json")));
+
+        Field sslSocketFactory = HttpClient.class.getDeclaredField("mSSLSocketFactory");
+        sslSocketFactory.setAccessible(true);
+        assertSame(TLSSocketFactory.getInstance(BraintreeGatewayCertificate.getCertificate()),
+                sslSocketFactory.get(httpClient));
+        assertSame(sslSocketFactory.get(httpClient), sslSocketFactory.get(otherHttpClient));
+    }
+
     @Test(timeout = 1000)
     public void sendsTokenizationKeyWhenPresent() throws IOException, InvalidArgumentException {
         BraintreeHttpClient httpClient = new BraintreeHttpClient(
@@ -229,6 +245,106 @@ public class BraintreeHttpClientTest {
         mCountDownLatch.await();
     }
 
+    @Test(timeout = 1000)
+    public void getAuthorizedBody_addsAuthorizationFingerprintWhenClientTokenIsUsed()
+            throws InvalidArgumentException, JSONException {
+        BraintreeHttpClient httpClient = new BraintreeHttpClient(
+                Authorization.fromString(stringFromFixture("client_token.json")));
+
+        JSONObject body = new JSONObject(httpClient.getAuthorizedBody(" {\"key\": \"value\"}"));
+
+        assertEquals("value", body.getString("key"));
+        assertEquals("authorization_fingerprint", body.getString("authorizationFingerprint"));
+    }
+
+    @Test(timeout = 1000)
+    public void getAuthorizedBody_addsAuthorizationFingerprintToEmptyObject()
+            throws InvalidArgumentException, JSONException {
+        BraintreeHttpClient httpClient = new BraintreeHttpClient(
+                Authorization.fromString(stringFromFixture("client_token.json")));
+
+        JSONObject body = new JSONObject(httpClient.getAuthorizedBody("{ }"));
+
+        assertEquals(1, body.length());
+        assertEquals("authorization_fingerprint", body.getString("authorizationFingerprint"));
+    }
+
+    @Test(timeout = 1000)
+    public void getAuthorizedBody_replacesExistingAuthorizationFingerprint()
+            throws InvalidArgumentException, JSONException {
+        BraintreeHttpClient httpClient = new BraintreeHttpClient(
+                Authorization.fromString(stringFromFixture("client_token.json")));
+
+        String body = httpClient.getAuthorizedBody("{\"authorizationFingerprint\":\"old\",\"key\":\"value\"}");
+
+        assertEquals(1, body.split("authorizationFingerprint").length - 1);
+        assertEquals("authorization_fingerprint", new JSONObject(body).getString("authorizationFingerprint"));
+        assertEquals("value", new JSONObject(body).getString("key"));
+    }
+
+    @Test(timeout = 1000)
+    public void getAuthorizedBody_keepsNestedAuthorizationFingerprint()
+            throws InvalidArgumentException, JSONException {
+        BraintreeHttpClient httpClient = new BraintreeHttpClient(
+                Authorization.fromString(stringFromFixture("client_token.json")));
+
+        JSONObject body = new JSONObject(httpClient.getAuthorizedBody(
+                "{\"nested\":{\"authorizationFingerprint\":\"nested\"}}"));
+
+        assertEquals("authorization_fingerprint", body.getString("authorizationFingerprint"));
+        assertEquals("nested", body.getJSONObject("nested").getString("authorizationFingerprint"));
+    }
+
+    @Test(timeout = 1000)
+    public void getAuthorizedBody_throwsForMalformedJsonObject() throws InvalidArgumentException {
+        BraintreeHttpClient httpClient = new BraintreeHttpClient(
+                Authorization.fromString(stringFromFixture("client_token.json")));
+
+        try {
+            httpClient.getAuthorizedBody("{\"key\": ");
+            fail("Expected JSONException");
+        } catch (JSONException ignored) {}
+    }
+
+    @Test(timeout = 1000)
+    public void getAuthorizedBody_throwsForBodyThatIsNotJsonObject() throws InvalidArgumentException {
+        BraintreeHttpClient httpClient = new BraintreeHttpClient(
+                Authorization.fromString(stringFromFixture("client_token.json")));
+
+        try {
+            httpClient.getAuthorizedBody("[]");
+            fail("Expected JSONException");
+        } catch (JSONException ignored) {}
+    }
+
+    @Test(timeout = 1000)
+    public void getAuthorizedBody_doesNotModifyBodyWhenTokenizationKeyIsUsed()
+            throws InvalidArgumentException, JSONException {
+        BraintreeHttpClient httpClient = new BraintreeHttpClient(TokenizationKey.fromString(TOKENIZATION_KEY));
+
+        assertEquals("{\"key\":\"value\"}", httpClient.getAuthorizedBody("{\"key\":\"value\"}"));
+    }
+
+    @Test(timeout = 1000)
+    public void getOperation_namesGatewayOperations() throws InvalidArgumentException {
+        BraintreeHttpClient httpClient = new BraintreeHttpClient(TokenizationKey.fromString(TOKENIZATION_KEY));
+        String baseUrl = "https://api.braintreegateway.com/merchants/id/client_api";
+
+        assertEquals(BraintreeHttpClient.OPERATION_CONFIGURATION,
+                httpClient.getOperation("GET", baseUrl + "/v1/configuration?configVersion=3"));
+        assertEquals(BraintreeHttpClient.OPERATION_TOKENIZE,
+                httpClient.getOperation("POST", baseUrl + "/v1/payment_methods/credit_cards"));
+        assertEquals(BraintreeHttpClient.OPERATION_PAYMENT_METHODS,
+                httpClient.getOperation("GET", baseUrl + "/v1/payment_methods?default_first=false"));
+        assertEquals(BraintreeHttpClient.OPERATION_THREE_D_SECURE_LOOKUP,
+                httpClient.getOperation("POST", baseUrl + "/v1/payment_methods/nonce/three_d_secure/lookup"));
+        assertEquals(BraintreeHttpClient.OPERATION_UNIONPAY_CAPABILITIES,
+                httpClient.getOperation("GET", baseUrl + "/v1/payment_methods/credit_cards/capabilities"));
+        assertEquals(BraintreeHttpClient.OPERATION_ANALYTICS,
+                httpClient.getOperation("POST", "https://client-analytics.braintreegateway.com/id"));
+        assertEquals("/other", httpClient.getOperation("GET", "https://example.com/other"));
+    }
+
     @Test(timeout = 1000)
     public void throwsAuthorizationExceptionWithCorrectMessageOn403() throws IOException,
             InterruptedException, ErrorWithResponse, InvalidArgumentException {
@@ -28,6 +28,7 @@ import com.braintreepayments.api.interfaces.PaymentMethodNonceCreatedListener;
 import com.braintreepayments.api.interfaces.PaymentMethodNoncesUpdatedListener;
 import com.braintreepayments.api.interfaces.QueuedCallback;
 import com.braintreepayments.api.interfaces.UnionPayListener;
+import com.braintreepayments.api.internal.AdaptiveTimeouts;
 import com.braintreepayments.api.internal.AnalyticsDatabase;
 import com.braintreepayments.api.internal.AnalyticsEvent;
 import com.braintreepayments.api.internal.AnalyticsIntentService;
@@ -89,6 +90,8 @@ public class BraintreeFragment extends BrowserSwitchFragment {
     private boolean mHasFetchedPaymentMethodNonces = false;
     private boolean mNewActivityNeedsConfiguration;
     private int mConfigurationRequestAttempts = 0;
+    private boolean mFetchingConfiguration;
+    private boolean mPreconnected;
     private String mIntegrationType;
     private String mSessionId;
     private AnalyticsDatabase mAnalyticsDatabase;
@@ -101,6 +104,45 @@ public class BraintreeFragment extends BrowserSwitchFragment {
     private BraintreeErrorListener mErrorListener;
     private UnionPayListener mUnionPayListener;
 
+    /**
+     * Listeners for configuration fetches are created once, so that calling {@link #fetchConfiguration()} again
+     * while a fetch is in flight does not add them to it a second time.
+     */
+    private final ConfigurationListener mFetchConfigurationListener = new ConfigurationListener() {
+        @Override
+        public void onConfigurationFetched(Configuration configuration) {
+            mFetchingConfiguration = false;
+            setConfiguration(configuration);
+            postConfigurationCallback();
+            flushCallbacks();
+            preconnect();
+        }
+    };
+
+    private final BraintreeResponseListener<Exception> mFetchConfigurationErrorListener =
+            new BraintreeResponseListener<Exception>() {
+                @Override
+                public void onResponse(final Exception e) {
+                    mFetchingConfiguration = false;
+                    final ConfigurationException exception =
+                            new ConfigurationException("Request for configuration has failed: " + e.getMessage() +
+                                    ". Future requests will retry up to 3 times", e);
+                    postCallback(exception);
+                    postOrQueueCallback(new QueuedCallback() {
+                        @Override
+                        public boolean shouldRun() {
+                            return mConfigurationErrorListener != null;
+                        }
+
+                        @Override
+                        public void run() {
+                            mConfigurationErrorListener.onResponse(exception);
+                        }
+                    });
+                    flushCallbacks();
+                }
+            };
+
     public BraintreeFragment() {}
 
     /**
@@ -162,6 +204,61 @@ public class BraintreeFragment extends BrowserSwitchFragment {
         return braintreeFragment;
     }
 
+    /**
+     * Fetches the configuration for the client token or tokenization key in the background so that a
+     * {@link BraintreeFragment} created later, for example when the user reaches checkout, finds it cached instead
+     * of waiting for the Gateway. Can be called from {@link android.app.Application#onCreate()} or when a screen
+     * leading to checkout opens. Failures are ignored, the {@link BraintreeFragment} will fetch configuration itself.
+     *
+     * @param context Any {@link Context}, only the application {@link Context} is kept.
+     * @param authorization The tokenization key or client token to use.
+     * @throws InvalidArgumentException If the tokenization key or client token is not valid or cannot be
+     *         parsed.
+     */
+    public static void prefetchConfiguration(Context context, String authorization)
+            throws InvalidArgumentException {
+        prefetchConfiguration(context, authorization, false);
+    }
+
+    /**
+     * Fetches the configuration for the client token or tokenization key in the background.
+     * @see BraintreeFragment#prefetchConfiguration(Context, String)
+     *
+     * @param context Any {@link Context}, only the application {@link Context} is kept.
+     * @param authorization The tokenization key or client token to use.
+     * @param preconnect {@code true} to also open a connection to the Braintree client API once the configuration
+     *        is available, see {@link #preconnect()}.
+     * @throws InvalidArgumentException If the tokenization key or client token is not valid or cannot be
+     *         parsed.
+     */
+    public static void prefetchConfiguration(Context context, String authorization, final boolean preconnect)
+            throws InvalidArgumentException {
+        if (context == null) {
+            throw new InvalidArgumentException("Context is null");
+        }
+
+        Authorization auth;
+        try {
+            auth = Authorization.fromString(authorization);
+        } catch (InvalidArgumentException e) {
+            throw new InvalidArgumentException("Tokenization Key or client token was invalid.");
+        }
+
+        Context applicationContext = context.getApplicationContext();
+        final BraintreeHttpClient httpClient = new BraintreeHttpClient(auth);
+        httpClient.setAdaptiveTimeouts(AdaptiveTimeouts.getInstance(applicationContext));
+
+        ConfigurationManager.prefetchConfiguration(applicationContext, auth, httpClient,
+                new ConfigurationListener() {
+                    @Override
+                    public void onConfigurationFetched(Configuration configuration) {
+                        if (preconnect) {
+                            httpClient.preconnect(configuration.getClientApiUrl());
+                        }
+                    }
+                });
+    }
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -181,6 +278,7 @@ public class BraintreeFragment extends BrowserSwitchFragment {
         if (mHttpClient == null) {
             mHttpClient = new BraintreeHttpClient(mAuthorization);
         }
+        mHttpClient.setAdaptiveTimeouts(AdaptiveTimeouts.getInstance(mContext));
 
         if (savedInstanceState != null) {
             List<PaymentMethodNonce> paymentMethodNonces =
@@ -285,6 +383,11 @@ public class BraintreeFragment extends BrowserSwitchFragment {
         super.onDestroy();
 
         mCrashReporter.tearDown();
+        ConfigurationManager.removeListener(mFetchConfigurationListener);
+
+        if (mHttpClient != null) {
+            mHttpClient.cancelAll();
+        }
     }
 
     @Override
@@ -620,8 +723,12 @@ public class BraintreeFragment extends BrowserSwitchFragment {
 
     @VisibleForTesting
     protected void fetchConfiguration() {
-        if (getConfiguration() != null || ConfigurationManager.isFetchingConfiguration() || mAuthorization == null ||
-                mHttpClient == null) {
+        if (getConfiguration() != null || mAuthorization == null || mHttpClient == null) {
+            return;
+        }
+
+        // the fetch this fragment is waiting on may have been cancelled by another fragment being destroyed
+        if (mFetchingConfiguration && ConfigurationManager.isFetchingConfiguration(mAuthorization)) {
             return;
         }
 
@@ -632,35 +739,22 @@ public class BraintreeFragment extends BrowserSwitchFragment {
         }
 
         mConfigurationRequestAttempts++;
+        mFetchingConfiguration = true;
 
-        ConfigurationManager.getConfiguration(this, new ConfigurationListener() {
-            @Override
-            public void onConfigurationFetched(Configuration configuration) {
-                setConfiguration(configuration);
-                postConfigurationCallback();
-                flushCallbacks();
-            }
-        }, new BraintreeResponseListener<Exception>() {
-            @Override
-            public void onResponse(final Exception e) {
-                final ConfigurationException exception =
-                        new ConfigurationException("Request for configuration has failed: " + e.getMessage() + ". " +
-                                "Future requests will retry up to 3 times", e);
-                postCallback(exception);
-                postOrQueueCallback(new QueuedCallback() {
-                    @Override
-                    public boolean shouldRun() {
-                        return mConfigurationErrorListener != null;
-                    }
+        ConfigurationManager.getConfiguration(this, mFetchConfigurationListener, mFetchConfigurationErrorListener);
+    }
 
-                    @Override
-                    public void run() {
-                        mConfigurationErrorListener.onResponse(exception);
-                    }
-                });
-                flushCallbacks();
-            }
-        });
+    /**
+     * Connects to the Braintree client API in the background so that the first request made after it, such as
+     * tokenizing a payment method, does not wait for the host to be resolved or a new TLS session to be negotiated.
+     * This is done automatically once the configuration has been fetched, has no effect before then and is only
+     * done once per {@link BraintreeFragment}.
+     */
+    public void preconnect() {
+        if (!mPreconnected && mHttpClient != null && getConfiguration() != null) {
+            mPreconnected = true;
+            mHttpClient.preconnect(getConfiguration().getClientApiUrl());
+        }
     }
 
     protected void setConfigurationErrorListener(BraintreeResponseListener<Exception> listener) {
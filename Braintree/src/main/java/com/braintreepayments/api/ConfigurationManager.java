@@ -6,91 +6,280 @@ import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
+import android.text.TextUtils;
 import android.util.Base64;
+import android.util.LruCache;
 
 import com.braintreepayments.api.interfaces.BraintreeResponseListener;
 import com.braintreepayments.api.interfaces.ConfigurationListener;
-import com.braintreepayments.api.interfaces.HttpResponseCallback;
+import com.braintreepayments.api.interfaces.ConditionalHttpResponseCallback;
+import com.braintreepayments.api.internal.BraintreeHttpClient;
 import com.braintreepayments.api.internal.BraintreeSharedPreferences;
+import com.braintreepayments.api.internal.HttpCall;
+import com.braintreepayments.api.internal.HttpClient;
+import com.braintreepayments.api.internal.HttpValidators;
+import com.braintreepayments.api.models.Authorization;
 import com.braintreepayments.api.models.ClientToken;
 import com.braintreepayments.api.models.Configuration;
 import com.braintreepayments.api.models.TokenizationKey;
 
 import org.json.JSONException;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Manages on-disk {@link Configuration} cache and fetching configuration from the Gateway
+ * Manages on-disk {@link Configuration} cache and fetching configuration from the Gateway. Parsed configuration
+ * is also kept in memory for the few most recently used authorizations, so fragments created after the first one
+ * in a process, for example on every {@link android.app.Activity} recreation, do not read and parse it again.
+ *
+ * Cached configuration is used as is for {@link #TTL}. After that it is still returned immediately, for up to
+ * {@link #MAX_STALENESS}, while it is revalidated in the background; the listener is called a second time, once per
+ * revalidation, if the Gateway returns a different configuration.
+ *
+ * There is at most one fetch in flight per config url and authorization. Callers asking for the same configuration
+ * while it is being fetched are added to that fetch and all of them are called back when it completes, except those
+ * removed with {@link #removeListener(ConfigurationListener)} in the meantime.
  */
 class ConfigurationManager {
 
     static final long TTL = TimeUnit.MINUTES.toMillis(5);
-    @VisibleForTesting
-    static boolean sFetchingConfiguration = false;
+    static final long MAX_STALENESS = TimeUnit.DAYS.toMillis(1);
+
+    private static final int MEMORY_CACHE_SIZE = 4;
+
+    private static final LruCache<String, CachedConfiguration> sMemoryCache = new LruCache<>(MEMORY_CACHE_SIZE);
+    private static final Map<String, InFlightFetch> sInFlightFetches = new HashMap<>();
 
     private ConfigurationManager() {}
 
-    static boolean isFetchingConfiguration() {
-        return sFetchingConfiguration;
+    /**
+     * @return {@code true} if configuration for the {@link Authorization} is being fetched. A fetch whose request
+     * was cancelled, for example because the {@link BraintreeFragment} that made it was destroyed, does not count.
+     */
+    static boolean isFetchingConfiguration(Authorization authorization) {
+        synchronized (sInFlightFetches) {
+            InFlightFetch fetch = sInFlightFetches.get(getCacheKey(authorization));
+            return fetch != null && !fetch.isCancelled();
+        }
+    }
+
+    /**
+     * Stops calling the listener, and the error listener added with it, back when the configuration fetches it is
+     * waiting on complete. Called when the {@link BraintreeFragment} that added it is destroyed, so that a fetch
+     * sent again or shared with another caller neither calls it nor keeps it reachable.
+     */
+    static void removeListener(ConfigurationListener listener) {
+        synchronized (sInFlightFetches) {
+            for (InFlightFetch fetch : sInFlightFetches.values()) {
+                fetch.removeWaiter(listener);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static void clearMemoryCache() {
+        sMemoryCache.evictAll();
+    }
+
+    @VisibleForTesting
+    static void clearInFlightFetches() {
+        synchronized (sInFlightFetches) {
+            sInFlightFetches.clear();
+        }
     }
 
     static void getConfiguration(final BraintreeFragment fragment, final @NonNull ConfigurationListener listener,
             final @NonNull BraintreeResponseListener<Exception> errorListener) {
-        final String authorization;
-        if (fragment.getAuthorization() instanceof ClientToken) {
-            authorization = ((ClientToken) fragment.getAuthorization()).getAuthorizationFingerprint();
-        } else if (fragment.getAuthorization() instanceof TokenizationKey) {
-            authorization = fragment.getAuthorization().toString();
-        } else {
-            authorization = "";
+        getConfiguration(fragment.getApplicationContext(), fragment.getAuthorization(), fragment.getHttpClient(),
+                listener, errorListener);
+    }
+
+    /**
+     * Fetches configuration into the cache without a {@link BraintreeFragment}. A fragment created while the
+     * prefetch is in flight is called back when it completes.
+     */
+    static void prefetchConfiguration(Context context, Authorization authorization, BraintreeHttpClient httpClient,
+            final @NonNull ConfigurationListener listener) {
+        getConfiguration(context, authorization, httpClient, listener, new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                // the fragment will fetch configuration itself
+            }
+        });
+    }
+
+    private static void getConfiguration(Context context, Authorization authorization,
+            BraintreeHttpClient httpClient, final @NonNull ConfigurationListener listener,
+            final @NonNull BraintreeResponseListener<Exception> errorListener) {
+        String configUrl = getConfigUrl(authorization);
+        String cacheKey = getCacheKey(authorization);
+        Configuration cachedConfig = getCachedConfiguration(context, cacheKey, TTL);
+        if (cachedConfig != null) {
+            listener.onConfigurationFetched(cachedConfig);
+            return;
         }
 
-        final String configUrl = Uri.parse(fragment.getAuthorization().getConfigUrl())
+        HttpValidators validators = getCachedValidators(context, cacheKey);
+        Configuration staleConfig = getCachedConfiguration(context, cacheKey, MAX_STALENESS);
+        if (staleConfig != null) {
+            listener.onConfigurationFetched(staleConfig);
+        }
+
+        fetchConfiguration(context, httpClient, configUrl, cacheKey, validators,
+                new Waiter(listener, errorListener, staleConfig));
+    }
+
+    private static String getConfigUrl(Authorization authorization) {
+        return Uri.parse(authorization.getConfigUrl())
                 .buildUpon()
                 .appendQueryParameter("configVersion", "3")
                 .build()
                 .toString();
+    }
 
-        Configuration cachedConfig = getCachedConfiguration(fragment.getApplicationContext(), configUrl + authorization);
-        if (cachedConfig != null) {
-            listener.onConfigurationFetched(cachedConfig);
+    private static String getCacheKey(Authorization authorization) {
+        String authorizationKey;
+        if (authorization instanceof ClientToken) {
+            authorizationKey = ((ClientToken) authorization).getAuthorizationFingerprint();
+        } else if (authorization instanceof TokenizationKey) {
+            authorizationKey = authorization.toString();
         } else {
-            sFetchingConfiguration = true;
-            fragment.getHttpClient().get(configUrl, new HttpResponseCallback() {
-                @Override
-                public void success(String responseBody) {
-                    try {
-                        Configuration configuration = Configuration.fromJson(responseBody);
-                        cacheConfiguration(fragment.getApplicationContext(), configUrl + authorization, configuration);
-
-                        sFetchingConfiguration = false;
-                        listener.onConfigurationFetched(configuration);
-                    } catch (final JSONException e) {
-                        sFetchingConfiguration = false;
-                        errorListener.onResponse(e);
+            authorizationKey = "";
+        }
+
+        return getConfigUrl(authorization) + authorizationKey;
+    }
+
+    /**
+     * Adds the waiter to the fetch in flight for the cache key, or starts one if there is none. A fetch whose
+     * request has been cancelled is sent again, keeping the waiters already waiting on it; those of the destroyed
+     * fragment that cancelled it have been removed by then.
+     */
+    private static void fetchConfiguration(Context context, BraintreeHttpClient httpClient, String configUrl,
+            String cacheKey, @Nullable HttpValidators validators, Waiter waiter) {
+        InFlightFetch fetch;
+        boolean send;
+        synchronized (sInFlightFetches) {
+            fetch = sInFlightFetches.get(cacheKey);
+            if (fetch == null) {
+                fetch = new InFlightFetch();
+                sInFlightFetches.put(cacheKey, fetch);
+                send = true;
+            } else if (fetch.isCancelled()) {
+                fetch.setCall(null);
+                send = true;
+            } else {
+                send = false;
+            }
+
+            fetch.addWaiter(waiter);
+        }
+
+        if (send) {
+            fetch.setCall(request(context, httpClient, configUrl, cacheKey, validators));
+        }
+    }
+
+    /**
+     * Requests the configuration from the Gateway. When validators of the cached configuration are given the request
+     * is conditional and a {@link java.net.HttpURLConnection#HTTP_NOT_MODIFIED} response refreshes the cached
+     * configuration without transferring it again.
+     */
+    private static HttpCall request(final Context context, final BraintreeHttpClient httpClient,
+            final String configUrl, final String cacheKey, @Nullable HttpValidators validators) {
+        return httpClient.get(configUrl, HttpClient.PRIORITY_USER_INITIATED, validators,
+                new ConditionalHttpResponseCallback() {
+                    @Override
+                    public void success(String responseBody, HttpValidators validators) {
+                        try {
+                            Configuration configuration = Configuration.fromJson(responseBody);
+                            cacheConfiguration(context, cacheKey, configuration, validators);
+
+                            finishFetch(cacheKey).onConfigurationFetched(configuration);
+                        } catch (final JSONException e) {
+                            finishFetch(cacheKey).onError(e);
+                        }
                     }
-                }
 
-                @Override
-                public void failure(final Exception exception) {
-                    sFetchingConfiguration = false;
-                    errorListener.onResponse(exception);
-                }
-            });
+                    @Override
+                    public void notModified(HttpValidators validators) {
+                        Configuration configuration = getStaleCachedConfiguration(context, cacheKey);
+                        if (configuration == null) {
+                            InFlightFetch fetch;
+                            synchronized (sInFlightFetches) {
+                                fetch = sInFlightFetches.get(cacheKey);
+                            }
+
+                            if (fetch != null) {
+                                fetch.setCall(request(context, httpClient, configUrl, cacheKey, null));
+                            }
+                            return;
+                        }
+
+                        refreshCachedConfiguration(context, cacheKey, configuration, validators);
+
+                        finishFetch(cacheKey).onConfigurationFetched(configuration);
+                    }
+
+                    @Override
+                    public void failure(final Exception exception) {
+                        finishFetch(cacheKey).onError(exception);
+                    }
+                });
+    }
+
+    private static InFlightFetch finishFetch(String cacheKey) {
+        InFlightFetch fetch;
+        synchronized (sInFlightFetches) {
+            fetch = sInFlightFetches.remove(cacheKey);
         }
+
+        return fetch == null ? new InFlightFetch() : fetch;
     }
 
+    /**
+     * @return the cached configuration if it is at most {@code maxAge} milliseconds old. Configuration is read from
+     * disk only if it is not in the memory cache, which is the case once per process.
+     */
     @Nullable
-    private static Configuration getCachedConfiguration(Context context, String configUrl) {
+    private static Configuration getCachedConfiguration(Context context, String configUrl, long maxAge) {
+        CachedConfiguration cached = sMemoryCache.get(configUrl);
+        if (cached != null) {
+            return (System.currentTimeMillis() - cached.mTimestamp) > maxAge ? null : cached.mConfiguration;
+        }
+
         SharedPreferences prefs = BraintreeSharedPreferences.getSharedPreferences(context);
-        configUrl = Base64.encodeToString(configUrl.getBytes(), 0);
+        String key = Base64.encodeToString(configUrl.getBytes(), 0);
 
-        String timestampKey = configUrl + "_timestamp";
-        if ((System.currentTimeMillis() - prefs.getLong(timestampKey, 0)) > TTL) {
+        long timestamp = prefs.getLong(key + "_timestamp", 0);
+        if ((System.currentTimeMillis() - timestamp) > maxAge) {
             return null;
         }
 
+        try {
+            Configuration configuration = Configuration.fromJson(prefs.getString(key, ""));
+            sMemoryCache.put(configUrl, new CachedConfiguration(configuration, timestamp));
+            return configuration;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Configuration getStaleCachedConfiguration(Context context, String configUrl) {
+        CachedConfiguration cached = sMemoryCache.get(configUrl);
+        if (cached != null) {
+            return cached.mConfiguration;
+        }
+
+        SharedPreferences prefs = BraintreeSharedPreferences.getSharedPreferences(context);
+        configUrl = Base64.encodeToString(configUrl.getBytes(), 0);
+
         try {
             return Configuration.fromJson(prefs.getString(configUrl, ""));
         } catch (JSONException e) {
@@ -98,13 +287,148 @@ class ConfigurationManager {
         }
     }
 
-    private static void cacheConfiguration(Context context, String configUrl, Configuration configuration) {
+    @Nullable
+    private static HttpValidators getCachedValidators(Context context, String configUrl) {
+        SharedPreferences prefs = BraintreeSharedPreferences.getSharedPreferences(context);
+        configUrl = Base64.encodeToString(configUrl.getBytes(), 0);
+
+        if (!prefs.contains(configUrl)) {
+            return null;
+        }
+
+        HttpValidators validators = new HttpValidators(prefs.getString(configUrl + "_etag", null),
+                prefs.getString(configUrl + "_last_modified", null));
+        return validators.isEmpty() ? null : validators;
+    }
+
+    private static void cacheConfiguration(Context context, String configUrl, Configuration configuration,
+            HttpValidators validators) {
+        long timestamp = System.currentTimeMillis();
+        sMemoryCache.put(configUrl, new CachedConfiguration(configuration, timestamp));
+
         configUrl = Base64.encodeToString(configUrl.getBytes(), 0);
 
         String timestampKey = configUrl + "_timestamp";
         BraintreeSharedPreferences.getSharedPreferences(context).edit()
                 .putString(configUrl, configuration.toJson())
-                .putLong(timestampKey, System.currentTimeMillis())
+                .putLong(timestampKey, timestamp)
+                .putString(configUrl + "_etag", validators.getETag())
+                .putString(configUrl + "_last_modified", validators.getLastModified())
                 .apply();
     }
+
+    private static void refreshCachedConfiguration(Context context, String configUrl, Configuration configuration,
+            HttpValidators validators) {
+        long timestamp = System.currentTimeMillis();
+        sMemoryCache.put(configUrl, new CachedConfiguration(configuration, timestamp));
+
+        configUrl = Base64.encodeToString(configUrl.getBytes(), 0);
+
+        SharedPreferences.Editor editor = BraintreeSharedPreferences.getSharedPreferences(context).edit()
+                .putLong(configUrl + "_timestamp", timestamp);
+        if (!validators.isEmpty()) {
+            editor.putString(configUrl + "_etag", validators.getETag())
+                    .putString(configUrl + "_last_modified", validators.getLastModified());
+        }
+        editor.apply();
+    }
+
+    private static class CachedConfiguration {
+
+        private final Configuration mConfiguration;
+        private final long mTimestamp;
+
+        CachedConfiguration(Configuration configuration, long timestamp) {
+            mConfiguration = configuration;
+            mTimestamp = timestamp;
+        }
+    }
+
+    /**
+     * A caller waiting on a configuration fetch. A caller that was already given a stale configuration is only
+     * called again if the fetched configuration is different, and is not told about errors.
+     */
+    private static class Waiter {
+
+        private final ConfigurationListener mListener;
+        private final BraintreeResponseListener<Exception> mErrorListener;
+        private final Configuration mStaleConfiguration;
+
+        Waiter(ConfigurationListener listener, BraintreeResponseListener<Exception> errorListener,
+                @Nullable Configuration staleConfiguration) {
+            mListener = listener;
+            mErrorListener = errorListener;
+            mStaleConfiguration = staleConfiguration;
+        }
+
+        void onConfigurationFetched(Configuration configuration) {
+            if (mStaleConfiguration == null ||
+                    !TextUtils.equals(mStaleConfiguration.toJson(), configuration.toJson())) {
+                mListener.onConfigurationFetched(configuration);
+            }
+        }
+
+        void onError(Exception exception) {
+            // the stale configuration stays in use, the next call will try again
+            if (mStaleConfiguration == null) {
+                mErrorListener.onResponse(exception);
+            }
+        }
+    }
+
+    /**
+     * A configuration request shared by every caller waiting on it. Each listener is called back at most once per
+     * fetch, however many times its caller asked for the configuration while the fetch was in flight.
+     */
+    private static class InFlightFetch {
+
+        private final List<Waiter> mWaiters = new ArrayList<>();
+        private HttpCall mCall;
+
+        synchronized void addWaiter(Waiter waiter) {
+            for (Waiter existing : mWaiters) {
+                if (existing.mListener == waiter.mListener) {
+                    return;
+                }
+            }
+
+            mWaiters.add(waiter);
+        }
+
+        synchronized void removeWaiter(ConfigurationListener listener) {
+            for (Iterator<Waiter> iterator = mWaiters.iterator(); iterator.hasNext(); ) {
+                if (iterator.next().mListener == listener) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        synchronized void setCall(@Nullable HttpCall call) {
+            mCall = call;
+        }
+
+        /**
+         * @return {@code true} if the request was cancelled and will never complete. A fetch that is still being
+         * sent is not cancelled.
+         */
+        synchronized boolean isCancelled() {
+            return mCall != null && mCall.isCancelled();
+        }
+
+        void onConfigurationFetched(Configuration configuration) {
+            for (Waiter waiter : getWaiters()) {
+                waiter.onConfigurationFetched(configuration);
+            }
+        }
+
+        void onError(Exception exception) {
+            for (Waiter waiter : getWaiters()) {
+                waiter.onError(exception);
+            }
+        }
+
+        private synchronized List<Waiter> getWaiters() {
+            return new ArrayList<>(mWaiters);
+        }
+    }
 }
@@ -1,15 +1,15 @@
 package com.braintreepayments.api;
 
 import android.net.Uri;
+import android.util.JsonReader;
 
 import com.braintreepayments.api.interfaces.ConfigurationListener;
-import com.braintreepayments.api.interfaces.HttpResponseCallback;
 import com.braintreepayments.api.interfaces.PaymentMethodNoncesUpdatedListener;
+import com.braintreepayments.api.interfaces.StreamingHttpResponseCallback;
+import com.braintreepayments.api.internal.HttpClient;
 import com.braintreepayments.api.models.Configuration;
 import com.braintreepayments.api.models.PaymentMethodNonce;
 
-import org.json.JSONException;
-
 import java.util.List;
 
 /**
@@ -37,16 +37,17 @@ public class PaymentMethod {
         fragment.waitForConfiguration(new ConfigurationListener() {
             @Override
             public void onConfigurationFetched(Configuration configuration) {
-                fragment.getHttpClient().get(uri.toString(), new HttpResponseCallback() {
+                fragment.getHttpClient().get(uri.toString(), HttpClient.PRIORITY_USER_INITIATED,
+                        new StreamingHttpResponseCallback<List<PaymentMethodNonce>>() {
+                    @Override
+                    public List<PaymentMethodNonce> parseResponse(JsonReader reader) throws Exception {
+                        return PaymentMethodNonce.parsePaymentMethodNonces(reader);
+                    }
+
                     @Override
-                    public void success(String responseBody) {
-                        try {
-                            fragment.postCallback(PaymentMethodNonce.parsePaymentMethodNonces(responseBody));
-                            fragment.sendAnalyticsEvent("get-payment-methods.succeeded");
-                        } catch (JSONException e) {
-                            fragment.postCallback(e);
-                            fragment.sendAnalyticsEvent("get-payment-methods.failed");
-                        }
+                    public void success(List<PaymentMethodNonce> paymentMethodNonces) {
+                        fragment.postCallback(paymentMethodNonces);
+                        fragment.sendAnalyticsEvent("get-payment-methods.succeeded");
                     }
 
                     @Override
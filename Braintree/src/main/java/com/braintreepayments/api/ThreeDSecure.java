@@ -6,7 +6,7 @@ import android.content.Intent;
 import com.braintreepayments.api.exceptions.BraintreeException;
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
 import com.braintreepayments.api.interfaces.ConfigurationListener;
-import com.braintreepayments.api.interfaces.HttpResponseCallback;
+import com.braintreepayments.api.interfaces.ParsedHttpResponseCallback;
 import com.braintreepayments.api.interfaces.PaymentMethodNonceCallback;
 import com.braintreepayments.api.internal.ManifestValidator;
 import com.braintreepayments.api.models.BraintreeRequestCodes;
@@ -100,25 +100,25 @@ public class ThreeDSecure {
                             .put("merchantAccountId", configuration.getMerchantAccountId())
                             .put("amount", amount);
 
-                    fragment.getHttpClient().post(TokenizationClient.versionedPath(
+                    fragment.getHttpClient().postParsed(TokenizationClient.versionedPath(
                             TokenizationClient.PAYMENT_METHOD_ENDPOINT + "/" + nonce +
-                                    "/three_d_secure/lookup"), params.toString(), new HttpResponseCallback() {
+                                    "/three_d_secure/lookup"), params.toString(),
+                            new ParsedHttpResponseCallback<ThreeDSecureLookup>() {
                         @Override
-                        public void success(String responseBody) {
-                            try {
-                                ThreeDSecureLookup threeDSecureLookup =
-                                        ThreeDSecureLookup.fromJson(responseBody);
-                                if (threeDSecureLookup.getAcsUrl() != null) {
-                                    Intent intent = new Intent(fragment.getApplicationContext(),
-                                            ThreeDSecureWebViewActivity.class)
-                                            .putExtra(ThreeDSecureWebViewActivity.EXTRA_THREE_D_SECURE_LOOKUP,
-                                                    threeDSecureLookup);
-                                    fragment.startActivityForResult(intent, BraintreeRequestCodes.THREE_D_SECURE);
-                                } else {
-                                    fragment.postCallback(threeDSecureLookup.getCardNonce());
-                                }
-                            } catch (JSONException e) {
-                                fragment.postCallback(e);
+                        public ThreeDSecureLookup parseResponse(String responseBody) throws JSONException {
+                            return ThreeDSecureLookup.fromJson(responseBody);
+                        }
+
+                        @Override
+                        public void success(ThreeDSecureLookup threeDSecureLookup) {
+                            if (threeDSecureLookup.getAcsUrl() != null) {
+                                Intent intent = new Intent(fragment.getApplicationContext(),
+                                        ThreeDSecureWebViewActivity.class)
+                                        .putExtra(ThreeDSecureWebViewActivity.EXTRA_THREE_D_SECURE_LOOKUP,
+                                                threeDSecureLookup);
+                                fragment.startActivityForResult(intent, BraintreeRequestCodes.THREE_D_SECURE);
+                            } else {
+                                fragment.postCallback(threeDSecureLookup.getCardNonce());
                             }
                         }
 
@@ -2,7 +2,7 @@ package com.braintreepayments.api;
 
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
 import com.braintreepayments.api.interfaces.ConfigurationListener;
-import com.braintreepayments.api.interfaces.HttpResponseCallback;
+import com.braintreepayments.api.interfaces.ParsedHttpResponseCallback;
 import com.braintreepayments.api.interfaces.PaymentMethodNonceCallback;
 import com.braintreepayments.api.models.Configuration;
 import com.braintreepayments.api.models.PaymentMethodBuilder;
@@ -38,18 +38,18 @@ class TokenizationClient {
         fragment.waitForConfiguration(new ConfigurationListener() {
             @Override
             public void onConfigurationFetched(Configuration configuration) {
-                fragment.getHttpClient().post(TokenizationClient.versionedPath(
+                fragment.getHttpClient().postParsed(TokenizationClient.versionedPath(
                         TokenizationClient.PAYMENT_METHOD_ENDPOINT + "/" + paymentMethodBuilder.getApiPath()),
-                        paymentMethodBuilder.build(), new HttpResponseCallback() {
+                        paymentMethodBuilder.build(), new ParsedHttpResponseCallback<PaymentMethodNonce>() {
                             @Override
-                            public void success(String responseBody) {
-                                try {
-                                   PaymentMethodNonce paymentMethodNonce = parsePaymentMethodNonces(responseBody,
-                                            paymentMethodBuilder.getResponsePaymentMethodType());
-                                    callback.success(paymentMethodNonce);
-                                } catch (JSONException e) {
-                                    callback.failure(e);
-                                }
+                            public PaymentMethodNonce parseResponse(String responseBody) throws JSONException {
+                                return parsePaymentMethodNonces(responseBody,
+                                        paymentMethodBuilder.getResponsePaymentMethodType());
+                            }
+
+                            @Override
+                            public void success(PaymentMethodNonce paymentMethodNonce) {
+                                callback.success(paymentMethodNonce);
                             }
 
                             @Override
@@ -5,6 +5,7 @@ import android.net.Uri;
 import com.braintreepayments.api.exceptions.ConfigurationException;
 import com.braintreepayments.api.interfaces.ConfigurationListener;
 import com.braintreepayments.api.interfaces.HttpResponseCallback;
+import com.braintreepayments.api.interfaces.ParsedHttpResponseCallback;
 import com.braintreepayments.api.interfaces.PaymentMethodNonceCallback;
 import com.braintreepayments.api.models.Configuration;
 import com.braintreepayments.api.models.PaymentMethodNonce;
@@ -55,10 +56,16 @@ public class UnionPay {
                         .build()
                         .toString();
 
-                fragment.getHttpClient().get(fetchCapabilitiesUrl, new HttpResponseCallback() {
+                fragment.getHttpClient().getParsed(fetchCapabilitiesUrl,
+                        new ParsedHttpResponseCallback<UnionPayCapabilities>() {
                     @Override
-                    public void success(String responseBody) {
-                        fragment.postCallback(UnionPayCapabilities.fromJson(responseBody));
+                    public UnionPayCapabilities parseResponse(String responseBody) {
+                        return UnionPayCapabilities.fromJson(responseBody);
+                    }
+
+                    @Override
+                    public void success(UnionPayCapabilities capabilities) {
+                        fragment.postCallback(capabilities);
                         fragment.sendAnalyticsEvent("union-pay.capabilities-received");
                     }
 
@@ -1,12 +1,15 @@
 package com.braintreepayments.api.internal;
 
 import android.net.Uri;
+import android.support.annotation.VisibleForTesting;
 
 import com.braintreepayments.api.core.BuildConfig;
 import com.braintreepayments.api.exceptions.AuthorizationException;
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
 import com.braintreepayments.api.exceptions.UnprocessableEntityException;
+import com.braintreepayments.api.interfaces.ConditionalHttpResponseCallback;
 import com.braintreepayments.api.interfaces.HttpResponseCallback;
+import com.braintreepayments.api.interfaces.StreamingHttpResponseCallback;
 import com.braintreepayments.api.models.Authorization;
 import com.braintreepayments.api.models.ClientToken;
 import com.braintreepayments.api.models.TokenizationKey;
@@ -14,27 +17,41 @@ import com.braintreepayments.api.models.TokenizationKey;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.IOException;
-import java.net.HttpURLConnection;
+import java.io.InputStream;
+import java.util.Map;
 
 import javax.net.ssl.SSLException;
 
 /**
  * Network request class that handles Braintree request specifics and threading.
  */
-public class BraintreeHttpClient extends HttpClient {
+public class BraintreeHttpClient extends HttpClient<BraintreeHttpClient> {
+
+    public static final String OPERATION_CONFIGURATION = "configuration";
+    public static final String OPERATION_TOKENIZE = "tokenize";
+    public static final String OPERATION_PAYMENT_METHODS = "payment_methods";
+    public static final String OPERATION_THREE_D_SECURE_LOOKUP = "3ds_lookup";
+    public static final String OPERATION_UNIONPAY_CAPABILITIES = "unionpay_capabilities";
+    public static final String OPERATION_UNIONPAY_ENROLLMENT = "unionpay_enrollment";
+    public static final String OPERATION_PAYPAL = "paypal";
+    public static final String OPERATION_ANALYTICS = "analytics";
 
     private static final String AUTHORIZATION_FINGERPRINT_KEY = "authorizationFingerprint";
     private static final String TOKENIZATION_KEY_HEADER_KEY = "Client-Key";
+    private static final int REQUEST_COMPRESSION_THRESHOLD = 1024;
 
     private final Authorization mAuthorization;
 
     public BraintreeHttpClient(Authorization authorization) {
         setUserAgent(getUserAgent());
+        setConnectionReuseEnabled(true);
+        setRequestCoalescingEnabled(true);
+        setRetryPolicy(new RetryPolicy());
+        setCircuitBreaker(CircuitBreaker.getInstance());
+        setRequestCompressionThreshold(REQUEST_COMPRESSION_THRESHOLD);
 
         try {
-            setSSLSocketFactory(
-                    new TLSSocketFactory(BraintreeGatewayCertificate.getCertInputStream()));
+            setSSLSocketFactory(TLSSocketFactory.getInstance(BraintreeGatewayCertificate.getCertificate()));
         } catch (SSLException e) {
             setSSLSocketFactory(null);
         }
@@ -54,15 +71,60 @@ public class BraintreeHttpClient extends HttpClient {
      * If the path is a full url, it will be used instead of the previously provided url.
      *
      * @param path The path or url to request from the server via GET
+     * @param priority The {@link RequestPriority} to dispatch the request with.
      * @param callback The {@link HttpResponseCallback} to receive the response or error.
+     * @return {@link HttpCall} to cancel the request with.
+     */
+    @Override
+    public HttpCall get(String path, @RequestPriority int priority, HttpResponseCallback callback) {
+        if (path == null) {
+            postCallbackOnMainThread(callback, new IllegalArgumentException("Path cannot be null"));
+            return HttpCall.finished();
+        }
+
+        return super.get(getAuthorizedUrl(path), priority, callback);
+    }
+
+    /**
+     * Make a HTTP GET request to Braintree using the base url, path and authorization provided, parsing the
+     * response directly from the network stream.
+     *
+     * @param path The path or url to request from the server via GET
+     * @param priority The {@link RequestPriority} to dispatch the request with.
+     * @param callback The {@link StreamingHttpResponseCallback} to parse and receive the response or error.
+     * @return {@link HttpCall} to cancel the request with.
+     */
+    @Override
+    public <R> HttpCall get(String path, @RequestPriority int priority, StreamingHttpResponseCallback<R> callback) {
+        if (path == null) {
+            postCallbackOnMainThread(callback, new IllegalArgumentException("Path cannot be null"));
+            return HttpCall.finished();
+        }
+
+        return super.get(getAuthorizedUrl(path), priority, callback);
+    }
+
+    /**
+     * Make a conditional HTTP GET request to Braintree using the base url, path and authorization provided.
+     *
+     * @param path The path or url to request from the server via GET
+     * @param priority The {@link RequestPriority} to dispatch the request with.
+     * @param validators The {@link HttpValidators} of the previous response, if any.
+     * @param callback The {@link ConditionalHttpResponseCallback} to receive the response or error.
+     * @return {@link HttpCall} to cancel the request with.
      */
     @Override
-    public void get(String path, HttpResponseCallback callback) {
+    public HttpCall get(String path, @RequestPriority int priority, HttpValidators validators,
+            ConditionalHttpResponseCallback callback) {
         if (path == null) {
             postCallbackOnMainThread(callback, new IllegalArgumentException("Path cannot be null"));
-            return;
+            return HttpCall.finished();
         }
 
+        return super.get(getAuthorizedUrl(path), priority, validators, callback);
+    }
+
+    private String getAuthorizedUrl(String path) {
         Uri uri;
         if (path.startsWith("http")) {
             uri = Uri.parse(path);
@@ -77,7 +139,7 @@ public class BraintreeHttpClient extends HttpClient {
                     .build();
         }
 
-        super.get(uri.toString(), callback);
+        return uri.toString();
     }
 
     /**
@@ -86,56 +148,101 @@ public class BraintreeHttpClient extends HttpClient {
      *
      * @param path The path or url to request from the server via HTTP POST
      * @param data The body of the POST request
+     * @param priority The {@link RequestPriority} to dispatch the request with.
      * @param callback The {@link HttpResponseCallback} to receive the response or error.
+     * @return {@link HttpCall} to cancel the request with.
      */
     @Override
-    public void post(String path, String data, HttpResponseCallback callback) {
+    public HttpCall post(String path, String data, @RequestPriority int priority, HttpResponseCallback callback) {
         try {
-            if (mAuthorization instanceof ClientToken) {
-                data = new JSONObject(data)
-                        .put(AUTHORIZATION_FINGERPRINT_KEY,
-                                ((ClientToken) mAuthorization).getAuthorizationFingerprint())
-                        .toString();
-            }
-
-            super.post(path, data, callback);
+            return super.post(path, getAuthorizedBody(data), priority, callback);
         } catch (JSONException e) {
             postCallbackOnMainThread(callback, e);
+            return HttpCall.finished();
         }
     }
 
     /**
      * Makes a synchronous HTTP POST request to Braintree using the base url, path, and authorization provided.
-     * @see BraintreeHttpClient#post(String, String, HttpResponseCallback)
+     * @see BraintreeHttpClient#post(String, String, int, HttpResponseCallback)
      *
      * @param path the path or url to request from the server via HTTP POST
      * @param data the body of the post request
+     * @param priority the {@link RequestPriority} of the request
      * @return the HTTP response body
      */
-    public String post(String path, String data) throws Exception {
-        if (mAuthorization instanceof ClientToken) {
-            data = new JSONObject(data)
-                    .put(AUTHORIZATION_FINGERPRINT_KEY, ((ClientToken) mAuthorization).getAuthorizationFingerprint())
-                    .toString();
+    @Override
+    public String post(String path, String data, @RequestPriority int priority) throws Exception {
+        return super.post(path, getAuthorizedBody(data), priority);
+    }
+
+    /**
+     * Adds the authorization fingerprint to a serialized JSON object request body when a {@link ClientToken} is
+     * being used, replacing an existing one.
+     *
+     * @param data the serialized JSON object request body.
+     * @return the request body including the authorization fingerprint.
+     * @throws JSONException if {@code data} is not a JSON object.
+     */
+    @VisibleForTesting
+    String getAuthorizedBody(String data) throws JSONException {
+        if (!(mAuthorization instanceof ClientToken)) {
+            return data;
         }
-        return super.post(path, data);
+
+        return new JSONObject(data)
+                .put(AUTHORIZATION_FINGERPRINT_KEY, ((ClientToken) mAuthorization).getAuthorizationFingerprint())
+                .toString();
+    }
+
+    /**
+     * Names Braintree gateway calls by the operation they are made for, falling back to the path of the url.
+     */
+    @Override
+    protected String getOperation(String method, String url) {
+        Uri uri = Uri.parse(url);
+        String host = uri.getHost();
+        String path = uri.getPath();
+        if (path == null) {
+            return super.getOperation(method, url);
+        }
+
+        if (host != null && host.contains("analytics")) {
+            return OPERATION_ANALYTICS;
+        } else if (path.endsWith("/configuration")) {
+            return OPERATION_CONFIGURATION;
+        } else if (path.endsWith("/three_d_secure/lookup")) {
+            return OPERATION_THREE_D_SECURE_LOOKUP;
+        } else if (path.endsWith("/capabilities")) {
+            return OPERATION_UNIONPAY_CAPABILITIES;
+        } else if (path.endsWith("/union_pay_enrollments")) {
+            return OPERATION_UNIONPAY_ENROLLMENT;
+        } else if (path.contains("/paypal_hermes/")) {
+            return OPERATION_PAYPAL;
+        } else if (path.endsWith("/payment_methods") && METHOD_GET.equals(method)) {
+            return OPERATION_PAYMENT_METHODS;
+        } else if (path.contains("/payment_methods/")) {
+            return OPERATION_TOKENIZE;
+        }
+
+        return super.getOperation(method, url);
     }
 
     @Override
-    protected HttpURLConnection init(String url) throws IOException {
-        HttpURLConnection connection = super.init(url);
+    protected Map<String, String> getHeaders() {
+        Map<String, String> headers = super.getHeaders();
 
         if (mAuthorization instanceof TokenizationKey) {
-            connection.setRequestProperty(TOKENIZATION_KEY_HEADER_KEY, mAuthorization.toString());
+            headers.put(TOKENIZATION_KEY_HEADER_KEY, mAuthorization.toString());
         }
 
-        return connection;
+        return headers;
     }
 
     @Override
-    protected String parseResponse(HttpURLConnection connection) throws Exception {
+    protected String parseResponse(int responseCode, InputStream body, boolean gzip) throws Exception {
         try {
-            return super.parseResponse(connection);
+            return super.parseResponse(responseCode, body, gzip);
         } catch (AuthorizationException | UnprocessableEntityException e) {
             if (e instanceof AuthorizationException) {
                 String errorMessage = new ErrorWithResponse(403, e.getMessage()).getMessage();
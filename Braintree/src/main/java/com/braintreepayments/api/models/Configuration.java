@@ -1,18 +1,29 @@
 package com.braintreepayments.api.models;
 
 import android.support.annotation.Nullable;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
 import com.braintreepayments.api.Json;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Contains the remote configuration for the Braintree Android SDK.
+ *
+ * The json is read in a single streaming pass when the configuration is created, without building a
+ * {@link JSONObject} for the parts of it the SDK does not use. The json of each payment method is kept from that
+ * pass and turned into its configuration only the first time it is requested. Values are read the way
+ * {@link JSONObject} reads them: strings are coerced from other types and the last of duplicate keys wins.
  */
 public class Configuration {
 
@@ -31,8 +42,10 @@ public class Configuration {
     private static final String UNIONPAY_KEY = "unionPay";
     private static final String CARD_KEY = "creditCards";
     private static final String VISA_CHECKOUT_KEY = "visaCheckout";
+    private static final Set<String> PAYMENT_METHOD_KEYS = new HashSet<>(Arrays.asList(CARD_KEY, PAYPAL_KEY,
+            ANDROID_PAY_KEY, PAY_WITH_VENMO_KEY, UNIONPAY_KEY, VISA_CHECKOUT_KEY, KOUNT_KEY));
 
-    private String mConfigurationString;
+    private final String mConfigurationString;
     private String mClientApiUrl;
     private final Set<String> mChallenges = new HashSet<>();
     private String mEnvironment;
@@ -48,6 +61,7 @@ public class Configuration {
     private KountConfiguration mKountConfiguration;
     private UnionPayConfiguration mUnionPayConfiguration;
     private VisaCheckoutConfiguration mVisaCheckoutConfiguration;
+    private final Map<String, JSONObject> mPaymentMethods = new HashMap<>();
 
     /**
      * Creates a new {@link com.braintreepayments.api.models.Configuration} instance from a json string.
@@ -65,23 +79,52 @@ public class Configuration {
         }
 
         mConfigurationString = configurationString;
-        JSONObject json = new JSONObject(configurationString);
-
-        mClientApiUrl = json.getString(CLIENT_API_URL_KEY);
-        parseJsonChallenges(json.optJSONArray(CHALLENGES_KEY));
-        mEnvironment = json.getString(ENVIRONMENT_KEY);
-        mMerchantId = json.getString(MERCHANT_ID_KEY);
-        mMerchantAccountId = Json.optString(json, MERCHANT_ACCOUNT_ID_KEY, null);
-        mAnalyticsConfiguration = AnalyticsConfiguration.fromJson(json.optJSONObject(ANALYTICS_KEY));
-        mCardConfiguration = CardConfiguration.fromJson(json.optJSONObject(CARD_KEY));
-        mPaypalEnabled = json.optBoolean(PAYPAL_ENABLED_KEY, false);
-        mPayPalConfiguration = PayPalConfiguration.fromJson(json.optJSONObject(PAYPAL_KEY));
-        mAndroidPayConfiguration = AndroidPayConfiguration.fromJson(json.optJSONObject(ANDROID_PAY_KEY));
-        mThreeDSecureEnabled = json.optBoolean(THREE_D_SECURE_ENABLED_KEY, false);
-        mVenmoConfiguration = VenmoConfiguration.fromJson(json.optJSONObject(PAY_WITH_VENMO_KEY));
-        mKountConfiguration = KountConfiguration.fromJson(json.optJSONObject(KOUNT_KEY));
-        mUnionPayConfiguration = UnionPayConfiguration.fromJson(json.optJSONObject(UNIONPAY_KEY));
-        mVisaCheckoutConfiguration = VisaCheckoutConfiguration.fromJson(json.optJSONObject(VISA_CHECKOUT_KEY));
+
+        JsonReader reader = newReader(configurationString);
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (CLIENT_API_URL_KEY.equals(name)) {
+                    mClientApiUrl = readString(reader);
+                } else if (CHALLENGES_KEY.equals(name)) {
+                    parseJsonChallenges(reader);
+                } else if (ENVIRONMENT_KEY.equals(name)) {
+                    mEnvironment = readString(reader);
+                } else if (MERCHANT_ID_KEY.equals(name)) {
+                    mMerchantId = readString(reader);
+                } else if (MERCHANT_ACCOUNT_ID_KEY.equals(name)) {
+                    mMerchantAccountId = optString(reader);
+                } else if (ANALYTICS_KEY.equals(name)) {
+                    mAnalyticsConfiguration = AnalyticsConfiguration.fromJson(optObject(reader));
+                } else if (PAYPAL_ENABLED_KEY.equals(name)) {
+                    mPaypalEnabled = optBoolean(reader);
+                } else if (THREE_D_SECURE_ENABLED_KEY.equals(name)) {
+                    mThreeDSecureEnabled = optBoolean(reader);
+                } else if (PAYMENT_METHOD_KEYS.contains(name)) {
+                    mPaymentMethods.put(name, optObject(reader));
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JSONException("Invalid configuration: " + e.getMessage());
+        } finally {
+            close(reader);
+        }
+
+        if (mClientApiUrl == null) {
+            throw new JSONException("No value for " + CLIENT_API_URL_KEY);
+        } else if (mEnvironment == null) {
+            throw new JSONException("No value for " + ENVIRONMENT_KEY);
+        } else if (mMerchantId == null) {
+            throw new JSONException("No value for " + MERCHANT_ID_KEY);
+        }
+
+        if (mAnalyticsConfiguration == null) {
+            mAnalyticsConfiguration = AnalyticsConfiguration.fromJson(null);
+        }
     }
 
     public String toJson() {
@@ -119,7 +162,11 @@ public class Configuration {
     /**
      * @return instance of {@link CardConfiguration}.
      */
-    public CardConfiguration getCardConfiguration() {
+    public synchronized CardConfiguration getCardConfiguration() {
+        if (mCardConfiguration == null) {
+            mCardConfiguration = CardConfiguration.fromJson(mPaymentMethods.remove(CARD_KEY));
+        }
+
         return mCardConfiguration;
     }
 
@@ -128,20 +175,28 @@ public class Configuration {
      *         {@code false} otherwise.
      */
     public boolean isPayPalEnabled() {
-        return (mPaypalEnabled && mPayPalConfiguration.isEnabled());
+        return (mPaypalEnabled && getPayPal().isEnabled());
     }
 
     /**
      * @return instance of {@link com.braintreepayments.api.models.PayPalConfiguration}.
      */
-    public PayPalConfiguration getPayPal() {
+    public synchronized PayPalConfiguration getPayPal() {
+        if (mPayPalConfiguration == null) {
+            mPayPalConfiguration = PayPalConfiguration.fromJson(mPaymentMethods.remove(PAYPAL_KEY));
+        }
+
         return mPayPalConfiguration;
     }
 
     /**
      * @return instance of {@link AndroidPayConfiguration}.
      */
-    public AndroidPayConfiguration getAndroidPay() {
+    public synchronized AndroidPayConfiguration getAndroidPay() {
+        if (mAndroidPayConfiguration == null) {
+            mAndroidPayConfiguration = AndroidPayConfiguration.fromJson(mPaymentMethods.remove(ANDROID_PAY_KEY));
+        }
+
         return mAndroidPayConfiguration;
     }
 
@@ -177,36 +232,109 @@ public class Configuration {
     /**
      * @return instance of {@link VenmoConfiguration}
      */
-    public VenmoConfiguration getPayWithVenmo() {
+    public synchronized VenmoConfiguration getPayWithVenmo() {
+        if (mVenmoConfiguration == null) {
+            mVenmoConfiguration = VenmoConfiguration.fromJson(mPaymentMethods.remove(PAY_WITH_VENMO_KEY));
+        }
+
         return mVenmoConfiguration;
     }
 
     /**
      * @return instance of {@link UnionPayConfiguration}
      */
-    public UnionPayConfiguration getUnionPay() {
+    public synchronized UnionPayConfiguration getUnionPay() {
+        if (mUnionPayConfiguration == null) {
+            mUnionPayConfiguration = UnionPayConfiguration.fromJson(mPaymentMethods.remove(UNIONPAY_KEY));
+        }
+
         return mUnionPayConfiguration;
     }
 
     /**
      * @return instance of {@link VisaCheckoutConfiguration}
      */
-    public VisaCheckoutConfiguration getVisaCheckout() {
+    public synchronized VisaCheckoutConfiguration getVisaCheckout() {
+        if (mVisaCheckoutConfiguration == null) {
+            mVisaCheckoutConfiguration = VisaCheckoutConfiguration.fromJson(mPaymentMethods.remove(VISA_CHECKOUT_KEY));
+        }
+
         return mVisaCheckoutConfiguration;
     }
 
     /**
      * @return instance of {@link KountConfiguration}.
      */
-    public KountConfiguration getKount() {
+    public synchronized KountConfiguration getKount() {
+        if (mKountConfiguration == null) {
+            mKountConfiguration = KountConfiguration.fromJson(mPaymentMethods.remove(KOUNT_KEY));
+        }
+
         return mKountConfiguration;
     }
 
-    private void parseJsonChallenges(JSONArray jsonArray) {
-        if (jsonArray != null) {
-            for (int i = 0; i < jsonArray.length(); i++) {
-                mChallenges.add(jsonArray.optString(i, ""));
-            }
+    private void parseJsonChallenges(JsonReader reader) throws IOException, JSONException {
+        mChallenges.clear();
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
         }
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            mChallenges.add(readString(reader));
+        }
+        reader.endArray();
+    }
+
+    private static JsonReader newReader(String json) {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Reads the next value as a string, coercing it like {@link JSONObject#getString(String)} does, which turns
+     * {@code null} into {@code "null"}.
+     */
+    private static String readString(JsonReader reader) throws IOException, JSONException {
+        return String.valueOf(Json.readValue(reader));
+    }
+
+    /**
+     * Reads the next value as a string like {@link Json#optString(JSONObject, String, String)} does.
+     */
+    @Nullable
+    private static String optString(JsonReader reader) throws IOException, JSONException {
+        Object value = Json.readValue(reader);
+        return value == JSONObject.NULL ? null : String.valueOf(value);
+    }
+
+    private static boolean optBoolean(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case STRING:
+                return "true".equalsIgnoreCase(reader.nextString());
+            default:
+                reader.skipValue();
+                return false;
+        }
+    }
+
+    @Nullable
+    private static JSONObject optObject(JsonReader reader) throws IOException, JSONException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        return Json.readObject(reader);
+    }
+
+    private static void close(JsonReader reader) {
+        try {
+            reader.close();
+        } catch (IOException ignored) {}
     }
 }
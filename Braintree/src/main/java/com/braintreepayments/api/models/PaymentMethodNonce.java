@@ -4,11 +4,16 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.CallSuper;
 import android.support.annotation.Nullable;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.braintreepayments.api.Json;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -103,6 +108,47 @@ public abstract class PaymentMethodNonce implements Parcelable {
         return paymentMethodsNonces;
     }
 
+    /**
+     * Parses a response from the Braintree gateway for a list of payment method nonces directly from a stream.
+     * Only one payment method is held in memory as a {@link JSONObject} at a time.
+     *
+     * @param reader {@link JsonReader} over a response containing a list of {@link PaymentMethodNonce}s
+     * @return List of {@link PaymentMethodNonce}s contained in the response
+     * @throws JSONException
+     * @throws IOException
+     */
+    public static List<PaymentMethodNonce> parsePaymentMethodNonces(JsonReader reader)
+            throws JSONException, IOException {
+        List<PaymentMethodNonce> paymentMethodsNonces = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (PAYMENT_METHOD_NONCE_COLLECTION_KEY.equals(reader.nextName()) &&
+                    reader.peek() == JsonToken.BEGIN_ARRAY) {
+                paymentMethodsNonces = new ArrayList<>();
+                JSONObject json;
+                PaymentMethodNonce paymentMethodNonce;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    json = Json.readObject(reader);
+                    paymentMethodNonce = parsePaymentMethodNonces(json, json.getString(PAYMENT_METHOD_TYPE_KEY));
+                    if (paymentMethodNonce != null) {
+                        paymentMethodsNonces.add(paymentMethodNonce);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (paymentMethodsNonces == null) {
+            throw new JSONException("No value for " + PAYMENT_METHOD_NONCE_COLLECTION_KEY);
+        }
+
+        return paymentMethodsNonces;
+    }
+
     /**
      * Parses a {@link PaymentMethodNonce} from json.
      *
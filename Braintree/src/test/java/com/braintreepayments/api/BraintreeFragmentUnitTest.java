@@ -69,6 +69,7 @@ import static junit.framework.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -150,6 +151,27 @@ public class BraintreeFragmentUnitTest {
         BraintreeFragment.newInstance(activity, TOKENIZATION_KEY);
     }
 
+    @Test
+    public void prefetchConfiguration_fetchesConfigurationForAuthorization() throws InvalidArgumentException {
+        mockStatic(ConfigurationManager.class);
+
+        BraintreeFragment.prefetchConfiguration(mActivity, TOKENIZATION_KEY);
+
+        verifyStatic();
+        ConfigurationManager.prefetchConfiguration(eq(mActivity.getApplicationContext()), any(Authorization.class),
+                any(BraintreeHttpClient.class), any(ConfigurationListener.class));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void prefetchConfiguration_throwsAnExceptionForABadTokenizationKey() throws InvalidArgumentException {
+        BraintreeFragment.prefetchConfiguration(mActivity, "test_key_merchant");
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void prefetchConfiguration_throwsAnExceptionWhenContextIsNull() throws InvalidArgumentException {
+        BraintreeFragment.prefetchConfiguration(null, TOKENIZATION_KEY);
+    }
+
     @Test
     public void onCreate_callsFetchConfiguration() throws InvalidArgumentException {
         mockStatic(ConfigurationManager.class);
@@ -161,6 +183,38 @@ public class BraintreeFragmentUnitTest {
                 any(BraintreeResponseListener.class));
     }
 
+    @Test
+    public void onDestroy_removesConfigurationListener() throws InvalidArgumentException {
+        mockStatic(ConfigurationManager.class);
+        BraintreeFragment fragment = BraintreeFragment.newInstance(mActivity, TOKENIZATION_KEY);
+        ArgumentCaptor<ConfigurationListener> listener = ArgumentCaptor.forClass(ConfigurationListener.class);
+        verifyStatic(times(2));
+        ConfigurationManager.getConfiguration(eq(fragment), listener.capture(), any(BraintreeResponseListener.class));
+
+        fragment.onDestroy();
+
+        verifyStatic();
+        ConfigurationManager.removeListener(listener.getValue());
+    }
+
+    @Test
+    public void preconnect_connectsOnlyOnceWhenConfigurationIsDeliveredAgain() throws InvalidArgumentException {
+        mockStatic(ConfigurationManager.class);
+        BraintreeFragment fragment = BraintreeFragment.newInstance(mActivity, TOKENIZATION_KEY);
+        ArgumentCaptor<ConfigurationListener> listener = ArgumentCaptor.forClass(ConfigurationListener.class);
+        verifyStatic(times(2));
+        ConfigurationManager.getConfiguration(eq(fragment), listener.capture(), any(BraintreeResponseListener.class));
+        BraintreeHttpClient httpClient = mock(BraintreeHttpClient.class);
+        fragment.mHttpClient = httpClient;
+        Configuration configuration = new TestConfigurationBuilder().buildConfiguration();
+
+        listener.getValue().onConfigurationFetched(configuration);
+        listener.getValue().onConfigurationFetched(configuration);
+        fragment.preconnect();
+
+        verify(httpClient, times(1)).preconnect("client_api_url");
+    }
+
     @Test
     public void onCreate_restoresConfigurationAndHttpClient() throws InvalidArgumentException, NoSuchFieldException,
             IllegalAccessException {
@@ -8,8 +8,10 @@ import com.braintreepayments.api.exceptions.InvalidArgumentException;
 import com.braintreepayments.api.exceptions.UnexpectedException;
 import com.braintreepayments.api.interfaces.BraintreeResponseListener;
 import com.braintreepayments.api.interfaces.ConfigurationListener;
-import com.braintreepayments.api.interfaces.HttpResponseCallback;
+import com.braintreepayments.api.interfaces.ConditionalHttpResponseCallback;
 import com.braintreepayments.api.internal.BraintreeHttpClient;
+import com.braintreepayments.api.internal.HttpCall;
+import com.braintreepayments.api.internal.HttpValidators;
 import com.braintreepayments.api.models.Authorization;
 import com.braintreepayments.api.models.ClientToken;
 import com.braintreepayments.api.models.Configuration;
@@ -21,7 +23,10 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.braintreepayments.testutils.FixturesHelper.stringFromFixture;
 import static com.braintreepayments.testutils.SharedPreferencesHelper.clearSharedPreferences;
@@ -44,7 +49,8 @@ public class ConfigurationManagerUnitTest {
     @Before
     public void setup() throws InvalidArgumentException {
         clearSharedPreferences(RuntimeEnvironment.application);
-        ConfigurationManager.sFetchingConfiguration = false;
+        ConfigurationManager.clearMemoryCache();
+        ConfigurationManager.clearInFlightFetches();
         mTokenizationKey = Authorization.fromString(TestTokenizationKey.TOKENIZATION_KEY);
 
         mCountDownLatch = new CountDownLatch(1);
@@ -57,20 +63,23 @@ public class ConfigurationManagerUnitTest {
 
     @Test
     public void isFetchingConfiguration_isFalseWhenNotFetchingConfiguration() {
-        assertFalse(ConfigurationManager.isFetchingConfiguration());
+        assertFalse(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
     }
 
     @Test
     public void isFetchingConfiguration_isTrueWhenFetchingConfiguration() throws InterruptedException {
         when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
             @Override
-            public void get(String path, HttpResponseCallback callback) {
-                mThreadPool.submit(new Runnable() {
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                mDispatcher.enqueue("", new Runnable() {
                     @Override
                     public void run() {
                         SystemClock.sleep(1000);
                     }
                 });
+
+                return null;
             }
         });
 
@@ -82,7 +91,7 @@ public class ConfigurationManagerUnitTest {
             public void onResponse(Exception e) {}
         });
 
-        assertTrue(ConfigurationManager.isFetchingConfiguration());
+        assertTrue(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
     }
 
     @Test(timeout = 1000)
@@ -92,7 +101,7 @@ public class ConfigurationManagerUnitTest {
         ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
             @Override
             public void onConfigurationFetched(Configuration configuration) {
-                assertFalse(ConfigurationManager.isFetchingConfiguration());
+                assertFalse(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
                 mCountDownLatch.countDown();
             }
         }, new BraintreeResponseListener<Exception>() {
@@ -109,10 +118,13 @@ public class ConfigurationManagerUnitTest {
     public void isFetchingConfiguration_isFalseInErrorCallback() throws InterruptedException {
         when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
             @Override
-            public void get(String path, HttpResponseCallback callback) {
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
                 if (path.contains(mTokenizationKey.getConfigUrl())) {
                     callback.failure(new UnexpectedException("Something bad happened"));
                 }
+
+                return null;
             }
         });
 
@@ -124,7 +136,7 @@ public class ConfigurationManagerUnitTest {
         }, new BraintreeResponseListener<Exception>() {
             @Override
             public void onResponse(Exception e) {
-                assertFalse(ConfigurationManager.isFetchingConfiguration());
+                assertFalse(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
                 mCountDownLatch.countDown();
             }
         });
@@ -154,10 +166,10 @@ public class ConfigurationManagerUnitTest {
     }
 
     @Test(timeout = 1000)
-    public void getConfiguration_getsConfigFromGatewayWhenTimeoutExpired() throws InterruptedException {
+    public void getConfiguration_getsConfigFromGatewayWhenMaxStalenessExceeded() throws InterruptedException {
         writeMockConfiguration(RuntimeEnvironment.application, mTokenizationKey.getConfigUrl(),
                 mTokenizationKey.toString(), stringFromFixture("configuration.json"),
-                System.currentTimeMillis() - (ConfigurationManager.TTL + 1));
+                System.currentTimeMillis() - (ConfigurationManager.MAX_STALENESS + 1));
         stubConfigurationFromGateway(stringFromFixture("configuration_with_analytics.json"));
 
         ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
@@ -177,6 +189,160 @@ public class ConfigurationManagerUnitTest {
         mCountDownLatch.await();
     }
 
+    @Test(timeout = 1000)
+    public void getConfiguration_returnsStaleConfigImmediatelyAndPushesRevalidatedConfig() {
+        writeMockConfiguration(RuntimeEnvironment.application, mTokenizationKey.getConfigUrl(),
+                mTokenizationKey.toString(), stringFromFixture("configuration.json"),
+                System.currentTimeMillis() - (ConfigurationManager.TTL + 1));
+        final ConditionalHttpResponseCallback[] revalidation = new ConditionalHttpResponseCallback[1];
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                revalidation[0] = callback;
+
+                return null;
+            }
+        });
+        final List<String> configurations = new ArrayList<>();
+
+        ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                configurations.add(configuration.toJson());
+            }
+        }, new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+
+        assertEquals(1, configurations.size());
+        assertEquals(stringFromFixture("configuration.json"), configurations.get(0));
+        assertTrue(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
+
+        revalidation[0].success(stringFromFixture("configuration_with_analytics.json"),
+                new HttpValidators(null, null));
+
+        assertEquals(2, configurations.size());
+        assertEquals(stringFromFixture("configuration_with_analytics.json"), configurations.get(1));
+        assertEquals(stringFromFixture("configuration_with_analytics.json"),
+                getSharedPreferences(RuntimeEnvironment.application).getString(configurationCacheKey(), ""));
+        assertFalse(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_pushesRevalidatedConfigOnceToListenerAskingRepeatedly() {
+        writeMockConfiguration(RuntimeEnvironment.application, mTokenizationKey.getConfigUrl(),
+                mTokenizationKey.toString(), stringFromFixture("configuration.json"),
+                System.currentTimeMillis() - (ConfigurationManager.TTL + 1));
+        final List<ConditionalHttpResponseCallback> revalidations = new ArrayList<>();
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                revalidations.add(callback);
+
+                return null;
+            }
+        });
+        final List<String> configurations = new ArrayList<>();
+        ConfigurationListener listener = new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                configurations.add(configuration.toJson());
+            }
+        };
+        BraintreeResponseListener<Exception> errorListener = new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                fail(e.getMessage());
+            }
+        };
+
+        ConfigurationManager.getConfiguration(mBraintreeFragment, listener, errorListener);
+        ConfigurationManager.getConfiguration(mBraintreeFragment, listener, errorListener);
+        ConfigurationManager.getConfiguration(mBraintreeFragment, listener, errorListener);
+        revalidations.get(0).success(stringFromFixture("configuration_with_analytics.json"),
+                new HttpValidators(null, null));
+
+        assertEquals(1, revalidations.size());
+        assertEquals(4, configurations.size());
+        assertEquals(stringFromFixture("configuration.json"), configurations.get(2));
+        assertEquals(stringFromFixture("configuration_with_analytics.json"), configurations.get(3));
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_doesNotPushRevalidatedConfigWhenUnchanged() {
+        writeMockConfiguration(RuntimeEnvironment.application, mTokenizationKey.getConfigUrl(),
+                mTokenizationKey.toString(), stringFromFixture("configuration.json"),
+                System.currentTimeMillis() - (ConfigurationManager.TTL + 1));
+        final String key = configurationCacheKey();
+        getSharedPreferences(RuntimeEnvironment.application).edit()
+                .putString(key + "_etag", "etag")
+                .commit();
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                callback.notModified(validators);
+
+                return null;
+            }
+        });
+        final List<String> configurations = new ArrayList<>();
+
+        ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                configurations.add(configuration.toJson());
+            }
+        }, new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+
+        assertEquals(1, configurations.size());
+        assertTrue(System.currentTimeMillis() -
+                getSharedPreferences(RuntimeEnvironment.application).getLong(key + "_timestamp", 0) < 1000);
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_doesNotCallErrorListenerWhenRevalidatingStaleConfigFails() {
+        writeMockConfiguration(RuntimeEnvironment.application, mTokenizationKey.getConfigUrl(),
+                mTokenizationKey.toString(), stringFromFixture("configuration.json"),
+                System.currentTimeMillis() - (ConfigurationManager.TTL + 1));
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                callback.failure(new UnexpectedException("Something bad happened"));
+
+                return null;
+            }
+        });
+        final List<String> configurations = new ArrayList<>();
+
+        ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                configurations.add(configuration.toJson());
+            }
+        }, new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                fail("Error listener should not have been called while a stale configuration is served");
+            }
+        });
+
+        assertEquals(1, configurations.size());
+        assertEquals(stringFromFixture("configuration.json"), configurations.get(0));
+        assertFalse(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
+    }
+
     @Test(timeout = 1000)
     public void getConfiguration_fetchesConfigFromGatewayWhenCacheIsEmpty() throws InterruptedException {
         stubConfigurationFromGateway(stringFromFixture("configuration_with_analytics.json"));
@@ -284,10 +450,13 @@ public class ConfigurationManagerUnitTest {
     public void getConfiguration_callsErrorListenerWhenHttpFails() throws InterruptedException {
         BraintreeHttpClient fakeClient = new BraintreeHttpClient(mTokenizationKey) {
             @Override
-            public void get(String path, HttpResponseCallback callback) {
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
                 if (path.contains(mTokenizationKey.getConfigUrl())) {
                     callback.failure(new UnexpectedException("Something bad happened"));
                 }
+
+                return null;
             }
         };
         when(mBraintreeFragment.getHttpClient()).thenReturn(fakeClient);
@@ -309,13 +478,539 @@ public class ConfigurationManagerUnitTest {
         mCountDownLatch.await();
     }
 
+    @Test(timeout = 1000)
+    public void getConfiguration_storesValidatorsFromGateway() throws InterruptedException {
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                callback.success(stringFromFixture("configuration.json"),
+                        new HttpValidators("etag", "last-modified"));
+
+                return null;
+            }
+        });
+
+        ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                String key = configurationCacheKey();
+                assertEquals("etag",
+                        getSharedPreferences(RuntimeEnvironment.application).getString(key + "_etag", null));
+                assertEquals("last-modified", getSharedPreferences(RuntimeEnvironment.application)
+                        .getString(key + "_last_modified", null));
+                mCountDownLatch.countDown();
+            }
+        }, new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+
+        mCountDownLatch.await();
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_revalidatesExpiredConfigWithValidatorsAndUsesCacheWhenNotModified()
+            throws InterruptedException {
+        writeMockConfiguration(RuntimeEnvironment.application, mTokenizationKey.getConfigUrl(),
+                mTokenizationKey.toString(), stringFromFixture("configuration.json"),
+                System.currentTimeMillis() - (ConfigurationManager.MAX_STALENESS + 1));
+        final String key = configurationCacheKey();
+        getSharedPreferences(RuntimeEnvironment.application).edit()
+                .putString(key + "_etag", "etag")
+                .commit();
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                assertEquals("etag", validators.getETag());
+                callback.notModified(validators);
+
+                return null;
+            }
+        });
+
+        ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                assertEquals(stringFromFixture("configuration.json"), configuration.toJson());
+                assertTrue(System.currentTimeMillis() -
+                        getSharedPreferences(RuntimeEnvironment.application).getLong(key + "_timestamp", 0) < 1000);
+                assertFalse(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
+                mCountDownLatch.countDown();
+            }
+        }, new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+
+        mCountDownLatch.await();
+    }
+
+    @Test(timeout = 1000)
+    public void prefetchConfiguration_fetchesAndCachesConfiguration() {
+        final ConditionalHttpResponseCallback[] fetch = new ConditionalHttpResponseCallback[1];
+        BraintreeHttpClient httpClient = new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                fetch[0] = callback;
+
+                return null;
+            }
+        };
+        final List<String> configurations = new ArrayList<>();
+
+        ConfigurationManager.prefetchConfiguration(RuntimeEnvironment.application, mTokenizationKey, httpClient,
+                new ConfigurationListener() {
+                    @Override
+                    public void onConfigurationFetched(Configuration configuration) {
+                        configurations.add(configuration.toJson());
+                    }
+                });
+
+        assertTrue(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
+
+        fetch[0].success(stringFromFixture("configuration.json"), new HttpValidators(null, null));
+
+        assertFalse(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
+        assertEquals(1, configurations.size());
+        assertEquals(stringFromFixture("configuration.json"),
+                getSharedPreferences(RuntimeEnvironment.application).getString(configurationCacheKey(), ""));
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_usesPrefetchedConfigurationWithoutFetching() throws InterruptedException {
+        ConfigurationManager.prefetchConfiguration(RuntimeEnvironment.application, mTokenizationKey,
+                new BraintreeHttpClient(mTokenizationKey) {
+                    @Override
+                    public HttpCall get(String path, int priority, HttpValidators validators,
+                            ConditionalHttpResponseCallback callback) {
+                        callback.success(stringFromFixture("configuration.json"), new HttpValidators(null, null));
+
+                        return null;
+                    }
+                }, new ConfigurationListener() {
+                    @Override
+                    public void onConfigurationFetched(Configuration configuration) {}
+                });
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                fail("Configuration should not have been fetched again");
+
+                return null;
+            }
+        });
+
+        ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                assertEquals(stringFromFixture("configuration.json"), configuration.toJson());
+                mCountDownLatch.countDown();
+            }
+        }, new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+
+        mCountDownLatch.await();
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_sharesOneFetchBetweenCallersAndCallsBackAllOfThem() {
+        final List<ConditionalHttpResponseCallback> fetches = new ArrayList<>();
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                fetches.add(callback);
+
+                return null;
+            }
+        });
+        final List<String> configurations = new ArrayList<>();
+        ConfigurationListener listener = new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                configurations.add(configuration.toJson());
+            }
+        };
+        BraintreeResponseListener<Exception> errorListener = new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                fail(e.getMessage());
+            }
+        };
+
+        ConfigurationManager.getConfiguration(mBraintreeFragment, listener, errorListener);
+        ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                configurations.add(configuration.toJson());
+            }
+        }, errorListener);
+        ConfigurationManager.getConfiguration(mBraintreeFragment, listener, errorListener);
+
+        assertEquals(1, fetches.size());
+
+        fetches.get(0).success(stringFromFixture("configuration.json"), new HttpValidators(null, null));
+
+        assertEquals(2, configurations.size());
+        assertFalse(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_callsAllCallersBackWhenSharedFetchFails() {
+        final List<ConditionalHttpResponseCallback> fetches = new ArrayList<>();
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                fetches.add(callback);
+
+                return null;
+            }
+        });
+        final AtomicInteger errors = new AtomicInteger(0);
+        for (int i = 0; i < 2; i++) {
+            ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+                @Override
+                public void onConfigurationFetched(Configuration configuration) {
+                    fail("Success listener should not have been called for bad request");
+                }
+            }, new BraintreeResponseListener<Exception>() {
+                @Override
+                public void onResponse(Exception e) {
+                    errors.incrementAndGet();
+                }
+            });
+        }
+
+        fetches.get(0).failure(new UnexpectedException("Something bad happened"));
+
+        assertEquals(1, fetches.size());
+        assertEquals(2, errors.get());
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_fetchesSeparatelyForEachAuthorization() throws InvalidArgumentException {
+        final List<String> paths = new ArrayList<>();
+        BraintreeHttpClient httpClient = new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                paths.add(path);
+
+                return null;
+            }
+        };
+        when(mBraintreeFragment.getHttpClient()).thenReturn(httpClient);
+        ClientToken clientToken = (ClientToken) Authorization.fromString(stringFromFixture("client_token.json"));
+        BraintreeFragment clientTokenFragment = mock(BraintreeFragment.class);
+        when(clientTokenFragment.getAuthorization()).thenReturn(clientToken);
+        when(clientTokenFragment.getApplicationContext()).thenReturn(RuntimeEnvironment.application);
+        when(clientTokenFragment.getHttpClient()).thenReturn(httpClient);
+        ConfigurationListener listener = new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {}
+        };
+        BraintreeResponseListener<Exception> errorListener = new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {}
+        };
+
+        ConfigurationManager.getConfiguration(mBraintreeFragment, listener, errorListener);
+        ConfigurationManager.getConfiguration(clientTokenFragment, listener, errorListener);
+
+        assertEquals(2, paths.size());
+        assertTrue(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
+        assertTrue(ConfigurationManager.isFetchingConfiguration(clientToken));
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_sendsFetchAgainWhenSharedRequestWasCancelled() {
+        final List<ConditionalHttpResponseCallback> fetches = new ArrayList<>();
+        final HttpCall cancelledCall = mock(HttpCall.class);
+        when(cancelledCall.isCancelled()).thenReturn(true);
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                fetches.add(callback);
+
+                return fetches.size() == 1 ? cancelledCall : null;
+            }
+        });
+        final List<String> configurations = new ArrayList<>();
+        BraintreeResponseListener<Exception> errorListener = new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                fail(e.getMessage());
+            }
+        };
+        ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                configurations.add(configuration.toJson());
+            }
+        }, errorListener);
+
+        assertFalse(ConfigurationManager.isFetchingConfiguration(mTokenizationKey));
+
+        ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                configurations.add(configuration.toJson());
+            }
+        }, errorListener);
+        fetches.get(1).success(stringFromFixture("configuration.json"), new HttpValidators(null, null));
+
+        assertEquals(2, fetches.size());
+        assertEquals(2, configurations.size());
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_doesNotCallBackDestroyedFragmentWhenItsCancelledFetchIsSentAgain() {
+        final HttpCall call = mock(HttpCall.class);
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                return call;
+            }
+        });
+        ConfigurationListener destroyedListener = new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                fail("Destroyed fragment should not have been called back");
+            }
+        };
+        ConfigurationManager.getConfiguration(mBraintreeFragment, destroyedListener,
+                new BraintreeResponseListener<Exception>() {
+                    @Override
+                    public void onResponse(Exception e) {
+                        fail("Destroyed fragment should not have been called back");
+                    }
+                });
+
+        ConfigurationManager.removeListener(destroyedListener);
+        when(call.isCancelled()).thenReturn(true);
+
+        final List<ConditionalHttpResponseCallback> fetches = new ArrayList<>();
+        BraintreeFragment fragment = mock(BraintreeFragment.class);
+        when(fragment.getAuthorization()).thenReturn(mTokenizationKey);
+        when(fragment.getApplicationContext()).thenReturn(RuntimeEnvironment.application);
+        when(fragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                fetches.add(callback);
+
+                return null;
+            }
+        });
+        final AtomicInteger configurations = new AtomicInteger(0);
+        ConfigurationManager.getConfiguration(fragment, new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                configurations.incrementAndGet();
+            }
+        }, new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+        fetches.get(0).success(stringFromFixture("configuration.json"), new HttpValidators(null, null));
+
+        assertEquals(1, fetches.size());
+        assertEquals(1, configurations.get());
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_doesNotCallBackDestroyedFragmentWhenSharedFetchCompletes() {
+        final List<ConditionalHttpResponseCallback> fetches = new ArrayList<>();
+        BraintreeHttpClient httpClient = new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                fetches.add(callback);
+
+                return null;
+            }
+        };
+        when(mBraintreeFragment.getHttpClient()).thenReturn(httpClient);
+        final AtomicInteger prefetches = new AtomicInteger(0);
+        ConfigurationManager.prefetchConfiguration(RuntimeEnvironment.application, mTokenizationKey, httpClient,
+                new ConfigurationListener() {
+                    @Override
+                    public void onConfigurationFetched(Configuration configuration) {
+                        prefetches.incrementAndGet();
+                    }
+                });
+        ConfigurationListener destroyedListener = new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                fail("Destroyed fragment should not have been called back");
+            }
+        };
+        ConfigurationManager.getConfiguration(mBraintreeFragment, destroyedListener,
+                new BraintreeResponseListener<Exception>() {
+                    @Override
+                    public void onResponse(Exception e) {
+                        fail("Destroyed fragment should not have been called back");
+                    }
+                });
+
+        ConfigurationManager.removeListener(destroyedListener);
+        fetches.get(0).success(stringFromFixture("configuration.json"), new HttpValidators(null, null));
+
+        assertEquals(1, fetches.size());
+        assertEquals(1, prefetches.get());
+    }
+
+    @Test(timeout = 5000)
+    public void getConfiguration_sendsOneFetchForConcurrentCallers() throws InterruptedException {
+        final AtomicInteger fetches = new AtomicInteger(0);
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                fetches.incrementAndGet();
+
+                return null;
+            }
+        });
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ignored) {}
+
+                    ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+                        @Override
+                        public void onConfigurationFetched(Configuration configuration) {}
+                    }, new BraintreeResponseListener<Exception>() {
+                        @Override
+                        public void onResponse(Exception e) {}
+                    });
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        start.countDown();
+        done.await();
+
+        assertEquals(1, fetches.get());
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_usesConfigurationFromMemoryWithoutReadingDisk() throws InterruptedException {
+        stubConfigurationFromGateway(stringFromFixture("configuration.json"));
+        ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {}
+        }, new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+        clearSharedPreferences(RuntimeEnvironment.application);
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                fail("Configuration should not have been fetched again");
+
+                return null;
+            }
+        });
+
+        ConfigurationManager.getConfiguration(mBraintreeFragment, new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                assertEquals(stringFromFixture("configuration.json"), configuration.toJson());
+                mCountDownLatch.countDown();
+            }
+        }, new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+
+        mCountDownLatch.await();
+    }
+
+    @Test(timeout = 1000)
+    public void getConfiguration_keepsDiskTimestampForConfigurationLoadedIntoMemory() {
+        writeMockConfiguration(RuntimeEnvironment.application, mTokenizationKey.getConfigUrl(),
+                mTokenizationKey.toString(), stringFromFixture("configuration.json"),
+                System.currentTimeMillis() - (ConfigurationManager.TTL + 1));
+        final AtomicInteger fetches = new AtomicInteger(0);
+        when(mBraintreeFragment.getHttpClient()).thenReturn(new BraintreeHttpClient(mTokenizationKey) {
+            @Override
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
+                fetches.incrementAndGet();
+
+                return null;
+            }
+        });
+        ConfigurationListener listener = new ConfigurationListener() {
+            @Override
+            public void onConfigurationFetched(Configuration configuration) {
+                assertEquals(stringFromFixture("configuration.json"), configuration.toJson());
+            }
+        };
+        BraintreeResponseListener<Exception> errorListener = new BraintreeResponseListener<Exception>() {
+            @Override
+            public void onResponse(Exception e) {}
+        };
+
+        ConfigurationManager.getConfiguration(mBraintreeFragment, listener, errorListener);
+        ConfigurationManager.clearInFlightFetches();
+        ConfigurationManager.getConfiguration(mBraintreeFragment, listener, errorListener);
+
+        assertEquals(2, fetches.get());
+    }
+
+    private String configurationCacheKey() {
+        return Base64.encodeToString(
+                Uri.parse(mTokenizationKey.getConfigUrl())
+                        .buildUpon()
+                        .appendQueryParameter("configVersion", "3")
+                        .build()
+                        .toString()
+                        .concat(mTokenizationKey.toString())
+                        .getBytes(),
+                0);
+    }
+
     private void stubConfigurationFromGateway(final String responseString) {
         BraintreeHttpClient fakeClient = new BraintreeHttpClient(mBraintreeFragment.getAuthorization()) {
             @Override
-            public void get(String path, HttpResponseCallback callback) {
+            public HttpCall get(String path, int priority, HttpValidators validators,
+                    ConditionalHttpResponseCallback callback) {
                 if (path.contains(mBraintreeFragment.getAuthorization().getConfigUrl())) {
-                    callback.success(responseString);
+                    callback.success(responseString, new HttpValidators(null, null));
                 }
+
+                return null;
             }
         };
         when(mBraintreeFragment.getHttpClient()).thenReturn(fakeClient);
@@ -1,9 +1,12 @@
 package com.braintreepayments.api;
 
 import android.content.Context;
+import android.util.JsonReader;
 
 import com.braintreepayments.api.interfaces.ConfigurationListener;
 import com.braintreepayments.api.interfaces.HttpResponseCallback;
+import com.braintreepayments.api.interfaces.ParsedHttpResponseCallback;
+import com.braintreepayments.api.interfaces.StreamingHttpResponseCallback;
 import com.braintreepayments.api.internal.BraintreeHttpClient;
 import com.braintreepayments.api.models.Authorization;
 import com.braintreepayments.api.models.Configuration;
@@ -14,7 +17,10 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.robolectric.RuntimeEnvironment;
 
+import java.io.StringReader;
+
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
@@ -107,6 +113,23 @@ public class MockFragmentBuilder {
                 return null;
             }
         }).when(httpClient).get(any(String.class), any(HttpResponseCallback.class));
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                StreamingHttpResponseCallback callback =
+                        (StreamingHttpResponseCallback) invocation.getArguments()[2];
+                Object result;
+                try {
+                    result = callback.parseResponse(new JsonReader(new StringReader(mSuccessResponse)));
+                } catch (Exception e) {
+                    callback.failure(e);
+                    return null;
+                }
+
+                callback.success(result);
+                return null;
+            }
+        }).when(httpClient).get(any(String.class), anyInt(), any(StreamingHttpResponseCallback.class));
         doAnswer(new Answer() {
             @Override
             public Object answer(InvocationOnMock invocation) throws Throwable {
@@ -114,6 +137,33 @@ public class MockFragmentBuilder {
                 return null;
             }
         }).when(httpClient).post(anyString(), anyString(), any(HttpResponseCallback.class));
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                parseSuccessResponse((ParsedHttpResponseCallback) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(httpClient).getParsed(anyString(), any(ParsedHttpResponseCallback.class));
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                parseSuccessResponse((ParsedHttpResponseCallback) invocation.getArguments()[2]);
+                return null;
+            }
+        }).when(httpClient).postParsed(anyString(), anyString(), any(ParsedHttpResponseCallback.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void parseSuccessResponse(ParsedHttpResponseCallback callback) {
+        Object result;
+        try {
+            result = callback.parseResponse(mSuccessResponse);
+        } catch (Exception e) {
+            callback.failure(e);
+            return;
+        }
+
+        callback.success(result);
     }
 
     private void setupErrorResponses(BraintreeHttpClient httpClient) {
@@ -124,6 +174,13 @@ public class MockFragmentBuilder {
                 return null;
             }
         }).when(httpClient).get(any(String.class), any(HttpResponseCallback.class));
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                ((StreamingHttpResponseCallback) invocation.getArguments()[2]).failure(mErrorResponse);
+                return null;
+            }
+        }).when(httpClient).get(any(String.class), anyInt(), any(StreamingHttpResponseCallback.class));
         doAnswer(new Answer() {
             @Override
             public Object answer(InvocationOnMock invocation) throws Throwable {
@@ -131,5 +188,19 @@ public class MockFragmentBuilder {
                 return null;
             }
         }).when(httpClient).post(anyString(), anyString(), any(HttpResponseCallback.class));
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                ((ParsedHttpResponseCallback) invocation.getArguments()[1]).failure(mErrorResponse);
+                return null;
+            }
+        }).when(httpClient).getParsed(anyString(), any(ParsedHttpResponseCallback.class));
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                ((ParsedHttpResponseCallback) invocation.getArguments()[2]).failure(mErrorResponse);
+                return null;
+            }
+        }).when(httpClient).postParsed(anyString(), anyString(), any(ParsedHttpResponseCallback.class));
     }
 }
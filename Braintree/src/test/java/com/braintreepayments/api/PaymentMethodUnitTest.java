@@ -2,7 +2,7 @@ package com.braintreepayments.api;
 
 import com.braintreepayments.api.exceptions.InvalidArgumentException;
 import com.braintreepayments.api.exceptions.UnexpectedException;
-import com.braintreepayments.api.interfaces.HttpResponseCallback;
+import com.braintreepayments.api.interfaces.StreamingHttpResponseCallback;
 import com.braintreepayments.api.models.AndroidPayCardNonce;
 import com.braintreepayments.api.models.CardNonce;
 import com.braintreepayments.api.models.PaymentMethodNonce;
@@ -19,6 +19,7 @@ import static com.braintreepayments.testutils.FixturesHelper.stringFromFixture;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -111,7 +112,8 @@ public class PaymentMethodUnitTest {
         PaymentMethod.getPaymentMethodNonces(fragment, true);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(fragment.getHttpClient()).get(captor.capture(), any(HttpResponseCallback.class));
+        verify(fragment.getHttpClient()).get(captor.capture(), anyInt(),
+                any(StreamingHttpResponseCallback.class));
 
         String requestUri = captor.getValue();
         assertTrue(requestUri.contains("default_first=true"));
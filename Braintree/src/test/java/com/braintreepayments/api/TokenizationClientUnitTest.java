@@ -1,6 +1,6 @@
 package com.braintreepayments.api;
 
-import com.braintreepayments.api.interfaces.HttpResponseCallback;
+import com.braintreepayments.api.interfaces.ParsedHttpResponseCallback;
 import com.braintreepayments.api.models.CardBuilder;
 
 import org.json.JSONException;
@@ -27,7 +27,8 @@ public class TokenizationClientUnitTest {
         TokenizationClient.tokenize(fragment, new CardBuilder(), null);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(fragment.getHttpClient()).post(anyString(), captor.capture(), any(HttpResponseCallback.class));
+        verify(fragment.getHttpClient()).postParsed(anyString(), captor.capture(),
+                any(ParsedHttpResponseCallback.class));
         JSONObject data = new JSONObject(captor.getValue()).getJSONObject("_meta");
         assertEquals("session-id", data.getString("sessionId"));
     }
@@ -6,6 +6,7 @@ import com.braintreepayments.api.exceptions.BraintreeException;
 import com.braintreepayments.api.exceptions.ConfigurationException;
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
 import com.braintreepayments.api.interfaces.HttpResponseCallback;
+import com.braintreepayments.api.interfaces.ParsedHttpResponseCallback;
 import com.braintreepayments.api.interfaces.PaymentMethodNonceCallback;
 import com.braintreepayments.api.internal.BraintreeHttpClient;
 import com.braintreepayments.api.models.CardNonce;
@@ -36,7 +37,7 @@ import static junit.framework.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.doAnswer;
@@ -100,14 +101,14 @@ public class UnionPayUnitTest {
                 .validate(true);
 
         BraintreeHttpClient httpClient = mock(BraintreeHttpClient.class);
-        doNothing().when(httpClient).get(anyString(), any(HttpResponseCallback.class));
+        doReturn(null).when(httpClient).get(anyString(), any(HttpResponseCallback.class));
         when(mBraintreeFragment.getHttpClient()).thenReturn(httpClient);
         ArgumentCaptor<String> argumentCaptor = ArgumentCaptor.forClass(String.class);
 
         UnionPay.tokenize(mBraintreeFragment, unionPayCardBuilder);
 
-        verify(httpClient).post(eq("/v1/payment_methods/credit_cards"), argumentCaptor.capture(),
-                any(HttpResponseCallback.class));
+        verify(httpClient).postParsed(eq("/v1/payment_methods/credit_cards"), argumentCaptor.capture(),
+                any(ParsedHttpResponseCallback.class));
 
         JSONObject tokenizePayload = new JSONObject(argumentCaptor.getValue());
         JSONObject creditCardPayload = tokenizePayload.getJSONObject("creditCard");
@@ -135,14 +136,14 @@ public class UnionPayUnitTest {
                 .validate(true);
 
         BraintreeHttpClient httpClient = mock(BraintreeHttpClient.class);
-        doNothing().when(httpClient).get(anyString(), any(HttpResponseCallback.class));
+        doReturn(null).when(httpClient).get(anyString(), any(HttpResponseCallback.class));
         when(mBraintreeFragment.getHttpClient()).thenReturn(httpClient);
         ArgumentCaptor<String> argumentCaptor = ArgumentCaptor.forClass(String.class);
 
         UnionPay.tokenize(mBraintreeFragment, unionPayCardBuilder);
 
-        verify(httpClient).post(eq("/v1/payment_methods/credit_cards"), argumentCaptor.capture(),
-                any(HttpResponseCallback.class));
+        verify(httpClient).postParsed(eq("/v1/payment_methods/credit_cards"), argumentCaptor.capture(),
+                any(ParsedHttpResponseCallback.class));
 
         JSONObject tokenizePayload = new JSONObject(argumentCaptor.getValue());
         JSONObject creditCardPayload = tokenizePayload.getJSONObject("creditCard");
@@ -234,7 +235,7 @@ public class UnionPayUnitTest {
                 .cvv("123");
 
         BraintreeHttpClient httpClient = mock(BraintreeHttpClient.class);
-        doNothing().when(httpClient).get(anyString(), any(HttpResponseCallback.class));
+        doReturn(null).when(httpClient).get(anyString(), any(HttpResponseCallback.class));
         when(mBraintreeFragment.getHttpClient()).thenReturn(httpClient);
         ArgumentCaptor<String> argumentCaptor = ArgumentCaptor.forClass(String.class);
 
@@ -259,7 +260,7 @@ public class UnionPayUnitTest {
                 .mobilePhoneNumber("mobilePhoneNumber");
 
         BraintreeHttpClient httpClient = mock(BraintreeHttpClient.class);
-        doNothing().when(httpClient).get(anyString(), any(HttpResponseCallback.class));
+        doReturn(null).when(httpClient).get(anyString(), any(HttpResponseCallback.class));
         when(mBraintreeFragment.getHttpClient()).thenReturn(httpClient);
         ArgumentCaptor<String> argumentCaptor = ArgumentCaptor.forClass(String.class);
 
@@ -284,7 +285,7 @@ public class UnionPayUnitTest {
                 .build();
 
         BraintreeHttpClient httpClient = mock(BraintreeHttpClient.class);
-        doNothing().when(httpClient).get(anyString(), any(HttpResponseCallback.class));
+        doReturn(null).when(httpClient).get(anyString(), any(HttpResponseCallback.class));
 
         when(fragment.getHttpClient()).thenReturn(httpClient);
 
@@ -296,7 +297,7 @@ public class UnionPayUnitTest {
                 .build()
                 .toString();
 
-        verify(httpClient).get(eq(expectedUrl), any(HttpResponseCallback.class));
+        verify(httpClient).getParsed(eq(expectedUrl), any(ParsedHttpResponseCallback.class));
     }
 
     @Test
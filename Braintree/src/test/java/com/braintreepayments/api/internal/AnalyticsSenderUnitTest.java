@@ -32,6 +32,7 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -72,7 +73,7 @@ public class AnalyticsSenderUnitTest {
         AnalyticsSender.send(RuntimeEnvironment.application, mAuthorization, mHttpClient, "", true);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(mHttpClient).post(anyString(), captor.capture());
+        verify(mHttpClient).post(anyString(), captor.capture(), eq(HttpClient.PRIORITY_BACKGROUND));
 
         JSONObject object = new JSONObject(captor.getValue());
         JSONObject meta = object.getJSONObject("_meta");
@@ -109,7 +110,7 @@ public class AnalyticsSenderUnitTest {
         AnalyticsSender.send(RuntimeEnvironment.application, mAuthorization, mHttpClient, "", true);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(mHttpClient).post(anyString(), captor.capture());
+        verify(mHttpClient).post(anyString(), captor.capture(), eq(HttpClient.PRIORITY_BACKGROUND));
 
         JSONObject analyticsJson = new JSONObject(captor.getValue());
         JSONArray array = analyticsJson.getJSONArray("analytics");
@@ -132,7 +133,7 @@ public class AnalyticsSenderUnitTest {
         AnalyticsSender.send(RuntimeEnvironment.application, mAuthorization, mHttpClient, "", true);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(mHttpClient, times(2)).post(anyString(), captor.capture());
+        verify(mHttpClient, times(2)).post(anyString(), captor.capture(), eq(HttpClient.PRIORITY_BACKGROUND));
 
         List<String> values = captor.getAllValues();
         assertEquals(2, values.size());
@@ -160,7 +161,7 @@ public class AnalyticsSenderUnitTest {
         database.addEvent(one);
         database.addEvent(two);
 
-        when(mHttpClient.post(anyString(), anyString())).thenReturn("");
+        when(mHttpClient.post(anyString(), anyString(), eq(HttpClient.PRIORITY_BACKGROUND))).thenReturn("");
 
         AnalyticsSender.send(RuntimeEnvironment.application, mAuthorization, mHttpClient, "", true);
 
@@ -179,10 +180,11 @@ public class AnalyticsSenderUnitTest {
         doAnswer(new Answer() {
             @Override
             public Object answer(InvocationOnMock invocation) throws Throwable {
-                ((HttpResponseCallback) invocation.getArguments()[2]).success("");
+                ((HttpResponseCallback) invocation.getArguments()[3]).success("");
                 return null;
             }
-        }).when(mHttpClient).post(anyString(), anyString(), any(HttpResponseCallback.class));
+        }).when(mHttpClient).post(anyString(), anyString(), eq(HttpClient.PRIORITY_BACKGROUND),
+                any(HttpResponseCallback.class));
 
         AnalyticsSender.send(RuntimeEnvironment.application, mAuthorization, mHttpClient, "", false);
 
@@ -198,7 +200,8 @@ public class AnalyticsSenderUnitTest {
         database.addEvent(one);
         database.addEvent(two);
 
-        when(mHttpClient.post(anyString(), anyString())).thenThrow(ServerException.class);
+        when(mHttpClient.post(anyString(), anyString(), eq(HttpClient.PRIORITY_BACKGROUND)))
+                .thenThrow(ServerException.class);
 
         AnalyticsSender.send(RuntimeEnvironment.application, mAuthorization, mHttpClient, "", true);
 
@@ -217,10 +220,11 @@ public class AnalyticsSenderUnitTest {
         doAnswer(new Answer() {
             @Override
             public Object answer(InvocationOnMock invocation) throws Throwable {
-                ((HttpResponseCallback) invocation.getArguments()[2]).failure(new ServerException(""));
+                ((HttpResponseCallback) invocation.getArguments()[3]).failure(new ServerException(""));
                 return null;
             }
-        }).when(mHttpClient).post(anyString(), anyString(), any(HttpResponseCallback.class));
+        }).when(mHttpClient).post(anyString(), anyString(), eq(HttpClient.PRIORITY_BACKGROUND),
+                any(HttpResponseCallback.class));
 
         AnalyticsSender.send(RuntimeEnvironment.application, mAuthorization, mHttpClient, "", false);
 
@@ -8,10 +8,12 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
 import static com.braintreepayments.testutils.FixturesHelper.stringFromFixture;
+import static com.braintreepayments.testutils.ReflectionHelper.getField;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
@@ -189,4 +191,72 @@ public class ConfigurationUnitTest {
 
         assertFalse(configuration.getVisaCheckout().isEnabled());
     }
+
+    @Test
+    public void fromJson_doesNotParsePaymentMethodConfigurationUntilRequested() throws JSONException,
+            NoSuchFieldException, IllegalAccessException {
+        Configuration configuration = Configuration.fromJson(stringFromFixture("configuration_with_analytics.json"));
+
+        assertNull(getField(Configuration.class, "mPayPalConfiguration", configuration));
+        assertNull(getField(Configuration.class, "mCardConfiguration", configuration));
+        assertNotNull(configuration.getPayPal());
+        assertNotNull(getField(Configuration.class, "mPayPalConfiguration", configuration));
+        assertNull(getField(Configuration.class, "mCardConfiguration", configuration));
+    }
+
+    @Test
+    public void fromJson_coercesTopLevelValuesToStrings() throws JSONException {
+        Configuration configuration = Configuration.fromJson("{\"clientApiUrl\":null,\"environment\":1," +
+                "\"merchantId\":true,\"merchantAccountId\":null,\"challenges\":[null,\"cvv\"]}");
+
+        assertEquals("null", configuration.getClientApiUrl());
+        assertEquals("1", configuration.getEnvironment());
+        assertEquals("true", configuration.getMerchantId());
+        assertNull(configuration.getMerchantAccountId());
+        assertTrue(configuration.isCvvChallengePresent());
+    }
+
+    @Test
+    public void fromJson_usesLastOfDuplicateKeys() throws JSONException {
+        Configuration configuration = Configuration.fromJson("{\"clientApiUrl\":\"first\"," +
+                "\"environment\":\"test\",\"merchantId\":\"merchant_id\",\"clientApiUrl\":\"second\"," +
+                "\"challenges\":[\"cvv\"],\"challenges\":[\"postal_code\"]," +
+                "\"paypal\":{\"clientId\":\"first\"},\"paypal\":{\"clientId\":\"second\"}}");
+
+        assertEquals("second", configuration.getClientApiUrl());
+        assertFalse(configuration.isCvvChallengePresent());
+        assertTrue(configuration.isPostalCodeChallengePresent());
+        assertEquals("second", configuration.getPayPal().getClientId());
+    }
+
+    @Test(expected = JSONException.class)
+    public void fromJson_throwsForTruncatedJson() throws JSONException {
+        String configuration = stringFromFixture("configuration_with_analytics.json");
+
+        Configuration.fromJson(configuration.substring(0, configuration.length() / 2));
+    }
+
+    @Test
+    public void returnsDefaultPaymentMethodConfigurationWhenSectionIsNotAnObject() throws JSONException {
+        Configuration configuration = Configuration.fromJson("{\"clientApiUrl\":\"client_api_url\"," +
+                "\"environment\":\"test\",\"merchantId\":\"merchant_id\",\"paypalEnabled\":true," +
+                "\"paypal\":\"enabled\"}");
+
+        assertNotNull(configuration.getPayPal());
+        assertFalse(configuration.isPayPalEnabled());
+    }
+
+    @Test
+    public void returnsSamePaymentMethodConfigurationOnEveryCall() throws JSONException {
+        Configuration configuration =
+                Configuration.fromJson(stringFromFixture("configuration/with_visa_checkout.json"));
+
+        assertSame(configuration.getPayPal(), configuration.getPayPal());
+        assertSame(configuration.getAndroidPay(), configuration.getAndroidPay());
+        assertSame(configuration.getPayWithVenmo(), configuration.getPayWithVenmo());
+        assertSame(configuration.getKount(), configuration.getKount());
+        assertSame(configuration.getUnionPay(), configuration.getUnionPay());
+        assertSame(configuration.getVisaCheckout(), configuration.getVisaCheckout());
+        assertSame(configuration.getCardConfiguration(), configuration.getCardConfiguration());
+    }
 }
@@ -1,11 +1,15 @@
 package com.braintreepayments.api.models;
 
+import android.util.JsonReader;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.List;
 
 import static com.braintreepayments.api.models.PaymentMethodNonce.parsePaymentMethodNonces;
@@ -125,4 +129,25 @@ public class PaymentMethodNonceUnitTest {
         assertTrue(paymentMethodNonce instanceof AndroidPayCardNonce);
         assertEquals("11", ((AndroidPayCardNonce) paymentMethodNonce).getLastTwo());
     }
+
+    @Test
+    public void parsePaymentMethods_parsesFromJsonReader() throws JSONException, IOException {
+        JsonReader reader = new JsonReader(
+                new StringReader(stringFromFixture("payment_methods/get_payment_methods_response.json")));
+
+        List<PaymentMethodNonce> paymentMethodNonces = parsePaymentMethodNonces(reader);
+
+        assertEquals(parsePaymentMethodNonces(stringFromFixture("payment_methods/get_payment_methods_response.json"))
+                .size(), paymentMethodNonces.size());
+        assertTrue(paymentMethodNonces.get(0) instanceof CardNonce);
+        assertEquals("123456-12345-12345-a-adfa", paymentMethodNonces.get(0).getNonce());
+        assertTrue(paymentMethodNonces.get(1) instanceof PayPalAccountNonce);
+        assertTrue(paymentMethodNonces.get(2) instanceof AndroidPayCardNonce);
+    }
+
+    @Test(expected = JSONException.class)
+    public void parsePaymentMethods_fromJsonReaderThrowsWhenPaymentMethodsAreMissing()
+            throws JSONException, IOException {
+        parsePaymentMethodNonces(new JsonReader(new StringReader("{\"other\": []}")));
+    }
 }
@@ -0,0 +1,205 @@
+package com.braintreepayments.api.internal;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(AndroidJUnit4.class)
+public class AdaptiveTimeoutsTest {
+
+    private static final String URL = "https://example.com/v1/configuration";
+    private static final String OPERATION = "configuration";
+    private static final int DEFAULT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
+
+    @Test(timeout = 1000)
+    public void usesDefaultTimeoutsUntilEnoughSamplesAreMeasured() {
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(null);
+
+        for (int i = 1; i < AdaptiveTimeouts.MIN_SAMPLES; i++) {
+            adaptiveTimeouts.onConnect(URL, TimeUnit.MILLISECONDS.toNanos(100));
+            adaptiveTimeouts.onResponse(URL, OPERATION, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+
+        assertEquals(DEFAULT_TIMEOUT, adaptiveTimeouts.getConnectTimeout(URL, DEFAULT_TIMEOUT));
+        assertEquals(DEFAULT_TIMEOUT, adaptiveTimeouts.getReadTimeout(URL, OPERATION, DEFAULT_TIMEOUT, true));
+    }
+
+    @Test(timeout = 1000)
+    public void shortensTimeoutsToMinimumOnFastNetwork() {
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(null);
+
+        measureConnects(adaptiveTimeouts, URL, 100);
+        measureResponses(adaptiveTimeouts, URL, OPERATION, 100);
+
+        assertEquals(AdaptiveTimeouts.MIN_CONNECT_TIMEOUT_MILLIS,
+                adaptiveTimeouts.getConnectTimeout(URL, DEFAULT_TIMEOUT));
+        assertEquals(AdaptiveTimeouts.MIN_READ_TIMEOUT_MILLIS,
+                adaptiveTimeouts.getReadTimeout(URL, OPERATION, DEFAULT_TIMEOUT, true));
+    }
+
+    @Test(timeout = 1000)
+    public void extendsTimeoutsBeyondDefaultOnSlowNetwork() {
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(null);
+
+        measureResponses(adaptiveTimeouts, URL, OPERATION, 10000);
+
+        int timeout = adaptiveTimeouts.getReadTimeout(URL, OPERATION, DEFAULT_TIMEOUT, false);
+        assertTrue(timeout > DEFAULT_TIMEOUT);
+        assertTrue(timeout <= AdaptiveTimeouts.MAX_TIMEOUT_MILLIS);
+    }
+
+    @Test(timeout = 1000)
+    public void neverShortensReadTimeoutBelowConfiguredTimeoutForRequestsThatAreNotIdempotent() {
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(null);
+
+        measureResponses(adaptiveTimeouts, URL, OPERATION, 100);
+
+        assertEquals(DEFAULT_TIMEOUT, adaptiveTimeouts.getReadTimeout(URL, OPERATION, DEFAULT_TIMEOUT, false));
+    }
+
+    @Test(timeout = 1000)
+    public void derivesConnectTimeoutOnlyFromConnectTimes() {
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(null);
+
+        measureResponses(adaptiveTimeouts, URL, OPERATION, 100);
+
+        assertEquals(DEFAULT_TIMEOUT, adaptiveTimeouts.getConnectTimeout(URL, DEFAULT_TIMEOUT));
+    }
+
+    @Test(timeout = 1000)
+    public void ignoresConnectTimesOfPooledConnections() {
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(null);
+
+        for (int i = 0; i < AdaptiveTimeouts.MIN_SAMPLES; i++) {
+            adaptiveTimeouts.onConnect(URL, TimeUnit.MICROSECONDS.toNanos(50));
+        }
+
+        assertEquals(DEFAULT_TIMEOUT, adaptiveTimeouts.getConnectTimeout(URL, DEFAULT_TIMEOUT));
+    }
+
+    @Test(timeout = 1000)
+    public void timeoutDoublesEstimates() {
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(null);
+        measureConnects(adaptiveTimeouts, URL, 2000);
+        measureResponses(adaptiveTimeouts, URL, OPERATION, 2000);
+        int connectTimeout = adaptiveTimeouts.getConnectTimeout(URL, DEFAULT_TIMEOUT);
+        int readTimeout = adaptiveTimeouts.getReadTimeout(URL, OPERATION, DEFAULT_TIMEOUT, true);
+
+        adaptiveTimeouts.onTimeout(URL, OPERATION);
+
+        assertTrue(adaptiveTimeouts.getConnectTimeout(URL, DEFAULT_TIMEOUT) > connectTimeout);
+        assertTrue(adaptiveTimeouts.getReadTimeout(URL, OPERATION, DEFAULT_TIMEOUT, true) > readTimeout);
+    }
+
+    @Test(timeout = 1000)
+    public void keepsSeparateReadEstimatesPerOperation() {
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(null);
+
+        measureResponses(adaptiveTimeouts, URL, OPERATION, 100);
+
+        assertEquals(DEFAULT_TIMEOUT, adaptiveTimeouts.getReadTimeout("https://example.com/v1/payment_methods",
+                "tokenize", DEFAULT_TIMEOUT, true));
+    }
+
+    @Test(timeout = 1000)
+    public void sharesConnectEstimatesBetweenOperationsOnHost() {
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(null);
+
+        measureConnects(adaptiveTimeouts, URL, 100);
+
+        assertEquals(AdaptiveTimeouts.MIN_CONNECT_TIMEOUT_MILLIS,
+                adaptiveTimeouts.getConnectTimeout("https://example.com/v1/payment_methods", DEFAULT_TIMEOUT));
+    }
+
+    @Test(timeout = 1000)
+    public void keepsSeparateEstimatesPerHost() {
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(null);
+
+        measureConnects(adaptiveTimeouts, URL, 100);
+        measureResponses(adaptiveTimeouts, URL, OPERATION, 100);
+
+        assertEquals(DEFAULT_TIMEOUT, adaptiveTimeouts.getConnectTimeout("https://other.example.com/",
+                DEFAULT_TIMEOUT));
+        assertEquals(DEFAULT_TIMEOUT, adaptiveTimeouts.getReadTimeout("https://other.example.com/", OPERATION,
+                DEFAULT_TIMEOUT, true));
+    }
+
+    @Test(timeout = 1000)
+    public void keepsSeparateEstimatesPerNetworkType() {
+        AdaptiveTimeouts adaptiveTimeouts = spy(new AdaptiveTimeouts(null));
+        doReturn("WIFI").when(adaptiveTimeouts).getNetworkType();
+        measureConnects(adaptiveTimeouts, URL, 100);
+        measureResponses(adaptiveTimeouts, URL, OPERATION, 100);
+
+        doReturn("MOBILE/EDGE").when(adaptiveTimeouts).getNetworkType();
+
+        assertEquals(DEFAULT_TIMEOUT, adaptiveTimeouts.getConnectTimeout(URL, DEFAULT_TIMEOUT));
+        assertEquals(DEFAULT_TIMEOUT, adaptiveTimeouts.getReadTimeout(URL, OPERATION, DEFAULT_TIMEOUT, true));
+    }
+
+    @Test(timeout = 1000)
+    public void neverShortensTimeoutsBelowConfiguredTimeoutWhenItIsBelowMinimum() {
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(null);
+
+        measureResponses(adaptiveTimeouts, URL, OPERATION, 10);
+
+        assertEquals(1000, adaptiveTimeouts.getReadTimeout(URL, OPERATION, 1000, true));
+    }
+
+    @Test(timeout = 1000)
+    public void looksUpNetworkTypeAgainOnlyAfterNetworkChanges() {
+        NetworkInfo networkInfo = mock(NetworkInfo.class);
+        when(networkInfo.getType()).thenReturn(ConnectivityManager.TYPE_WIFI);
+        when(networkInfo.getTypeName()).thenReturn("WIFI");
+        ConnectivityManager connectivityManager = mock(ConnectivityManager.class);
+        when(connectivityManager.getActiveNetworkInfo()).thenReturn(networkInfo);
+        Context context = mock(Context.class);
+        when(context.getSystemService(Context.CONNECTIVITY_SERVICE)).thenReturn(connectivityManager);
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(context);
+        ArgumentCaptor<BroadcastReceiver> receiver = ArgumentCaptor.forClass(BroadcastReceiver.class);
+        verify(context).registerReceiver(receiver.capture(), any(IntentFilter.class));
+
+        assertEquals("WIFI", adaptiveTimeouts.getNetworkType());
+        assertEquals("WIFI", adaptiveTimeouts.getNetworkType());
+        verify(connectivityManager, times(1)).getActiveNetworkInfo();
+
+        when(networkInfo.getTypeName()).thenReturn("ETHERNET");
+        receiver.getValue().onReceive(context, new Intent(ConnectivityManager.CONNECTIVITY_ACTION));
+
+        assertEquals("ETHERNET", adaptiveTimeouts.getNetworkType());
+        verify(connectivityManager, times(2)).getActiveNetworkInfo();
+    }
+
+    private void measureConnects(AdaptiveTimeouts adaptiveTimeouts, String url, long connectMillis) {
+        for (int i = 0; i < AdaptiveTimeouts.MIN_SAMPLES; i++) {
+            adaptiveTimeouts.onConnect(url, TimeUnit.MILLISECONDS.toNanos(connectMillis));
+        }
+    }
+
+    private void measureResponses(AdaptiveTimeouts adaptiveTimeouts, String url, String operation,
+            long timeToFirstByteMillis) {
+        for (int i = 0; i < AdaptiveTimeouts.MIN_SAMPLES; i++) {
+            adaptiveTimeouts.onResponse(url, operation, TimeUnit.MILLISECONDS.toNanos(timeToFirstByteMillis));
+        }
+    }
+}
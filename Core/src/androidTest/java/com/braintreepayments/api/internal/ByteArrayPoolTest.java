@@ -0,0 +1,77 @@
+package com.braintreepayments.api.internal;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class ByteArrayPoolTest {
+
+    @Test(timeout = 1000)
+    public void acquire_allocatesBufferOfAtLeastRequestedSize() {
+        ByteArrayPool pool = new ByteArrayPool(1024);
+
+        assertTrue(pool.acquire(100).length >= 100);
+    }
+
+    @Test(timeout = 1000)
+    public void acquire_reusesReleasedBuffer() {
+        ByteArrayPool pool = new ByteArrayPool(1024);
+        byte[] buffer = pool.acquire(100);
+
+        pool.release(buffer);
+
+        assertSame(buffer, pool.acquire(50));
+        assertEquals(0, pool.getPoolBytes());
+    }
+
+    @Test(timeout = 1000)
+    public void acquire_returnsSmallestBufferThatIsLargeEnough() {
+        ByteArrayPool pool = new ByteArrayPool(1024);
+        byte[] small = new byte[10];
+        byte[] medium = new byte[100];
+        byte[] large = new byte[200];
+        pool.release(large);
+        pool.release(small);
+        pool.release(medium);
+
+        assertSame(medium, pool.acquire(50));
+    }
+
+    @Test(timeout = 1000)
+    public void acquire_doesNotReuseBuffersThatAreTooSmall() {
+        ByteArrayPool pool = new ByteArrayPool(1024);
+        byte[] buffer = new byte[10];
+        pool.release(buffer);
+
+        assertNotSame(buffer, pool.acquire(20));
+        assertEquals(10, pool.getPoolBytes());
+    }
+
+    @Test(timeout = 1000)
+    public void release_discardsLeastRecentlyReleasedBuffersOnceFull() {
+        ByteArrayPool pool = new ByteArrayPool(250);
+        byte[] oldest = new byte[100];
+        pool.release(oldest);
+        pool.release(new byte[100]);
+        pool.release(new byte[100]);
+
+        assertEquals(200, pool.getPoolBytes());
+        assertNotSame(oldest, pool.acquire(100));
+    }
+
+    @Test(timeout = 1000)
+    public void release_doesNotPoolLargeBuffers() {
+        ByteArrayPool pool = new ByteArrayPool(Integer.MAX_VALUE);
+
+        pool.release(new byte[ByteArrayPool.MAX_BUFFER_BYTES + 1]);
+
+        assertEquals(0, pool.getPoolBytes());
+    }
+}
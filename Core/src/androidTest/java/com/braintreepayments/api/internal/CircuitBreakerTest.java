@@ -0,0 +1,180 @@
+package com.braintreepayments.api.internal;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.MalformedJsonException;
+
+import com.braintreepayments.api.exceptions.AuthorizationException;
+import com.braintreepayments.api.exceptions.CircuitBreakerOpenException;
+import com.braintreepayments.api.exceptions.ServerException;
+import com.braintreepayments.api.interfaces.CircuitBreakerListener;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(AndroidJUnit4.class)
+public class CircuitBreakerTest {
+
+    private static final String URL = "https://example.com/v1/configuration";
+
+    @Test(timeout = 1000)
+    public void opensAfterConsecutiveFailures() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker()
+                .failureThreshold(2);
+
+        circuitBreaker.acquire(URL);
+        circuitBreaker.onFailure(URL, new SocketTimeoutException());
+        assertEquals(CircuitBreaker.STATE_CLOSED, circuitBreaker.getState(URL));
+
+        circuitBreaker.acquire(URL);
+        circuitBreaker.onFailure(URL, new ServerException(""));
+        assertEquals(CircuitBreaker.STATE_OPEN, circuitBreaker.getState(URL));
+
+        try {
+            circuitBreaker.acquire(URL);
+            fail("Expected circuit to be open");
+        } catch (CircuitBreakerOpenException ignored) {}
+    }
+
+    @Test(timeout = 1000)
+    public void successResetsConsecutiveFailures() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker()
+                .failureThreshold(2);
+
+        circuitBreaker.onFailure(URL, new SocketTimeoutException());
+        circuitBreaker.onSuccess(URL);
+        circuitBreaker.onFailure(URL, new SocketTimeoutException());
+
+        assertEquals(CircuitBreaker.STATE_CLOSED, circuitBreaker.getState(URL));
+    }
+
+    @Test(timeout = 1000)
+    public void clientErrorsDoNotCountAsFailures() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker()
+                .failureThreshold(1);
+
+        circuitBreaker.onFailure(URL, new AuthorizationException(""));
+
+        assertEquals(CircuitBreaker.STATE_CLOSED, circuitBreaker.getState(URL));
+    }
+
+    @Test(timeout = 1000)
+    public void unparseableResponsesDoNotCountAsFailures() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker()
+                .failureThreshold(1);
+
+        circuitBreaker.onFailure(URL, new MalformedJsonException("Unterminated object"));
+
+        assertEquals(CircuitBreaker.STATE_CLOSED, circuitBreaker.getState(URL));
+    }
+
+    @Test(timeout = 1000)
+    public void connectivityFailuresDoNotCountAsFailures() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker()
+                .failureThreshold(1);
+
+        circuitBreaker.onFailure(URL, new UnknownHostException());
+        circuitBreaker.onFailure(URL, new ConnectException());
+        circuitBreaker.onFailure(URL, new NoRouteToHostException());
+
+        assertEquals(CircuitBreaker.STATE_CLOSED, circuitBreaker.getState(URL));
+    }
+
+    @Test(timeout = 1000)
+    public void connectivityFailuresDoNotCloseOpenCircuit() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker()
+                .failureThreshold(1);
+        circuitBreaker.onFailure(URL, new SocketTimeoutException());
+
+        circuitBreaker.onFailure(URL, new UnknownHostException());
+
+        assertEquals(CircuitBreaker.STATE_OPEN, circuitBreaker.getState(URL));
+    }
+
+    @Test(timeout = 1000)
+    public void keepsSeparateCircuitsPerEndpoint() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker()
+                .failureThreshold(1);
+
+        circuitBreaker.onFailure(URL, new SocketTimeoutException());
+
+        assertEquals(CircuitBreaker.STATE_OPEN, circuitBreaker.getState(URL));
+        assertEquals(CircuitBreaker.STATE_OPEN, circuitBreaker.getState(URL + "?configVersion=3"));
+        assertEquals(CircuitBreaker.STATE_CLOSED, circuitBreaker.getState("https://example.com/v1/payment_methods"));
+        assertEquals(CircuitBreaker.STATE_CLOSED,
+                circuitBreaker.getState("https://analytics.example.com/v1/configuration"));
+    }
+
+    @Test(timeout = 1000)
+    public void halfOpensAfterOpenDurationAndLimitsProbes() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker()
+                .failureThreshold(1)
+                .openDuration(50)
+                .halfOpenProbes(1);
+        circuitBreaker.onFailure(URL, new SocketTimeoutException());
+
+        Thread.sleep(100);
+        circuitBreaker.acquire(URL);
+        assertEquals(CircuitBreaker.STATE_HALF_OPEN, circuitBreaker.getState(URL));
+
+        try {
+            circuitBreaker.acquire(URL);
+            fail("Expected only one probe to be let through");
+        } catch (CircuitBreakerOpenException ignored) {}
+
+        circuitBreaker.release(URL);
+        circuitBreaker.acquire(URL);
+    }
+
+    @Test(timeout = 1000)
+    public void closesWhenProbeSucceedsAndReopensWhenProbeFails() throws Exception {
+        CircuitBreakerListener listener = mock(CircuitBreakerListener.class);
+        CircuitBreaker circuitBreaker = new CircuitBreaker()
+                .failureThreshold(1)
+                .openDuration(50)
+                .listener(listener);
+
+        circuitBreaker.onFailure(URL, new SocketTimeoutException());
+        Thread.sleep(100);
+        circuitBreaker.acquire(URL);
+        circuitBreaker.onFailure(URL, new SocketTimeoutException());
+        assertEquals(CircuitBreaker.STATE_OPEN, circuitBreaker.getState(URL));
+
+        Thread.sleep(100);
+        circuitBreaker.acquire(URL);
+        circuitBreaker.onSuccess(URL);
+        assertEquals(CircuitBreaker.STATE_CLOSED, circuitBreaker.getState(URL));
+
+        String endpoint = "example.com/v1/configuration";
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).onStateChanged(endpoint, CircuitBreaker.STATE_CLOSED, CircuitBreaker.STATE_OPEN);
+        inOrder.verify(listener).onStateChanged(endpoint, CircuitBreaker.STATE_OPEN, CircuitBreaker.STATE_HALF_OPEN);
+        inOrder.verify(listener).onStateChanged(endpoint, CircuitBreaker.STATE_HALF_OPEN, CircuitBreaker.STATE_OPEN);
+        inOrder.verify(listener).onStateChanged(endpoint, CircuitBreaker.STATE_OPEN, CircuitBreaker.STATE_HALF_OPEN);
+        inOrder.verify(listener).onStateChanged(endpoint, CircuitBreaker.STATE_HALF_OPEN, CircuitBreaker.STATE_CLOSED);
+    }
+
+    @Test(timeout = 1000)
+    public void doesNotReportFailuresBelowThreshold() throws Exception {
+        CircuitBreakerListener listener = mock(CircuitBreakerListener.class);
+        CircuitBreaker circuitBreaker = new CircuitBreaker()
+                .failureThreshold(2)
+                .listener(listener);
+
+        circuitBreaker.onFailure(URL, new SocketTimeoutException());
+        circuitBreaker.onSuccess(URL);
+
+        verifyZeroInteractions(listener);
+    }
+}
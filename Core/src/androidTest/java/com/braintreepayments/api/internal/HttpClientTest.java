@@ -6,16 +6,21 @@ import android.support.test.runner.AndroidJUnit4;
 import com.braintreepayments.api.core.BuildConfig;
 import com.braintreepayments.api.exceptions.AuthenticationException;
 import com.braintreepayments.api.exceptions.AuthorizationException;
+import com.braintreepayments.api.exceptions.CircuitBreakerOpenException;
 import com.braintreepayments.api.exceptions.DownForMaintenanceException;
 import com.braintreepayments.api.exceptions.RateLimitException;
 import com.braintreepayments.api.exceptions.ServerException;
 import com.braintreepayments.api.exceptions.UnexpectedException;
 import com.braintreepayments.api.exceptions.UnprocessableEntityException;
 import com.braintreepayments.api.exceptions.UpgradeRequiredException;
+import com.braintreepayments.api.interfaces.HttpEventListener;
 import com.braintreepayments.api.interfaces.HttpResponseCallback;
+import com.braintreepayments.api.interfaces.ParsedHttpResponseCallback;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -26,8 +31,14 @@ import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLException;
@@ -35,14 +46,22 @@ import javax.net.ssl.SSLSocketFactory;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(AndroidJUnit4.class)
@@ -76,6 +95,15 @@ public class HttpClientTest {
         assertTrue(sslSocketFactory.get(httpClient) instanceof TLSSocketFactory);
     }
 
+    @Test(timeout = 1000)
+    public void sharesDefaultSSLSocketFactoryBetweenClients() throws Exception {
+        Field sslSocketFactory = HttpClient.class.getDeclaredField("mSSLSocketFactory");
+        sslSocketFactory.setAccessible(true);
+
+        assertSame(TLSSocketFactory.getInstance(), sslSocketFactory.get(new HttpClient()));
+        assertSame(sslSocketFactory.get(new HttpClient()), sslSocketFactory.get(new HttpClient()));
+    }
+
     @Test(timeout = 1000)
     public void postsErrorForHttpsRequestsWhenSSLSocketFactoryIsNull() throws IOException, InterruptedException {
         HttpClient httpClient = new HttpClient()
@@ -377,6 +405,834 @@ public class HttpClientTest {
         assertEquals(data, output.toString());
     }
 
+    @Test(timeout = 1000)
+    public void post_disconnectsConnectionByDefault() throws Exception {
+        HttpURLConnection connection = connectionWithExpectedResponse(200, "");
+        HttpClient httpClient = spy(new HttpClient());
+        doReturn(connection).when(httpClient).init(anyString());
+
+        httpClient.post("http://example.com/", "{}");
+
+        verify(connection).disconnect();
+    }
+
+    @Test(timeout = 1000)
+    public void post_doesNotDisconnectWhenConnectionReuseIsEnabled() throws Exception {
+        HttpURLConnection connection = connectionWithExpectedResponse(200, "");
+        HttpClient httpClient = spy(new HttpClient().setConnectionReuseEnabled(true));
+        doReturn(connection).when(httpClient).init(anyString());
+
+        httpClient.post("http://example.com/", "{}");
+
+        verify(connection, never()).disconnect();
+    }
+
+    @Test(timeout = 1000)
+    public void post_doesNotDisconnectOnErrorResponseWhenConnectionReuseIsEnabled() throws Exception {
+        HttpURLConnection connection = connectionWithExpectedResponse(422, "");
+        HttpClient httpClient = spy(new HttpClient().setConnectionReuseEnabled(true));
+        doReturn(connection).when(httpClient).init(anyString());
+
+        try {
+            httpClient.post("http://example.com/", "{}");
+            fail("Expected an exception");
+        } catch (UnprocessableEntityException ignored) {}
+
+        verify(connection, never()).disconnect();
+    }
+
+    @Test(timeout = 1000)
+    public void post_disconnectsOnIOExceptionWhenConnectionReuseIsEnabled() throws Exception {
+        HttpURLConnection connection = connectionWithExpectedResponse(200, "");
+        when(connection.getInputStream()).thenThrow(new IOException());
+        HttpClient httpClient = spy(new HttpClient().setConnectionReuseEnabled(true));
+        doReturn(connection).when(httpClient).init(anyString());
+
+        try {
+            httpClient.post("http://example.com/", "{}");
+            fail("Expected an exception");
+        } catch (IOException ignored) {}
+
+        verify(connection).disconnect();
+    }
+
+    @Test(timeout = 1000)
+    public void post_sendsRequestThroughTransportWhenSet() throws Exception {
+        final HttpTransportRequest[] sentRequest = new HttpTransportRequest[1];
+        HttpClient httpClient = new HttpClient()
+                .setConnectTimeout(1000)
+                .setTransport(new HttpTransport() {
+                    @Override
+                    public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+                        sentRequest[0] = request;
+                        return new HttpTransportResponse(200, new HashMap<String, String>(),
+                                streamFromString("response"));
+                    }
+                });
+
+        String response = httpClient.post("http://example.com/", "{}");
+
+        assertEquals("response", response);
+        assertEquals("POST", sentRequest[0].getMethod());
+        assertEquals("http://example.com/", sentRequest[0].getUrl());
+        assertEquals("{}", new String(sentRequest[0].getBody(), "UTF-8"));
+        assertEquals(1000, sentRequest[0].getConnectTimeout());
+        assertEquals("application/json", sentRequest[0].getHeaders().get("Content-Type"));
+        assertEquals("gzip", sentRequest[0].getHeaders().get("Accept-Encoding"));
+        assertEquals("braintree/core/" + BuildConfig.VERSION_NAME, sentRequest[0].getHeaders().get("User-Agent"));
+    }
+
+    @Test(timeout = 1000)
+    public void postsErrorsFromTransport() throws Exception {
+        HttpClient httpClient = new HttpClient()
+                .setTransport(new HttpTransport() {
+                    @Override
+                    public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+                        return new HttpTransportResponse(422, new HashMap<String, String>(),
+                                streamFromString("There was an error"));
+                    }
+                });
+
+        assertExceptionIsPosted(httpClient, UnprocessableEntityException.class, "There was an error");
+    }
+
+    @Test(timeout = 1000)
+    public void post_retriesRejectedRequestsUsingRetryPolicy() throws Exception {
+        final int[] attempts = new int[1];
+        HttpClient httpClient = new HttpClient()
+                .setRetryPolicy(new RetryPolicy()
+                        .initialBackoff(10)
+                        .retryBudget(new RetryBudget(0.1, 10)))
+                .setTransport(new HttpTransport() {
+                    @Override
+                    public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+                        attempts[0]++;
+                        if (attempts[0] == 1) {
+                            return new HttpTransportResponse(503, new HashMap<String, String>(),
+                                    streamFromString(""));
+                        }
+
+                        return new HttpTransportResponse(200, new HashMap<String, String>(),
+                                streamFromString("response"));
+                    }
+                });
+
+        assertEquals("response", httpClient.post("http://example.com/", "{}"));
+        assertEquals(2, attempts[0]);
+    }
+
+    @Test(timeout = 3000)
+    public void post_retriesAsynchronousRequestsAfterDelay() throws Exception {
+        final int[] attempts = new int[1];
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+        HttpClient httpClient = new HttpClient()
+                .setRetryPolicy(new RetryPolicy()
+                        .retryBudget(new RetryBudget(0.1, 10)))
+                .setTransport(new HttpTransport() {
+                    @Override
+                    public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+                        attempts[0]++;
+                        if (attempts[0] == 1) {
+                            HashMap<String, String> headers = new HashMap<>();
+                            headers.put("Retry-After", "1");
+                            return new HttpTransportResponse(503, headers, streamFromString(""));
+                        }
+
+                        return new HttpTransportResponse(200, new HashMap<String, String>(),
+                                streamFromString("response"));
+                    }
+                });
+
+        httpClient.post("http://example.com/", "{}", new HttpResponseCallback() {
+            @Override
+            public void success(String responseBody) {
+                assertEquals("response", responseBody);
+                countDownLatch.countDown();
+            }
+
+            @Override
+            public void failure(Exception exception) {
+                fail("Request failed");
+            }
+        });
+
+        countDownLatch.await();
+        assertEquals(2, attempts[0]);
+    }
+
+    @Test(timeout = 5000)
+    public void cancel_stopsRequestWaitingToBeRetried() throws Exception {
+        final int[] attempts = new int[1];
+        final CountDownLatch attemptLatch = new CountDownLatch(1);
+        HttpClient httpClient = new HttpClient()
+                .setRetryPolicy(new RetryPolicy()
+                        .retryBudget(new RetryBudget(0.1, 10)))
+                .setTransport(new HttpTransport() {
+                    @Override
+                    public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+                        attempts[0]++;
+                        attemptLatch.countDown();
+                        HashMap<String, String> headers = new HashMap<>();
+                        headers.put("Retry-After", "1");
+                        return new HttpTransportResponse(503, headers, streamFromString(""));
+                    }
+                });
+
+        HttpCall call = httpClient.post("http://example.com/", "{}", new HttpResponseCallback() {
+            @Override
+            public void success(String responseBody) {
+                fail("Request was successful");
+            }
+
+            @Override
+            public void failure(Exception exception) {
+                fail("Callback of a cancelled request was invoked");
+            }
+        });
+        attemptLatch.await();
+        Thread.sleep(100);
+
+        assertTrue(httpClient.mDispatcher.getDelayedCallCount() > 0);
+        call.cancel();
+        Thread.sleep(1500);
+
+        assertEquals(1, attempts[0]);
+    }
+
+    @Test(timeout = 1000)
+    public void post_doesNotRetryByDefault() throws Exception {
+        HttpURLConnection connection = connectionWithExpectedResponse(503, "");
+        HttpClient httpClient = spy(new HttpClient());
+        doReturn(connection).when(httpClient).init(anyString());
+
+        try {
+            httpClient.post("http://example.com/", "{}");
+            fail("Expected an exception");
+        } catch (DownForMaintenanceException ignored) {}
+
+        verify(httpClient).init(anyString());
+    }
+
+    @Test(timeout = 1000)
+    public void get_coalescesIdenticalInFlightRequestsWhenEnabled() throws Exception {
+        final CountDownLatch requestLatch = new CountDownLatch(1);
+        final CountDownLatch responseLatch = new CountDownLatch(2);
+        final int[] requests = new int[1];
+        HttpClient httpClient = new HttpClient()
+                .setRequestCoalescingEnabled(true)
+                .setTransport(new HttpTransport() {
+                    @Override
+                    public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+                        requests[0]++;
+                        try {
+                            requestLatch.await();
+                        } catch (InterruptedException ignored) {}
+
+                        return new HttpTransportResponse(200, new HashMap<String, String>(),
+                                streamFromString("response"));
+                    }
+                });
+        HttpResponseCallback callback = new HttpResponseCallback() {
+            @Override
+            public void success(String responseBody) {
+                assertEquals("response", responseBody);
+                responseLatch.countDown();
+            }
+
+            @Override
+            public void failure(Exception exception) {
+                fail(exception.getMessage());
+            }
+        };
+
+        httpClient.get("http://example.com/coalesced", callback);
+        httpClient.get("http://example.com/coalesced", callback);
+        requestLatch.countDown();
+
+        responseLatch.await();
+        assertEquals(1, requests[0]);
+    }
+
+    @Test(timeout = 1000)
+    public void get_coalescesRequestsWithSameHeadersInDifferentOrder() throws Exception {
+        final CountDownLatch requestLatch = new CountDownLatch(1);
+        final CountDownLatch responseLatch = new CountDownLatch(2);
+        final int[] requests = new int[1];
+        HttpTransport transport = new HttpTransport() {
+            @Override
+            public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+                requests[0]++;
+                try {
+                    requestLatch.await();
+                } catch (InterruptedException ignored) {}
+
+                return new HttpTransportResponse(200, new HashMap<String, String>(), streamFromString("response"));
+            }
+        };
+        HttpClient httpClient = new HttpClient() {
+            @Override
+            protected Map<String, String> getHeaders() {
+                Map<String, String> headers = new LinkedHashMap<>();
+                headers.put("Accept", "application/json");
+                headers.put("Authorization", "Bearer token");
+                return headers;
+            }
+        }.setRequestCoalescingEnabled(true).setTransport(transport);
+        HttpClient reorderedHttpClient = new HttpClient() {
+            @Override
+            protected Map<String, String> getHeaders() {
+                Map<String, String> headers = new LinkedHashMap<>();
+                headers.put("Authorization", "Bearer token");
+                headers.put("Accept", "application/json");
+                return headers;
+            }
+        }.setRequestCoalescingEnabled(true).setTransport(transport);
+        HttpResponseCallback callback = new HttpResponseCallback() {
+            @Override
+            public void success(String responseBody) {
+                assertEquals("response", responseBody);
+                responseLatch.countDown();
+            }
+
+            @Override
+            public void failure(Exception exception) {
+                fail(exception.getMessage());
+            }
+        };
+
+        httpClient.get("http://example.com/reordered-headers", callback);
+        reorderedHttpClient.get("http://example.com/reordered-headers", callback);
+        requestLatch.countDown();
+
+        responseLatch.await();
+        assertEquals(1, requests[0]);
+    }
+
+    @Test(timeout = 1000)
+    public void post_reportsCallMetricsToEventListener() throws Exception {
+        HttpURLConnection connection = connectionWithExpectedResponse(200, "response");
+        final HttpCallMetrics[] reported = new HttpCallMetrics[1];
+        HttpClient httpClient = spy(new HttpClient()
+                .setEventListener(new HttpEventListener() {
+                    @Override
+                    public void onCallFinished(HttpCallMetrics metrics) {
+                        reported[0] = metrics;
+                    }
+                }));
+        doReturn(connection).when(httpClient).init(anyString());
+
+        httpClient.post("http://example.com/tokenize", "{}");
+
+        assertEquals("/tokenize", reported[0].getOperation());
+        assertEquals("POST", reported[0].getMethod());
+        assertEquals(200, reported[0].getResponseCode());
+        assertEquals(1, reported[0].getAttempts());
+        assertNull(reported[0].getException());
+        assertTrue(reported[0].getConnectMillis() >= 0);
+        assertTrue(reported[0].getRequestWriteMillis() >= 0);
+        assertTrue(reported[0].getTimeToFirstByteMillis() >= 0);
+        assertTrue(reported[0].getBodyReadMillis() >= 0);
+        assertEquals(-1, reported[0].getCallbackDispatchMillis());
+    }
+
+    @Test(timeout = 1000)
+    public void get_reportsCallMetricsToEventListenerAfterCallback() throws Exception {
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+        final boolean[] callbackRun = new boolean[1];
+        HttpClient httpClient = clientWithExpectedResponse(422, "error")
+                .setEventListener(new HttpEventListener() {
+                    @Override
+                    public void onCallFinished(HttpCallMetrics metrics) {
+                        assertTrue(callbackRun[0]);
+                        assertEquals("GET", metrics.getMethod());
+                        assertEquals(422, metrics.getResponseCode());
+                        assertTrue(metrics.getException() instanceof UnprocessableEntityException);
+                        assertTrue(metrics.getQueueMillis() >= 0);
+                        assertTrue(metrics.getCallbackDispatchMillis() >= 0);
+                        countDownLatch.countDown();
+                    }
+                });
+
+        httpClient.get("http://example.com/", new HttpResponseCallback() {
+            @Override
+            public void success(String responseBody) {
+                fail("Request was successful");
+            }
+
+            @Override
+            public void failure(Exception exception) {
+                callbackRun[0] = true;
+            }
+        });
+
+        countDownLatch.await();
+    }
+
+    @Test(timeout = 1000)
+    public void cancel_disconnectsInFlightRequestAndDropsCallback() throws Exception {
+        final CountDownLatch connectedLatch = new CountDownLatch(1);
+        final CountDownLatch disconnectedLatch = new CountDownLatch(1);
+        final CountDownLatch finishedLatch = new CountDownLatch(1);
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(connection.getResponseCode()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                connectedLatch.countDown();
+                disconnectedLatch.await();
+                throw new IOException("Socket closed");
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                disconnectedLatch.countDown();
+                return null;
+            }
+        }).when(connection).disconnect();
+        HttpClient httpClient = spy(new HttpClient()
+                .setEventListener(new HttpEventListener() {
+                    @Override
+                    public void onCallFinished(HttpCallMetrics metrics) {
+                        finishedLatch.countDown();
+                    }
+                }));
+        doReturn(connection).when(httpClient).init(anyString());
+
+        HttpCall call = httpClient.get("http://example.com/", new HttpResponseCallback() {
+            @Override
+            public void success(String responseBody) {
+                fail("Callback of a cancelled call was invoked");
+            }
+
+            @Override
+            public void failure(Exception exception) {
+                fail("Callback of a cancelled call was invoked");
+            }
+        });
+        connectedLatch.await();
+        call.cancel();
+
+        finishedLatch.await();
+        assertTrue(call.isCancelled());
+        assertTrue(call.isFinished());
+    }
+
+    @Test(timeout = 1000)
+    public void get_deliversCallbackOnCallbackExecutor() throws Exception {
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+        HttpClient httpClient = clientWithExpectedResponse(200, "response")
+                .setCallbackExecutor(Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        return new Thread(runnable, "callback-executor");
+                    }
+                }));
+
+        httpClient.get("http://example.com/", new HttpResponseCallback() {
+            @Override
+            public void success(String responseBody) {
+                assertEquals("response", responseBody);
+                assertEquals("callback-executor", Thread.currentThread().getName());
+                countDownLatch.countDown();
+            }
+
+            @Override
+            public void failure(Exception exception) {
+                fail(exception.getMessage());
+            }
+        });
+
+        countDownLatch.await();
+    }
+
+    @Test(timeout = 1000)
+    public void post_parsesResponseOffTheMainThreadAndDeliversResultOnTheMainThread() throws Exception {
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+        HttpClient httpClient = clientWithExpectedResponse(200, "response");
+
+        httpClient.postParsed("http://example.com/", "{}", new ParsedHttpResponseCallback<Integer>() {
+            @Override
+            public Integer parseResponse(String responseBody) {
+                assertFalse(Looper.getMainLooper() == Looper.myLooper());
+                return responseBody.length();
+            }
+
+            @Override
+            public void success(Integer response) {
+                assertEquals(Looper.getMainLooper(), Looper.myLooper());
+                assertEquals(8, (int) response);
+                countDownLatch.countDown();
+            }
+
+            @Override
+            public void failure(Exception exception) {
+                fail(exception.getMessage());
+            }
+        });
+
+        countDownLatch.await();
+    }
+
+    @Test(timeout = 1000)
+    public void preconnect_connectsToHostWithoutSendingRequest() throws Exception {
+        HttpURLConnection connection = connectionWithExpectedResponse(404, "");
+        HttpClient httpClient = spy(new HttpClient());
+        doReturn(connection).when(httpClient).init(anyString());
+
+        HttpCall call = httpClient.preconnect("http://example.com/");
+
+        verify(connection, timeout(500)).connect();
+        verify(connection, timeout(500)).disconnect();
+        verify(connection, never()).setRequestMethod(anyString());
+        verify(connection, never()).getResponseCode();
+        verify(connection, never()).getOutputStream();
+        assertNull(call.getMetrics());
+    }
+
+    @Test(timeout = 1000)
+    public void preconnect_isNotReportedToEventListener() throws Exception {
+        HttpURLConnection connection = connectionWithExpectedResponse(200, "");
+        HttpEventListener eventListener = mock(HttpEventListener.class);
+        HttpClient httpClient = spy(new HttpClient()
+                .setEventListener(eventListener));
+        doReturn(connection).when(httpClient).init(anyString());
+
+        HttpCall call = httpClient.preconnect("http://example.com/");
+
+        verify(connection, timeout(500)).disconnect();
+        Thread.sleep(100);
+        assertTrue(call.isFinished());
+        verifyZeroInteractions(eventListener);
+    }
+
+    @Test(timeout = 1000)
+    public void preconnect_doesNothingWhenTransportIsSet() throws Exception {
+        HttpClient httpClient = spy(new HttpClient()
+                .setTransport(mock(HttpTransport.class)));
+
+        assertTrue(httpClient.preconnect("http://example.com/").isFinished());
+
+        Thread.sleep(100);
+        verify(httpClient, never()).init(anyString());
+    }
+
+    @Test(timeout = 1000)
+    public void post_gzipsRequestBodyAtOrAboveCompressionThresholdOnceEndpointAdvertisesGzip() throws Exception {
+        String url = "http://example.com/compression/threshold";
+        String body = "{\"events\":[\"event\",\"event\",\"event\"]}";
+        HttpURLConnection advertisingConnection = connectionAcceptingGzip();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        HttpURLConnection connection = connectionWithExpectedResponse(200, "");
+        when(connection.getOutputStream()).thenReturn(outputStream);
+        HttpClient httpClient = spy(new HttpClient()
+                .setRequestCompressionThreshold(body.length()));
+        doReturn(advertisingConnection).doReturn(connection).when(httpClient).init(anyString());
+
+        httpClient.post(url, body);
+        httpClient.post(url, body);
+
+        verify(advertisingConnection, never()).setRequestProperty("Content-Encoding", "gzip");
+        verify(connection).setRequestProperty("Content-Encoding", "gzip");
+        GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int count; (count = inputStream.read(buffer)) != -1; ) {
+            decompressed.write(buffer, 0, count);
+        }
+        assertEquals(body, decompressed.toString("UTF-8"));
+    }
+
+    @Test(timeout = 1000)
+    public void post_doesNotGzipRequestBodyBelowCompressionThreshold() throws Exception {
+        String url = "http://example.com/compression/below-threshold";
+        String body = "{\"events\":[]}";
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        HttpURLConnection connection = connectionAcceptingGzip();
+        when(connection.getOutputStream()).thenReturn(outputStream);
+        HttpClient httpClient = spy(new HttpClient()
+                .setRequestCompressionThreshold(body.length() + 1));
+        doReturn(connection).when(httpClient).init(anyString());
+
+        httpClient.post(url, body);
+        outputStream.reset();
+        httpClient.post(url, body);
+
+        verify(connection, never()).setRequestProperty("Content-Encoding", "gzip");
+        assertEquals(body, outputStream.toString("UTF-8"));
+    }
+
+    @Test(timeout = 1000)
+    public void post_doesNotGzipRequestBodyByDefault() throws Exception {
+        String url = "http://example.com/compression/default";
+        HttpURLConnection connection = connectionAcceptingGzip();
+        HttpClient httpClient = spy(new HttpClient());
+        doReturn(connection).when(httpClient).init(anyString());
+
+        httpClient.post(url, "{\"events\":[]}");
+        httpClient.post(url, "{\"events\":[]}");
+
+        verify(connection, never()).setRequestProperty("Content-Encoding", "gzip");
+    }
+
+    @Test(timeout = 1000)
+    public void post_doesNotGzipRequestBodyForEndpointsThatDoNotAdvertiseGzip() throws Exception {
+        String url = "http://example.com/compression/not-advertised";
+        HttpURLConnection connection = connectionWithExpectedResponse(200, "");
+        when(connection.getHeaderField("Accept-Encoding")).thenReturn("identity");
+        HttpClient httpClient = spy(new HttpClient()
+                .setRequestCompressionThreshold(0));
+        doReturn(connection).when(httpClient).init(anyString());
+
+        httpClient.post(url, "{\"events\":[]}");
+        httpClient.post(url, "{\"events\":[]}");
+
+        verify(connection, never()).setRequestProperty("Content-Encoding", "gzip");
+    }
+
+    @Test(timeout = 1000)
+    public void post_resendsRequestUncompressedWhenEndpointRespondsWithUnsupportedMediaType() throws Exception {
+        assertResendsRequestUncompressedWhenEndpointRejectsCompressedBody(
+                "http://example.com/compression/unsupported-media-type", 415);
+    }
+
+    @Test(timeout = 1000)
+    public void post_resendsIdempotentRequestUncompressedWhenEndpointRespondsWithBadRequest() throws Exception {
+        HttpClient httpClient = new HttpClient()
+                .setRetryPolicy(new RetryPolicy() {
+                    @Override
+                    public boolean isIdempotent(String method, String url) {
+                        return true;
+                    }
+                });
+
+        assertResendsRequestUncompressedWhenEndpointRejectsCompressedBody(httpClient,
+                "http://example.com/compression/bad-request-idempotent", 400);
+    }
+
+    @Test(timeout = 1000)
+    public void post_stopsCompressingWithoutResendingRequestWhenEndpointRespondsWithBadRequest() throws Exception {
+        String url = "http://example.com/compression/bad-request";
+        HttpURLConnection advertisingConnection = connectionAcceptingGzip();
+        HttpURLConnection rejectedConnection = connectionWithExpectedResponse(400, "");
+        HttpURLConnection connection = connectionAcceptingGzip();
+        HttpClient httpClient = spy(new HttpClient()
+                .setRequestCompressionThreshold(0));
+        doReturn(advertisingConnection).doReturn(rejectedConnection).doReturn(connection)
+                .when(httpClient).init(anyString());
+
+        httpClient.post(url, "{\"events\":[]}");
+        try {
+            httpClient.post(url, "{\"events\":[]}");
+            fail("Expected UnexpectedException");
+        } catch (UnexpectedException ignored) {}
+        verify(httpClient, times(2)).init(anyString());
+
+        httpClient.post(url, "{\"events\":[]}");
+
+        verify(rejectedConnection).setRequestProperty("Content-Encoding", "gzip");
+        verify(connection, never()).setRequestProperty("Content-Encoding", "gzip");
+    }
+
+    @Test(timeout = 1000)
+    public void post_keepsCompressingWhenEndpointRespondsWithBadRequestAndJsonError() throws Exception {
+        String url = "http://example.com/compression/bad-request-json-error";
+        HttpURLConnection advertisingConnection = connectionAcceptingGzip();
+        HttpURLConnection errorConnection = connectionWithExpectedResponse(400,
+                "{\"error\":{\"message\":\"Invalid event\"}}");
+        HttpURLConnection connection = connectionAcceptingGzip();
+        HttpClient httpClient = spy(new HttpClient()
+                .setRequestCompressionThreshold(0));
+        doReturn(advertisingConnection).doReturn(errorConnection).doReturn(connection)
+                .when(httpClient).init(anyString());
+
+        httpClient.post(url, "{\"events\":[]}");
+        try {
+            httpClient.post(url, "{\"events\":[]}");
+            fail("Expected UnexpectedException");
+        } catch (UnexpectedException ignored) {}
+        httpClient.post(url, "{\"events\":[]}");
+
+        verify(httpClient, times(3)).init(anyString());
+        verify(errorConnection).setRequestProperty("Content-Encoding", "gzip");
+        verify(connection).setRequestProperty("Content-Encoding", "gzip");
+    }
+
+    @Test(timeout = 1000)
+    public void post_doesNotGzipRequestBodyFromOtherClientsAfterEndpointRejectsCompressedBody() throws Exception {
+        String url = "http://example.com/compression/rejected-process-wide";
+        assertResendsRequestUncompressedWhenEndpointRejectsCompressedBody(url, 415);
+        HttpURLConnection connection = connectionAcceptingGzip();
+        HttpClient httpClient = spy(new HttpClient()
+                .setRequestCompressionThreshold(0));
+        doReturn(connection).when(httpClient).init(anyString());
+
+        httpClient.post(url, "{\"events\":[]}");
+
+        verify(connection, never()).setRequestProperty("Content-Encoding", "gzip");
+    }
+
+    @Test(timeout = 1000)
+    public void post_doesNotGzipRequestBodyForEndpointsThatDoNotSupportIt() throws Exception {
+        String url = "http://example.com/compression/not-supported";
+        HttpURLConnection connection = connectionAcceptingGzip();
+        HttpClient httpClient = spy(new HttpClient() {
+            @Override
+            protected boolean isRequestCompressionSupported(String url) {
+                return false;
+            }
+        }.setRequestCompressionThreshold(0));
+        doReturn(connection).when(httpClient).init(anyString());
+
+        httpClient.post(url, "{\"events\":[]}");
+        httpClient.post(url, "{\"events\":[]}");
+
+        verify(connection, never()).setRequestProperty("Content-Encoding", "gzip");
+    }
+
+    private void assertResendsRequestUncompressedWhenEndpointRejectsCompressedBody(String url, int responseCode)
+            throws Exception {
+        assertResendsRequestUncompressedWhenEndpointRejectsCompressedBody(new HttpClient(), url, responseCode);
+    }
+
+    private void assertResendsRequestUncompressedWhenEndpointRejectsCompressedBody(HttpClient client, String url,
+            int responseCode) throws Exception {
+        String body = "{\"events\":[]}";
+        HttpURLConnection advertisingConnection = connectionAcceptingGzip();
+        HttpURLConnection rejectedConnection = connectionWithExpectedResponse(responseCode, "");
+        HttpURLConnection connection = connectionAcceptingGzip();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(connection.getOutputStream()).thenReturn(outputStream);
+        HttpClient httpClient = spy(client
+                .setRequestCompressionThreshold(0));
+        doReturn(advertisingConnection).doReturn(rejectedConnection).doReturn(connection)
+                .when(httpClient).init(anyString());
+
+        httpClient.post(url, body);
+        assertEquals("ok", httpClient.post(url, body));
+
+        verify(rejectedConnection).setRequestProperty("Content-Encoding", "gzip");
+        verify(connection, never()).setRequestProperty("Content-Encoding", "gzip");
+        assertEquals(body, outputStream.toString("UTF-8"));
+    }
+
+    @Test(timeout = 1000)
+    public void failsFastWithoutSendingRequestWhenCircuitIsOpen() throws Exception {
+        HttpClient httpClient = clientWithExpectedResponse(500, "")
+                .setCircuitBreaker(new CircuitBreaker().failureThreshold(1));
+
+        try {
+            httpClient.post("http://example.com/", "{}", HttpClient.PRIORITY_BACKGROUND);
+            fail("Expected ServerException");
+        } catch (ServerException ignored) {}
+
+        try {
+            httpClient.post("http://example.com/", "{}", HttpClient.PRIORITY_BACKGROUND);
+            fail("Expected CircuitBreakerOpenException");
+        } catch (CircuitBreakerOpenException ignored) {}
+
+        verify(httpClient, times(1)).init(anyString());
+    }
+
+    @Test(timeout = 1000)
+    public void doesNotGuardUserInitiatedRequestsWithCircuitBreaker() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker().failureThreshold(1);
+        HttpClient httpClient = clientWithExpectedResponse(500, "")
+                .setCircuitBreaker(circuitBreaker);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                httpClient.post("http://example.com/", "{}");
+                fail("Expected ServerException");
+            } catch (ServerException ignored) {}
+        }
+
+        verify(httpClient, times(2)).init(anyString());
+        assertEquals(CircuitBreaker.STATE_CLOSED, circuitBreaker.getState("http://example.com/"));
+    }
+
+    @Test(timeout = 1000)
+    public void countsRetriedRequestAsSingleCircuitBreakerFailure() throws Exception {
+        final int[] attempts = new int[1];
+        CircuitBreaker circuitBreaker = new CircuitBreaker().failureThreshold(2);
+        HttpClient httpClient = new HttpClient()
+                .setCircuitBreaker(circuitBreaker)
+                .setRetryPolicy(new RetryPolicy()
+                        .maxAttempts(3)
+                        .initialBackoff(10)
+                        .retryBudget(new RetryBudget(0.1, 10)))
+                .setTransport(new HttpTransport() {
+                    @Override
+                    public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+                        attempts[0]++;
+                        return new HttpTransportResponse(503, new HashMap<String, String>(),
+                                streamFromString(""));
+                    }
+                });
+
+        try {
+            httpClient.post("http://example.com/", "{}", HttpClient.PRIORITY_BACKGROUND);
+            fail("Expected DownForMaintenanceException");
+        } catch (DownForMaintenanceException ignored) {}
+
+        assertEquals(3, attempts[0]);
+        assertEquals(CircuitBreaker.STATE_CLOSED, circuitBreaker.getState("http://example.com/"));
+    }
+
+    @Test(timeout = 1000)
+    public void post_readsResponseOfUnknownLengthLargerThanBuffer() throws Exception {
+        StringBuilder response = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            response.append("{\"a\":").append(i).append("}");
+        }
+        HttpClient httpClient = clientWithExpectedResponse(200, response.toString());
+        HttpURLConnection connection = httpClient.init("http://example.com/");
+        when(connection.getContentLength()).thenReturn(-1);
+
+        assertEquals(response.toString(), httpClient.post("http://example.com/", "{}"));
+    }
+
+    @Test(timeout = 1000)
+    public void post_readsResponseSizedFromContentLength() throws Exception {
+        String response = "{\"name\":\"Bjärne Stroustrüp\"}";
+        HttpClient httpClient = clientWithExpectedResponse(200, response);
+        HttpURLConnection connection = httpClient.init("http://example.com/");
+        when(connection.getContentLength()).thenReturn(response.getBytes("UTF-8").length);
+
+        assertEquals(response, httpClient.post("http://example.com/", "{}"));
+    }
+
+    @Test(timeout = 1000)
+    public void post_readsResponseWithContentLengthLargerThanBody() throws Exception {
+        String response = "{\"name\":\"Bjärne Stroustrüp\"}";
+        HttpClient httpClient = clientWithExpectedResponse(200, response);
+        HttpURLConnection connection = httpClient.init("http://example.com/");
+        when(connection.getContentLength()).thenReturn(Integer.MAX_VALUE);
+
+        assertEquals(response, httpClient.post("http://example.com/", "{}"));
+    }
+
+    @Test(timeout = 1000)
+    public void post_readsEntireResponseWhenContentLengthIsTooShort() throws Exception {
+        String response = "{\"name\":\"Bjärne Stroustrüp\"}";
+        HttpClient httpClient = clientWithExpectedResponse(200, response);
+        HttpURLConnection connection = httpClient.init("http://example.com/");
+        when(connection.getContentLength()).thenReturn(5);
+
+        assertEquals(response, httpClient.post("http://example.com/", "{}"));
+    }
+
+    @Test(timeout = 1000)
+    public void post_streamsRequestBodyWithFixedLength() throws Exception {
+        String body = "{\"name\":\"Bjärne Stroustrüp\"}";
+        HttpURLConnection connection = connectionWithExpectedResponse(200, "");
+        HttpClient httpClient = spy(new HttpClient());
+        doReturn(connection).when(httpClient).init(anyString());
+
+        httpClient.post("http://example.com/", body);
+
+        verify(connection).setFixedLengthStreamingMode(body.getBytes("UTF-8").length);
+    }
+
     /* helpers */
     private void assertExceptionIsPosted(HttpClient httpClient, final Class<? extends Exception> exceptionType,
             final String exceptionMessage) throws IOException, InterruptedException {
@@ -419,6 +1275,16 @@ public class HttpClientTest {
 
     private HttpClient clientWithExpectedResponse(int responseCode, String response)
             throws IOException {
+        HttpURLConnection connection = connectionWithExpectedResponse(responseCode, response);
+
+        HttpClient httpClient = spy(new HttpClient());
+        doReturn(connection).when(httpClient).init(anyString());
+
+        return httpClient;
+    }
+
+    private HttpURLConnection connectionWithExpectedResponse(int responseCode, String response)
+            throws IOException {
         HttpURLConnection connection = mock(HttpURLConnection.class);
         when(connection.getOutputStream()).thenReturn(mock(OutputStream.class));
         when(connection.getResponseCode()).thenReturn(responseCode);
@@ -427,10 +1293,14 @@ public class HttpClientTest {
         when(connection.getErrorStream()).thenReturn(streamFromString(response))
                 .thenReturn(streamFromString(response));
 
-        HttpClient httpClient = spy(new HttpClient());
-        doReturn(connection).when(httpClient).init(anyString());
+        return connection;
+    }
 
-        return httpClient;
+    private HttpURLConnection connectionAcceptingGzip() throws IOException {
+        HttpURLConnection connection = connectionWithExpectedResponse(200, "ok");
+        when(connection.getHeaderField("Accept-Encoding")).thenReturn("gzip");
+
+        return connection;
     }
 
     private InputStream streamFromString(String string) throws UnsupportedEncodingException {
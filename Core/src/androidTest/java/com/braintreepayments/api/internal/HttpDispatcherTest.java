@@ -0,0 +1,290 @@
+package com.braintreepayments.api.internal;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class HttpDispatcherTest {
+
+    @Test(timeout = 1000)
+    public void getInstance_returnsSameInstance() {
+        assertSame(HttpDispatcher.getInstance(), HttpDispatcher.getInstance());
+    }
+
+    @Test(timeout = 1000)
+    public void httpClients_shareDispatcher() {
+        assertSame(new HttpClient().mDispatcher, new HttpClient().mDispatcher);
+    }
+
+    @Test(timeout = 5000)
+    public void enqueue_limitsConcurrentRequests() throws InterruptedException {
+        HttpDispatcher dispatcher = new HttpDispatcher(2, 2, 1);
+        CountDownLatch countDownLatch = new CountDownLatch(6);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        for (int i = 0; i < 6; i++) {
+            dispatcher.enqueue("host" + i, trackingRunnable(running, maxRunning, countDownLatch));
+        }
+
+        countDownLatch.await();
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test(timeout = 5000)
+    public void enqueue_limitsConcurrentRequestsPerHost() throws InterruptedException {
+        HttpDispatcher dispatcher = new HttpDispatcher(4, 1, 1);
+        CountDownLatch countDownLatch = new CountDownLatch(4);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        for (int i = 0; i < 4; i++) {
+            dispatcher.enqueue("example.com", trackingRunnable(running, maxRunning, countDownLatch));
+        }
+
+        countDownLatch.await();
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test(timeout = 5000)
+    public void enqueue_runsQueuedRequestsAfterRunningRequestsFinish() throws InterruptedException {
+        HttpDispatcher dispatcher = new HttpDispatcher(1, 1, 1);
+        final CountDownLatch countDownLatch = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            dispatcher.enqueue("example.com", new Runnable() {
+                @Override
+                public void run() {
+                    countDownLatch.countDown();
+                }
+            });
+        }
+
+        countDownLatch.await();
+        assertTrue(dispatcher.getQueuedCallCount() == 0);
+    }
+
+    @Test(timeout = 5000)
+    public void enqueue_runsUserInitiatedRequestsAheadOfQueuedBackgroundRequests() throws InterruptedException {
+        HttpDispatcher dispatcher = new HttpDispatcher(1, 1, 1);
+        final CountDownLatch blockingLatch = new CountDownLatch(1);
+        final CountDownLatch countDownLatch = new CountDownLatch(3);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        dispatcher.enqueue("example.com", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blockingLatch.await();
+                } catch (InterruptedException ignored) {}
+                countDownLatch.countDown();
+            }
+        });
+        dispatcher.enqueue("example.com", HttpClient.PRIORITY_BACKGROUND,
+                recordingRunnable("background", order, countDownLatch));
+        dispatcher.enqueue("example.com", HttpClient.PRIORITY_USER_INITIATED,
+                recordingRunnable("user-initiated", order, countDownLatch));
+        blockingLatch.countDown();
+
+        countDownLatch.await();
+        assertEquals("user-initiated", order.get(0));
+        assertEquals("background", order.get(1));
+    }
+
+    @Test(timeout = 5000)
+    public void enqueue_defersBackgroundRequestsWhileUserInitiatedRequestIsRunning() throws InterruptedException {
+        HttpDispatcher dispatcher = new HttpDispatcher(4, 4, 1);
+        final CountDownLatch blockingLatch = new CountDownLatch(1);
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+
+        dispatcher.enqueue("example.com", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blockingLatch.await();
+                } catch (InterruptedException ignored) {}
+            }
+        });
+        dispatcher.enqueue("analytics.example.com", HttpClient.PRIORITY_BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                countDownLatch.countDown();
+            }
+        });
+
+        assertEquals(1, dispatcher.getQueuedCallCount());
+        blockingLatch.countDown();
+        countDownLatch.await();
+    }
+
+    @Test(timeout = 5000)
+    public void enqueue_runsBackgroundRequestThatWaitedTooLongWhileUserInitiatedRequestsArePending()
+            throws InterruptedException {
+        HttpDispatcher dispatcher = new HttpDispatcher(2, 2, 1, 100);
+        final CountDownLatch blockingLatch = new CountDownLatch(1);
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blockingLatch.await();
+                } catch (InterruptedException ignored) {}
+            }
+        };
+
+        dispatcher.enqueue("example.com", blocking);
+        dispatcher.enqueue("analytics.example.com", HttpClient.PRIORITY_BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                countDownLatch.countDown();
+            }
+        });
+        assertEquals(1, dispatcher.getQueuedCallCount());
+
+        Thread.sleep(150);
+        dispatcher.enqueue("example.com", blocking);
+
+        countDownLatch.await();
+        blockingLatch.countDown();
+    }
+
+    @Test(timeout = 5000)
+    public void enqueue_runsBackgroundRequestOnceOverdueWithoutFurtherRequestsQueuedOrFinishing()
+            throws InterruptedException {
+        HttpDispatcher dispatcher = new HttpDispatcher(2, 2, 1, 100);
+        final CountDownLatch blockingLatch = new CountDownLatch(1);
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+
+        dispatcher.enqueue("example.com", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blockingLatch.await();
+                } catch (InterruptedException ignored) {}
+            }
+        });
+        dispatcher.enqueue("analytics.example.com", HttpClient.PRIORITY_BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                countDownLatch.countDown();
+            }
+        });
+        assertEquals(1, dispatcher.getQueuedCallCount());
+
+        countDownLatch.await();
+        assertEquals(1, blockingLatch.getCount());
+        blockingLatch.countDown();
+    }
+
+    @Test(timeout = 5000)
+    public void enqueue_doesNotHoldWorkerThreadForDelayedRequests() throws InterruptedException {
+        HttpDispatcher dispatcher = new HttpDispatcher(1, 1, 1);
+        final CountDownLatch countDownLatch = new CountDownLatch(2);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        dispatcher.enqueue("example.com", HttpClient.PRIORITY_USER_INITIATED,
+                recordingRunnable("delayed", order, countDownLatch), 200);
+        dispatcher.enqueue("example.com", recordingRunnable("immediate", order, countDownLatch));
+        assertEquals(1, dispatcher.getDelayedCallCount());
+
+        countDownLatch.await();
+        assertEquals("immediate", order.get(0));
+        assertEquals("delayed", order.get(1));
+        assertEquals(0, dispatcher.getDelayedCallCount());
+    }
+
+    @Test(timeout = 5000)
+    public void cancel_removesDelayedRequest() throws InterruptedException {
+        HttpDispatcher dispatcher = new HttpDispatcher(1, 1, 1);
+        final AtomicInteger runCount = new AtomicInteger();
+        Runnable delayed = new Runnable() {
+            @Override
+            public void run() {
+                runCount.incrementAndGet();
+            }
+        };
+
+        dispatcher.enqueue("example.com", HttpClient.PRIORITY_USER_INITIATED, delayed, 100);
+
+        assertTrue(dispatcher.cancel(delayed));
+        assertEquals(0, dispatcher.getDelayedCallCount());
+        Thread.sleep(200);
+        assertEquals(0, runCount.get());
+    }
+
+    @Test(timeout = 5000)
+    public void cancel_removesQueuedRequest() throws InterruptedException {
+        HttpDispatcher dispatcher = new HttpDispatcher(1, 1, 1);
+        final CountDownLatch blockingLatch = new CountDownLatch(1);
+        final AtomicInteger runCount = new AtomicInteger();
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blockingLatch.await();
+                } catch (InterruptedException ignored) {}
+            }
+        };
+        Runnable queued = new Runnable() {
+            @Override
+            public void run() {
+                runCount.incrementAndGet();
+            }
+        };
+
+        dispatcher.enqueue("example.com", blocking);
+        dispatcher.enqueue("example.com", queued);
+
+        assertTrue(dispatcher.cancel(queued));
+        assertFalse(dispatcher.cancel(blocking));
+        assertEquals(0, dispatcher.getQueuedCallCount());
+
+        blockingLatch.countDown();
+        Thread.sleep(100);
+        assertEquals(0, runCount.get());
+    }
+
+    private Runnable recordingRunnable(final String name, final List<String> order,
+            final CountDownLatch countDownLatch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+                countDownLatch.countDown();
+            }
+        };
+    }
+
+    private Runnable trackingRunnable(final AtomicInteger running, final AtomicInteger maxRunning,
+            final CountDownLatch countDownLatch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                int current = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                }
+
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignored) {}
+
+                running.decrementAndGet();
+                countDownLatch.countDown();
+            }
+        };
+    }
+}
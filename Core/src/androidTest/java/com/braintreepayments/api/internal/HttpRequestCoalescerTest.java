@@ -0,0 +1,69 @@
+package com.braintreepayments.api.internal;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.braintreepayments.api.interfaces.HttpResponseCallback;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+@RunWith(AndroidJUnit4.class)
+public class HttpRequestCoalescerTest {
+
+    @Test(timeout = 1000)
+    public void getInstance_returnsSameInstance() {
+        assertSame(HttpRequestCoalescer.getInstance(), HttpRequestCoalescer.getInstance());
+    }
+
+    @Test(timeout = 1000)
+    public void join_returnsTrueOnlyForFirstRequestWithKey() {
+        HttpRequestCoalescer coalescer = new HttpRequestCoalescer();
+
+        assertTrue(coalescer.join("key", mock(HttpResponseCallback.class)));
+        assertFalse(coalescer.join("key", mock(HttpResponseCallback.class)));
+        assertTrue(coalescer.join("other-key", mock(HttpResponseCallback.class)));
+    }
+
+    @Test(timeout = 1000)
+    public void complete_returnsAllWaitingCallbacks() {
+        HttpRequestCoalescer coalescer = new HttpRequestCoalescer();
+        HttpResponseCallback first = mock(HttpResponseCallback.class);
+        HttpResponseCallback second = mock(HttpResponseCallback.class);
+        coalescer.join("key", first);
+        coalescer.join("key", second);
+
+        List<HttpResponseCallback> callbacks = coalescer.complete("key");
+
+        assertEquals(2, callbacks.size());
+        assertSame(first, callbacks.get(0));
+        assertSame(second, callbacks.get(1));
+    }
+
+    @Test(timeout = 1000)
+    public void join_returnsTrueAfterRequestCompletes() {
+        HttpRequestCoalescer coalescer = new HttpRequestCoalescer();
+        coalescer.join("key", mock(HttpResponseCallback.class));
+        coalescer.complete("key");
+
+        assertTrue(coalescer.join("key", mock(HttpResponseCallback.class)));
+    }
+
+    @Test(timeout = 1000)
+    public void tracksRequestAndCoalescedCounts() {
+        HttpRequestCoalescer coalescer = new HttpRequestCoalescer();
+        coalescer.join("key", mock(HttpResponseCallback.class));
+        coalescer.join("key", mock(HttpResponseCallback.class));
+        coalescer.join("key", mock(HttpResponseCallback.class));
+
+        assertEquals(3, coalescer.getRequestCount());
+        assertEquals(2, coalescer.getCoalescedCount());
+    }
+}
@@ -0,0 +1,67 @@
+package com.braintreepayments.api.internal;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class RequestCompressionNegotiatorTest {
+
+    @Test(timeout = 1000)
+    public void getInstance_returnsSameInstance() {
+        assertSame(RequestCompressionNegotiator.getInstance(), RequestCompressionNegotiator.getInstance());
+    }
+
+    @Test(timeout = 1000)
+    public void isCompressionAccepted_returnsFalseUntilEndpointAdvertisesGzip() {
+        RequestCompressionNegotiator negotiator = new RequestCompressionNegotiator();
+
+        assertFalse(negotiator.isCompressionAccepted("https://example.com/events"));
+
+        negotiator.onResponse("https://example.com/events", null);
+        assertFalse(negotiator.isCompressionAccepted("https://example.com/events"));
+
+        negotiator.onResponse("https://example.com/events", "gzip");
+        assertTrue(negotiator.isCompressionAccepted("https://example.com/events"));
+    }
+
+    @Test(timeout = 1000)
+    public void isCompressionAccepted_isTrackedPerEndpoint() {
+        RequestCompressionNegotiator negotiator = new RequestCompressionNegotiator();
+
+        negotiator.onResponse("https://example.com/events?batch=1", "gzip");
+
+        assertTrue(negotiator.isCompressionAccepted("https://example.com/events?batch=2"));
+        assertFalse(negotiator.isCompressionAccepted("https://example.com/configuration"));
+        assertFalse(negotiator.isCompressionAccepted("https://other.example.com/events"));
+    }
+
+    @Test(timeout = 1000)
+    public void isCompressionAccepted_returnsFalseAfterEndpointRejectsCompressedBody() {
+        RequestCompressionNegotiator negotiator = new RequestCompressionNegotiator();
+        negotiator.onResponse("https://example.com/events", "gzip");
+
+        negotiator.onRejected("https://example.com/events");
+        negotiator.onResponse("https://example.com/events", "gzip");
+
+        assertFalse(negotiator.isCompressionAccepted("https://example.com/events"));
+    }
+
+    @Test(timeout = 1000)
+    public void acceptsGzip_parsesAcceptEncodingHeader() {
+        assertTrue(RequestCompressionNegotiator.acceptsGzip("gzip"));
+        assertTrue(RequestCompressionNegotiator.acceptsGzip("identity, GZIP"));
+        assertTrue(RequestCompressionNegotiator.acceptsGzip("deflate;q=1, gzip;q=0.5"));
+
+        assertFalse(RequestCompressionNegotiator.acceptsGzip(null));
+        assertFalse(RequestCompressionNegotiator.acceptsGzip(""));
+        assertFalse(RequestCompressionNegotiator.acceptsGzip("identity"));
+        assertFalse(RequestCompressionNegotiator.acceptsGzip("gzip;q=0"));
+        assertFalse(RequestCompressionNegotiator.acceptsGzip("x-gzip"));
+    }
+}
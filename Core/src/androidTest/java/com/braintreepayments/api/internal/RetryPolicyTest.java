@@ -0,0 +1,111 @@
+package com.braintreepayments.api.internal;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.MalformedJsonException;
+
+import com.braintreepayments.api.exceptions.AuthorizationException;
+import com.braintreepayments.api.exceptions.DownForMaintenanceException;
+import com.braintreepayments.api.exceptions.RateLimitException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+
+import javax.net.ssl.SSLException;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class RetryPolicyTest {
+
+    private static final String URL = "https://example.com/";
+
+    @Test(timeout = 1000)
+    public void isRetryable_retriesRejectedRequestsForAllMethods() {
+        RetryPolicy retryPolicy = new RetryPolicy();
+
+        assertTrue(retryPolicy.isRetryable("POST", URL, new RateLimitException("")));
+        assertTrue(retryPolicy.isRetryable("POST", URL, new DownForMaintenanceException("")));
+        assertTrue(retryPolicy.isRetryable("POST", URL, new ConnectException()));
+    }
+
+    @Test(timeout = 1000)
+    public void isRetryable_onlyRetriesOtherIOExceptionsForIdempotentRequests() {
+        RetryPolicy retryPolicy = new RetryPolicy();
+
+        assertTrue(retryPolicy.isRetryable("GET", URL, new SocketTimeoutException()));
+        assertFalse(retryPolicy.isRetryable("POST", URL, new SocketTimeoutException()));
+    }
+
+    @Test(timeout = 1000)
+    public void isRetryable_doesNotRetryPermanentFailures() {
+        RetryPolicy retryPolicy = new RetryPolicy();
+
+        assertFalse(retryPolicy.isRetryable("GET", URL, new AuthorizationException("")));
+        assertFalse(retryPolicy.isRetryable("GET", URL, new MalformedURLException()));
+        assertFalse(retryPolicy.isRetryable("GET", URL, new SSLException("")));
+        assertFalse(retryPolicy.isRetryable("GET", URL, new MalformedJsonException("")));
+    }
+
+    @Test(timeout = 1000)
+    public void getRetryDelay_returnsNegativeOnceMaxAttemptsAreReached() {
+        RetryPolicy retryPolicy = new RetryPolicy()
+                .maxAttempts(2)
+                .retryBudget(new RetryBudget(0.1, 10));
+
+        assertTrue(retryPolicy.getRetryDelay("GET", URL, 1, new IOException(), null) >= 0);
+        assertEquals(-1, retryPolicy.getRetryDelay("GET", URL, 2, new IOException(), null));
+    }
+
+    @Test(timeout = 1000)
+    public void getRetryDelay_isBoundedByExponentialBackoff() {
+        RetryPolicy retryPolicy = new RetryPolicy()
+                .maxAttempts(10)
+                .initialBackoff(100)
+                .maxBackoff(300)
+                .retryBudget(new RetryBudget(0.1, 10));
+
+        assertTrue(retryPolicy.getRetryDelay("GET", URL, 1, new IOException(), null) < 100);
+        assertTrue(retryPolicy.getRetryDelay("GET", URL, 2, new IOException(), null) < 200);
+        assertTrue(retryPolicy.getRetryDelay("GET", URL, 5, new IOException(), null) < 300);
+    }
+
+    @Test(timeout = 1000)
+    public void getRetryDelay_honorsRetryAfter() {
+        RetryPolicy retryPolicy = new RetryPolicy()
+                .maxRetryAfter(5000)
+                .retryBudget(new RetryBudget(0.1, 10));
+
+        assertEquals(2000, retryPolicy.getRetryDelay("POST", URL, 1, new RateLimitException(""), "2"));
+        assertEquals(-1, retryPolicy.getRetryDelay("POST", URL, 1, new RateLimitException(""), "60"));
+    }
+
+    @Test(timeout = 1000)
+    public void getRetryDelay_returnsNegativeWhenRetryBudgetIsExhausted() {
+        RetryPolicy retryPolicy = new RetryPolicy()
+                .maxAttempts(10)
+                .retryBudget(new RetryBudget(0.5, 1));
+
+        assertTrue(retryPolicy.getRetryDelay("GET", URL, 1, new IOException(), null) >= 0);
+        assertEquals(-1, retryPolicy.getRetryDelay("GET", URL, 2, new IOException(), null));
+
+        retryPolicy.onRequest();
+        retryPolicy.onRequest();
+
+        assertTrue(retryPolicy.getRetryDelay("GET", URL, 1, new IOException(), null) >= 0);
+    }
+
+    @Test(timeout = 1000)
+    public void parseRetryAfter_parsesSecondsAndHttpDates() {
+        assertEquals(120000, RetryPolicy.parseRetryAfter("120", 0));
+        assertEquals(30000, RetryPolicy.parseRetryAfter("Thu, 01 Jan 1970 00:00:30 GMT", 0));
+        assertEquals(-1, RetryPolicy.parseRetryAfter("soon", 0));
+        assertEquals(-1, RetryPolicy.parseRetryAfter(null, 0));
+    }
+}
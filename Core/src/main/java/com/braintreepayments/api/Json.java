@@ -1,7 +1,13 @@
 package com.braintreepayments.api;
 
+import android.util.JsonReader;
+
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+
 public class Json {
 
     /**
@@ -22,4 +28,80 @@ public class Json {
             return json.optString(name, fallback);
         }
     }
+
+    /**
+     * Reads the next object from a {@link JsonReader} into a {@link JSONObject}, allowing a single element of a
+     * streamed response to be handed to the existing {@link JSONObject} based parsers without reading the whole
+     * response into memory.
+     *
+     * @param reader {@link JsonReader} positioned at the beginning of an object.
+     * @return {@link JSONObject}
+     * @throws IOException
+     * @throws JSONException
+     */
+    public static JSONObject readObject(JsonReader reader) throws IOException, JSONException {
+        JSONObject object = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            object.put(reader.nextName(), readValue(reader));
+        }
+        reader.endObject();
+
+        return object;
+    }
+
+    /**
+     * Reads the next array from a {@link JsonReader} into a {@link JSONArray}.
+     *
+     * @param reader {@link JsonReader} positioned at the beginning of an array.
+     * @return {@link JSONArray}
+     * @throws IOException
+     * @throws JSONException
+     */
+    public static JSONArray readArray(JsonReader reader) throws IOException, JSONException {
+        JSONArray array = new JSONArray();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            array.put(readValue(reader));
+        }
+        reader.endArray();
+
+        return array;
+    }
+
+    /**
+     * Reads the next value from a {@link JsonReader} as the type {@link JSONObject} holds it as, using
+     * {@link JSONObject#NULL} for {@code null}.
+     *
+     * @param reader {@link JsonReader} positioned at a value.
+     * @return the value.
+     * @throws IOException
+     * @throws JSONException
+     */
+    public static Object readValue(JsonReader reader) throws IOException, JSONException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readObject(reader);
+            case BEGIN_ARRAY:
+                return readArray(reader);
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NUMBER:
+                String number = reader.nextString();
+                try {
+                    long value = Long.parseLong(number);
+                    if (value == (int) value) {
+                        return (int) value;
+                    }
+                    return value;
+                } catch (NumberFormatException e) {
+                    return Double.parseDouble(number);
+                }
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            default:
+                return reader.nextString();
+        }
+    }
 }
@@ -0,0 +1,13 @@
+package com.braintreepayments.api.exceptions;
+
+/**
+ * Exception thrown when a request is not sent because the
+ * {@link com.braintreepayments.api.internal.CircuitBreaker} for its endpoint is open after repeated failures.
+ * Indicates the endpoint is degraded and the request should be tried again later.
+ */
+public class CircuitBreakerOpenException extends Exception {
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
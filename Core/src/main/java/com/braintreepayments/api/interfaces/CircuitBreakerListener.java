@@ -0,0 +1,17 @@
+package com.braintreepayments.api.interfaces;
+
+import com.braintreepayments.api.internal.CircuitBreaker;
+
+/**
+ * Receives the state transitions of a {@link CircuitBreaker}. Transitions are reported on the thread of the request
+ * that caused them, which is a background thread for asynchronous requests.
+ */
+public interface CircuitBreakerListener {
+
+    /**
+     * @param endpoint the host and path of the endpoint whose circuit changed state.
+     * @param previousState the {@link CircuitBreaker.State} the circuit was in.
+     * @param state the {@link CircuitBreaker.State} the circuit is now in.
+     */
+    void onStateChanged(String endpoint, @CircuitBreaker.State int previousState, @CircuitBreaker.State int state);
+}
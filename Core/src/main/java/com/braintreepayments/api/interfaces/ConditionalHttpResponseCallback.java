@@ -0,0 +1,35 @@
+package com.braintreepayments.api.interfaces;
+
+import android.support.annotation.MainThread;
+
+import com.braintreepayments.api.internal.HttpValidators;
+
+/**
+ * Communicates responses from a conditional HTTP request on the main thread, or on the callback executor set on
+ * the {@link com.braintreepayments.api.internal.HttpClient}.
+ * One and only one method will be invoked in response to a request.
+ */
+public interface ConditionalHttpResponseCallback {
+
+    /**
+     * @param responseBody response to the successful HTTP request.
+     * @param validators the validators of the response, to be sent with the next request for the same resource.
+     */
+    @MainThread
+    void success(String responseBody, HttpValidators validators);
+
+    /**
+     * Called when the server responded with {@link java.net.HttpURLConnection#HTTP_NOT_MODIFIED}, meaning the
+     * previously received response body is still current.
+     *
+     * @param validators the validators of the response, to be sent with the next request for the same resource.
+     */
+    @MainThread
+    void notModified(HttpValidators validators);
+
+    /**
+     * @param exception error that caused the request to fail.
+     */
+    @MainThread
+    void failure(Exception exception);
+}
@@ -0,0 +1,18 @@
+package com.braintreepayments.api.interfaces;
+
+import com.braintreepayments.api.internal.HttpCallMetrics;
+
+/**
+ * Receives the timings of every call made by an {@link com.braintreepayments.api.internal.HttpClient}.
+ * Asynchronous calls are reported after their callback has run, on the thread the callback was delivered on: the
+ * main thread, or the callback executor when one is set. Asynchronous calls without a callback, such as
+ * {@link com.braintreepayments.api.internal.HttpClient#preconnect(String)}, are reported on the background thread
+ * that made the request. Synchronous calls are reported on the calling thread before returning.
+ */
+public interface HttpEventListener {
+
+    /**
+     * @param metrics the {@link HttpCallMetrics} of the finished call.
+     */
+    void onCallFinished(HttpCallMetrics metrics);
+}
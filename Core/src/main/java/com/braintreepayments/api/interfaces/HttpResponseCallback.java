@@ -3,7 +3,8 @@ package com.braintreepayments.api.interfaces;
 import android.support.annotation.MainThread;
 
 /**
- * Communicates responses from a HTTP request on the main thread.
+ * Communicates responses from a HTTP request on the main thread, or on the callback executor set on the
+ * {@link com.braintreepayments.api.internal.HttpClient}.
  * One and only one method will be invoked in response to a request.
  */
 public interface HttpResponseCallback {
@@ -0,0 +1,37 @@
+package com.braintreepayments.api.interfaces;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.WorkerThread;
+
+/**
+ * Communicates responses from a HTTP request whose body is parsed into a model before it is delivered.
+ * The body is parsed on the thread the request was made on and the result is delivered on the callback executor
+ * of the {@link com.braintreepayments.api.internal.HttpClient}, the main thread by default.
+ * One and only one of {@link #success(Object)} or {@link #failure(Exception)} will be invoked in response to a
+ * request.
+ *
+ * @param <T> the type the response body is parsed into.
+ */
+public interface ParsedHttpResponseCallback<T> {
+
+    /**
+     * @param responseBody response to the successful HTTP request.
+     * @return the parsed response.
+     * @throws Exception if the response could not be parsed. The exception will be passed to
+     *         {@link #failure(Exception)}.
+     */
+    @WorkerThread
+    T parseResponse(String responseBody) throws Exception;
+
+    /**
+     * @param response the value returned from {@link #parseResponse(String)}.
+     */
+    @MainThread
+    void success(T response);
+
+    /**
+     * @param exception error that caused the request to fail or the response to fail to parse.
+     */
+    @MainThread
+    void failure(Exception exception);
+}
@@ -0,0 +1,39 @@
+package com.braintreepayments.api.interfaces;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.WorkerThread;
+import android.util.JsonReader;
+
+/**
+ * Communicates responses from a HTTP request whose body is parsed directly from the network stream.
+ * The body is parsed on the thread the request was made on and the result is delivered on the callback executor
+ * of the {@link com.braintreepayments.api.internal.HttpClient}, the main thread by default.
+ * One and only one of {@link #success(Object)} or {@link #failure(Exception)} will be invoked in response to a
+ * request.
+ *
+ * @param <T> the type the response body is parsed into.
+ */
+public interface StreamingHttpResponseCallback<T> {
+
+    /**
+     * @param reader {@link JsonReader} over the body of a successful HTTP request. The reader is only valid for the
+     *        duration of this call.
+     * @return the parsed response.
+     * @throws Exception if the response could not be parsed. The exception will be passed to
+     *         {@link #failure(Exception)}.
+     */
+    @WorkerThread
+    T parseResponse(JsonReader reader) throws Exception;
+
+    /**
+     * @param response the value returned from {@link #parseResponse(JsonReader)}.
+     */
+    @MainThread
+    void success(T response);
+
+    /**
+     * @param exception error that caused the request to fail or the response to fail to parse.
+     */
+    @MainThread
+    void failure(Exception exception);
+}
@@ -0,0 +1,239 @@
+package com.braintreepayments.api.internal;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Derives {@link HttpClient} connect and read timeouts from the times measured on the current network type, so
+ * requests on a fast network fail fast while requests on a slow network are given the time they need.
+ *
+ * Connect timeouts are derived from the time taken to open new connections to each host, read timeouts from the
+ * time to the first byte of responses from each endpoint, identified by its host and operation. Both are smoothed
+ * the way TCP estimates its retransmission timeout. Until enough samples have been measured the timeouts configured
+ * on the {@link HttpClient} are used, and a request that times out doubles the estimates so a network that got
+ * slower is not stuck with timeouts that are too short. Read timeouts of requests that are not idempotent are never
+ * shortened below the configured timeout, as a request that timed out may still have been processed.
+ */
+public class AdaptiveTimeouts {
+
+    static final int MIN_SAMPLES = 3;
+    static final int TIMEOUT_MULTIPLIER = 3;
+    static final int MIN_CONNECT_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(5);
+    static final int MIN_READ_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(10);
+    static final int MAX_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * Connections taken from the keep-alive pool are returned without a handshake, connect times shorter than
+     * this are not measurements of the network.
+     */
+    static final long MIN_HANDSHAKE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static AdaptiveTimeouts sInstance;
+
+    private final Context mContext;
+    private final Map<String, Estimate> mConnectEstimates = new HashMap<>();
+    private final Map<String, Estimate> mReadEstimates = new HashMap<>();
+    private String mNetworkType;
+
+    /**
+     * @param context used to look up the current network type.
+     * @return the process-wide {@link AdaptiveTimeouts}.
+     */
+    public static synchronized AdaptiveTimeouts getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AdaptiveTimeouts(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    AdaptiveTimeouts(@Nullable Context context) {
+        mContext = context;
+        if (context != null) {
+            context.registerReceiver(new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    onNetworkChanged();
+                }
+            }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        }
+    }
+
+    /**
+     * @param url the url of the request.
+     * @param defaultTimeout the connect timeout configured on the {@link HttpClient}.
+     * @return the connect timeout in milliseconds for a request to the url.
+     */
+    int getConnectTimeout(String url, int defaultTimeout) {
+        return getTimeout(mConnectEstimates, getConnectKey(url), defaultTimeout, MIN_CONNECT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param url the url of the request.
+     * @param operation the operation the request is made for.
+     * @param defaultTimeout the read timeout configured on the {@link HttpClient}.
+     * @param idempotent whether the request is idempotent.
+     * @return the read timeout in milliseconds for a request to the url.
+     */
+    int getReadTimeout(String url, String operation, int defaultTimeout, boolean idempotent) {
+        int timeout = getTimeout(mReadEstimates, getReadKey(url, operation), defaultTimeout,
+                MIN_READ_TIMEOUT_MILLIS);
+        return idempotent ? timeout : Math.max(timeout, defaultTimeout);
+    }
+
+    /**
+     * Records the time taken to open a connection to the host of the url.
+     *
+     * @param url the url of the request.
+     * @param connectNanos the time taken to connect, including the TLS handshake.
+     */
+    void onConnect(String url, long connectNanos) {
+        if (connectNanos >= MIN_HANDSHAKE_NANOS) {
+            addSample(mConnectEstimates, getConnectKey(url), connectNanos);
+        }
+    }
+
+    /**
+     * Records the time to the first byte of a response from the endpoint of the url.
+     *
+     * @param url the url of the request.
+     * @param operation the operation the request was made for.
+     * @param timeToFirstByteNanos the time between sending the request and receiving the response status.
+     */
+    void onResponse(String url, String operation, long timeToFirstByteNanos) {
+        addSample(mReadEstimates, getReadKey(url, operation), timeToFirstByteNanos);
+    }
+
+    /**
+     * Records a request to the endpoint of the url that timed out, doubling its estimates.
+     *
+     * @param url the url of the request.
+     * @param operation the operation the request was made for.
+     */
+    void onTimeout(String url, String operation) {
+        doubleEstimate(mConnectEstimates, getConnectKey(url));
+        doubleEstimate(mReadEstimates, getReadKey(url, operation));
+    }
+
+    private static void addSample(Map<String, Estimate> estimates, String key, long sampleNanos) {
+        double sample = TimeUnit.NANOSECONDS.toMicros(sampleNanos) / 1000.0;
+        synchronized (estimates) {
+            Estimate estimate = estimates.get(key);
+            if (estimate == null) {
+                estimate = new Estimate();
+                estimates.put(key, estimate);
+            }
+
+            if (estimate.mSamples == 0) {
+                estimate.mSmoothedMillis = sample;
+                estimate.mVarianceMillis = sample / 2;
+            } else {
+                estimate.mVarianceMillis = 0.75 * estimate.mVarianceMillis +
+                        0.25 * Math.abs(estimate.mSmoothedMillis - sample);
+                estimate.mSmoothedMillis = 0.875 * estimate.mSmoothedMillis + 0.125 * sample;
+            }
+            estimate.mSamples++;
+        }
+    }
+
+    private static void doubleEstimate(Map<String, Estimate> estimates, String key) {
+        synchronized (estimates) {
+            Estimate estimate = estimates.get(key);
+            if (estimate != null && estimate.mSamples > 0) {
+                estimate.mSmoothedMillis = Math.min(MAX_TIMEOUT_MILLIS, estimate.mSmoothedMillis * 2);
+            }
+        }
+    }
+
+    private static int getTimeout(Map<String, Estimate> estimates, String key, int defaultTimeout,
+            int minTimeout) {
+        double retransmissionTimeout;
+        synchronized (estimates) {
+            Estimate estimate = estimates.get(key);
+            if (estimate == null || estimate.mSamples < MIN_SAMPLES) {
+                return defaultTimeout;
+            }
+
+            retransmissionTimeout = estimate.mSmoothedMillis + 4 * estimate.mVarianceMillis;
+        }
+
+        int timeout = (int) Math.min(Integer.MAX_VALUE, TIMEOUT_MULTIPLIER * retransmissionTimeout);
+        timeout = Math.min(timeout, Math.max(defaultTimeout, MAX_TIMEOUT_MILLIS));
+        return Math.max(timeout, Math.min(defaultTimeout, minTimeout));
+    }
+
+    private String getConnectKey(String url) {
+        return getNetworkType() + "|" + getHost(url);
+    }
+
+    private String getReadKey(String url, String operation) {
+        return getNetworkType() + "|" + getHost(url) + "|" + operation;
+    }
+
+    private static String getHost(String url) {
+        try {
+            return new URL(url).getHost();
+        } catch (MalformedURLException e) {
+            return "";
+        }
+    }
+
+    /**
+     * @return the type of the active network, including the mobile network generation, or {@code "none"} if
+     * there is no active network or it can not be determined. The type is looked up once and cached until the
+     * network changes.
+     */
+    @VisibleForTesting
+    synchronized String getNetworkType() {
+        if (mNetworkType == null) {
+            mNetworkType = lookUpNetworkType();
+        }
+
+        return mNetworkType;
+    }
+
+    private synchronized void onNetworkChanged() {
+        mNetworkType = null;
+    }
+
+    private String lookUpNetworkType() {
+        if (mContext == null) {
+            return "none";
+        }
+
+        try {
+            ConnectivityManager connectivityManager =
+                    (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+            NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+            if (networkInfo == null) {
+                return "none";
+            } else if (networkInfo.getType() == ConnectivityManager.TYPE_MOBILE) {
+                return networkInfo.getTypeName() + "/" + networkInfo.getSubtypeName();
+            } else {
+                return networkInfo.getTypeName();
+            }
+        } catch (SecurityException e) {
+            // the app does not hold the ACCESS_NETWORK_STATE permission
+            return "none";
+        }
+    }
+
+    private static class Estimate {
+        int mSamples;
+        double mSmoothedMillis;
+        double mVarianceMillis;
+    }
+}
@@ -0,0 +1,104 @@
+package com.braintreepayments.api.internal;
+
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Process-wide pool of byte arrays used by {@link HttpClient}s to read and write request and response bodies, so
+ * bursts of requests such as analytics flushes do not allocate a new buffer for every body.
+ *
+ * Buffers are handed out by size: {@link #acquire(int)} returns the smallest pooled buffer that is large enough or
+ * allocates a new one. Released buffers are kept until the pool holds {@link #MAX_POOL_BYTES}, at which point the
+ * least recently released buffers are discarded. Buffers larger than {@link #MAX_BUFFER_BYTES} are never pooled.
+ */
+public class ByteArrayPool {
+
+    static final int MAX_POOL_BYTES = 256 * 1024;
+    static final int MAX_BUFFER_BYTES = 64 * 1024;
+
+    private static final Comparator<byte[]> BY_SIZE = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] lhs, byte[] rhs) {
+            return lhs.length - rhs.length;
+        }
+    };
+
+    private static ByteArrayPool sInstance;
+
+    private final int mMaxPoolBytes;
+    private final List<byte[]> mBuffersByLastUse = new LinkedList<>();
+    private final List<byte[]> mBuffersBySize = new ArrayList<>();
+    private int mPoolBytes;
+
+    /**
+     * @return the process-wide {@link ByteArrayPool}.
+     */
+    public static synchronized ByteArrayPool getInstance() {
+        if (sInstance == null) {
+            sInstance = new ByteArrayPool(MAX_POOL_BYTES);
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * @param maxPoolBytes the total size of the buffers the pool keeps.
+     */
+    public ByteArrayPool(int maxPoolBytes) {
+        mMaxPoolBytes = maxPoolBytes;
+    }
+
+    /**
+     * @param minSize the minimum size of the buffer.
+     * @return a buffer of at least {@code minSize} bytes, which should be given back with {@link #release(byte[])}
+     * once it is no longer used. Its contents are undefined.
+     */
+    public synchronized byte[] acquire(int minSize) {
+        for (int i = 0; i < mBuffersBySize.size(); i++) {
+            byte[] buffer = mBuffersBySize.get(i);
+            if (buffer.length >= minSize) {
+                mPoolBytes -= buffer.length;
+                mBuffersBySize.remove(i);
+                mBuffersByLastUse.remove(buffer);
+                return buffer;
+            }
+        }
+
+        return new byte[minSize];
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer must not be used after it has been released.
+     *
+     * @param buffer the buffer, may be {@code null}.
+     */
+    public synchronized void release(byte[] buffer) {
+        if (buffer == null || buffer.length > MAX_BUFFER_BYTES || buffer.length > mMaxPoolBytes) {
+            return;
+        }
+
+        mBuffersByLastUse.add(buffer);
+        int position = Collections.binarySearch(mBuffersBySize, buffer, BY_SIZE);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        mBuffersBySize.add(position, buffer);
+        mPoolBytes += buffer.length;
+
+        while (mPoolBytes > mMaxPoolBytes) {
+            byte[] oldest = mBuffersByLastUse.remove(0);
+            mBuffersBySize.remove(oldest);
+            mPoolBytes -= oldest.length;
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getPoolBytes() {
+        return mPoolBytes;
+    }
+}
@@ -0,0 +1,290 @@
+package com.braintreepayments.api.internal;
+
+import android.os.SystemClock;
+import android.support.annotation.IntDef;
+import android.support.annotation.Nullable;
+import android.util.MalformedJsonException;
+
+import com.braintreepayments.api.exceptions.CircuitBreakerOpenException;
+import com.braintreepayments.api.exceptions.DownForMaintenanceException;
+import com.braintreepayments.api.exceptions.RateLimitException;
+import com.braintreepayments.api.exceptions.ServerException;
+import com.braintreepayments.api.interfaces.CircuitBreakerListener;
+
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.NoRouteToHostException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLException;
+
+/**
+ * Stops {@link HttpClient} requests to an endpoint that keeps failing, so a degraded server is not held up by
+ * clients waiting on connection and read timeouts. Endpoints are identified by the host and path of their url.
+ *
+ * A circuit starts {@link #STATE_CLOSED}. After a number of consecutive failures it opens and requests to the
+ * endpoint fail immediately with a {@link CircuitBreakerOpenException}. Once the circuit has been open for a while
+ * it is half-opened and a limited number of probe requests are let through: the circuit closes again when a probe
+ * succeeds and opens again when one fails.
+ */
+public class CircuitBreaker {
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({CircuitBreaker.STATE_CLOSED, CircuitBreaker.STATE_OPEN, CircuitBreaker.STATE_HALF_OPEN})
+    public @interface State {}
+
+    /**
+     * Requests are sent normally.
+     */
+    public static final int STATE_CLOSED = 0;
+
+    /**
+     * Requests fail immediately without being sent.
+     */
+    public static final int STATE_OPEN = 1;
+
+    /**
+     * A limited number of probe requests are sent to find out whether the endpoint has recovered.
+     */
+    public static final int STATE_HALF_OPEN = 2;
+
+    static final int FAILURE_THRESHOLD = 5;
+    static final long OPEN_DURATION_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final int HALF_OPEN_PROBES = 1;
+
+    private static CircuitBreaker sInstance;
+
+    private final Map<String, Circuit> mCircuits = new HashMap<>();
+
+    private int mFailureThreshold = FAILURE_THRESHOLD;
+    private long mOpenDurationMillis = OPEN_DURATION_MILLIS;
+    private int mHalfOpenProbes = HALF_OPEN_PROBES;
+    private CircuitBreakerListener mListener;
+
+    /**
+     * @return the process-wide {@link CircuitBreaker}.
+     */
+    public static synchronized CircuitBreaker getInstance() {
+        if (sInstance == null) {
+            sInstance = new CircuitBreaker();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * @param failureThreshold the number of consecutive failures after which a circuit opens.
+     * @return {@link CircuitBreaker} for method chaining.
+     */
+    public CircuitBreaker failureThreshold(int failureThreshold) {
+        mFailureThreshold = Math.max(1, failureThreshold);
+        return this;
+    }
+
+    /**
+     * @param openDurationMillis how long a circuit stays open before probe requests are let through.
+     * @return {@link CircuitBreaker} for method chaining.
+     */
+    public CircuitBreaker openDuration(long openDurationMillis) {
+        mOpenDurationMillis = openDurationMillis;
+        return this;
+    }
+
+    /**
+     * @param halfOpenProbes the number of probe requests that may be in flight while a circuit is half-open.
+     * @return {@link CircuitBreaker} for method chaining.
+     */
+    public CircuitBreaker halfOpenProbes(int halfOpenProbes) {
+        mHalfOpenProbes = Math.max(1, halfOpenProbes);
+        return this;
+    }
+
+    /**
+     * @param listener the {@link CircuitBreakerListener} to report state transitions to, or {@code null} to stop
+     * reporting them.
+     * @return {@link CircuitBreaker} for method chaining.
+     */
+    public synchronized CircuitBreaker listener(@Nullable CircuitBreakerListener listener) {
+        mListener = listener;
+        return this;
+    }
+
+    /**
+     * Classifies a failure as one that indicates the endpoint is degraded. Responses with client errors and
+     * responses that could not be parsed show the endpoint is reachable and are counted as successes. Failures
+     * caused by the device being offline, such as DNS lookups or connections that could not be made, say nothing
+     * about the endpoint and are ignored. Override to count additional failures.
+     *
+     * @param exception the {@link Exception} a request failed with.
+     * @return {@code true} if the failure counts towards opening the circuit.
+     */
+    public boolean isFailure(Exception exception) {
+        if (exception instanceof ServerException || exception instanceof DownForMaintenanceException ||
+                exception instanceof RateLimitException) {
+            return true;
+        }
+
+        return exception instanceof IOException && !(exception instanceof MalformedURLException) &&
+                !(exception instanceof SSLException) && !(exception instanceof MalformedJsonException) &&
+                !isConnectivityFailure(exception);
+    }
+
+    /**
+     * @param url the url of a request.
+     * @return the {@link State} of the circuit for the endpoint of the url.
+     */
+    @State
+    public synchronized int getState(String url) {
+        Circuit circuit = mCircuits.get(getEndpoint(url));
+        return circuit == null ? STATE_CLOSED : circuit.mState;
+    }
+
+    /**
+     * Checks whether a request to the url may be sent. Every request that is let through must be followed by a
+     * call to {@link #onSuccess(String)}, {@link #onFailure(String, Exception)} or {@link #release(String)}.
+     *
+     * @param url the url of the request.
+     * @throws CircuitBreakerOpenException if the circuit for the endpoint is open.
+     */
+    void acquire(String url) throws CircuitBreakerOpenException {
+        String endpoint = getEndpoint(url);
+        CircuitBreakerListener listener;
+        synchronized (this) {
+            Circuit circuit = mCircuits.get(endpoint);
+            if (circuit == null || circuit.mState == STATE_CLOSED) {
+                return;
+            }
+
+            if (circuit.mState == STATE_HALF_OPEN) {
+                if (circuit.mProbes >= mHalfOpenProbes) {
+                    throw new CircuitBreakerOpenException("Circuit for " + endpoint + " is half-open");
+                }
+
+                circuit.mProbes++;
+                return;
+            }
+
+            if (SystemClock.elapsedRealtime() - circuit.mOpenedAt < mOpenDurationMillis) {
+                throw new CircuitBreakerOpenException("Circuit for " + endpoint + " is open");
+            }
+
+            circuit.mState = STATE_HALF_OPEN;
+            circuit.mProbes = 1;
+            listener = mListener;
+        }
+
+        notifyStateChanged(listener, endpoint, STATE_OPEN, STATE_HALF_OPEN);
+    }
+
+    /**
+     * Records a request to the url that succeeded, closing its circuit.
+     *
+     * @param url the url of the request.
+     */
+    void onSuccess(String url) {
+        String endpoint = getEndpoint(url);
+        CircuitBreakerListener listener;
+        int previousState;
+        synchronized (this) {
+            Circuit circuit = mCircuits.remove(endpoint);
+            if (circuit == null || circuit.mState == STATE_CLOSED) {
+                return;
+            }
+
+            previousState = circuit.mState;
+            listener = mListener;
+        }
+
+        notifyStateChanged(listener, endpoint, previousState, STATE_CLOSED);
+    }
+
+    /**
+     * Records a request to the url that failed, opening its circuit once the failure threshold is reached or when
+     * a probe fails.
+     *
+     * @param url the url of the request.
+     * @param exception the {@link Exception} the request failed with.
+     */
+    void onFailure(String url, Exception exception) {
+        if (!isFailure(exception)) {
+            if (isConnectivityFailure(exception)) {
+                release(url);
+            } else {
+                onSuccess(url);
+            }
+            return;
+        }
+
+        String endpoint = getEndpoint(url);
+        CircuitBreakerListener listener;
+        int previousState;
+        synchronized (this) {
+            Circuit circuit = mCircuits.get(endpoint);
+            if (circuit == null) {
+                circuit = new Circuit();
+                mCircuits.put(endpoint, circuit);
+            }
+
+            previousState = circuit.mState;
+            if (previousState == STATE_OPEN ||
+                    (previousState == STATE_CLOSED && ++circuit.mFailures < mFailureThreshold)) {
+                return;
+            }
+
+            circuit.mState = STATE_OPEN;
+            circuit.mOpenedAt = SystemClock.elapsedRealtime();
+            circuit.mProbes = 0;
+            listener = mListener;
+        }
+
+        notifyStateChanged(listener, endpoint, previousState, STATE_OPEN);
+    }
+
+    /**
+     * Records a request to the url that finished without a result, such as one that was cancelled, freeing its
+     * probe slot if it was a probe.
+     *
+     * @param url the url of the request.
+     */
+    synchronized void release(String url) {
+        Circuit circuit = mCircuits.get(getEndpoint(url));
+        if (circuit != null && circuit.mState == STATE_HALF_OPEN && circuit.mProbes > 0) {
+            circuit.mProbes--;
+        }
+    }
+
+    private static void notifyStateChanged(@Nullable CircuitBreakerListener listener, String endpoint,
+            @State int previousState, @State int state) {
+        if (listener != null) {
+            listener.onStateChanged(endpoint, previousState, state);
+        }
+    }
+
+    private static boolean isConnectivityFailure(Exception exception) {
+        return exception instanceof UnknownHostException || exception instanceof ConnectException ||
+                exception instanceof NoRouteToHostException;
+    }
+
+    private static String getEndpoint(String url) {
+        try {
+            URL parsed = new URL(url);
+            return parsed.getHost() + parsed.getPath();
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+
+    private static class Circuit {
+        @State int mState = STATE_CLOSED;
+        int mFailures;
+        long mOpenedAt;
+        int mProbes;
+    }
+}
@@ -0,0 +1,172 @@
+package com.braintreepayments.api.internal;
+
+import android.support.annotation.Nullable;
+
+import java.net.HttpURLConnection;
+
+/**
+ * Handle to an asynchronous request made by an {@link HttpClient}, used to cancel it.
+ *
+ * Cancelling a request that is still queued or waiting to be retried removes it from the {@link HttpDispatcher},
+ * cancelling a request that is in flight disconnects its connection, and the callback of a cancelled request is
+ * never invoked. Requests sent
+ * with a custom {@link HttpTransport} can not be interrupted once sent, but their callbacks are still dropped.
+ */
+public class HttpCall {
+
+    private final HttpClient mClient;
+    private final HttpCallMetrics mMetrics;
+
+    private boolean mCancelled;
+    private boolean mFinished;
+    private HttpDispatcher mDispatcher;
+    private String mHost;
+    private int mPriority;
+    private Runnable mRunnable;
+    private HttpURLConnection mConnection;
+
+    /**
+     * The number of attempts made so far. Only accessed by the thread executing the request.
+     */
+    int mAttempts;
+
+    /**
+     * @return a {@link HttpCall} for a request that has already finished, such as one that failed before it was
+     * sent.
+     */
+    static HttpCall finished() {
+        HttpCall call = new HttpCall(null, null);
+        call.mFinished = true;
+        return call;
+    }
+
+    HttpCall(@Nullable HttpClient client, @Nullable HttpCallMetrics metrics) {
+        mClient = client;
+        mMetrics = metrics;
+    }
+
+    /**
+     * Cancels the request. Has no effect if the request has already finished or been cancelled.
+     */
+    public void cancel() {
+        HttpDispatcher dispatcher;
+        Runnable runnable;
+        HttpURLConnection connection;
+        synchronized (this) {
+            if (mCancelled || mFinished) {
+                return;
+            }
+
+            mCancelled = true;
+            notifyAll();
+            dispatcher = mDispatcher;
+            runnable = mRunnable;
+            connection = mConnection;
+        }
+
+        if (dispatcher != null) {
+            dispatcher.cancel(runnable);
+        }
+
+        if (connection != null) {
+            connection.disconnect();
+        }
+
+        if (mClient != null) {
+            mClient.removeCall(this);
+        }
+    }
+
+    /**
+     * @return {@code true} if the request has been cancelled.
+     */
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * @return {@code true} if the request has finished and its callback has been invoked or dropped.
+     */
+    public synchronized boolean isFinished() {
+        return mFinished;
+    }
+
+    @Nullable
+    HttpCallMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    synchronized int getPriority() {
+        return mPriority;
+    }
+
+    synchronized void setPriority(int priority) {
+        mPriority = priority;
+    }
+
+    synchronized void dispatched(HttpDispatcher dispatcher, String host, int priority, Runnable runnable) {
+        mDispatcher = dispatcher;
+        mHost = host;
+        mPriority = priority;
+        mRunnable = runnable;
+    }
+
+    /**
+     * Queues the request on its {@link HttpDispatcher} again once the delay has passed, so it does not hold a
+     * worker thread while waiting to be retried.
+     *
+     * @param delayMillis the time in milliseconds to wait before retrying.
+     * @return {@code false} if the request was not made through a {@link HttpDispatcher} or has been cancelled, in
+     * which case the caller has to wait itself.
+     */
+    synchronized boolean retryLater(long delayMillis) {
+        if (mCancelled || mDispatcher == null) {
+            return false;
+        }
+
+        mDispatcher.enqueue(mHost, mPriority, mRunnable, delayMillis);
+        return true;
+    }
+
+    /**
+     * Blocks the calling thread until the delay has passed or the request is cancelled.
+     *
+     * @param delayMillis the time in milliseconds to wait.
+     */
+    synchronized void waitForRetry(long delayMillis) {
+        long deadline = System.currentTimeMillis() + delayMillis;
+        long remaining = delayMillis;
+        while (!mCancelled && remaining > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Records the connection currently used by the request so it can be disconnected when the request is cancelled.
+     *
+     * @return {@code false} if the request has already been cancelled and the connection should not be used.
+     */
+    synchronized boolean connecting(@Nullable HttpURLConnection connection) {
+        mConnection = mCancelled ? null : connection;
+        return !mCancelled;
+    }
+
+    void finish() {
+        synchronized (this) {
+            mFinished = true;
+            mDispatcher = null;
+            mRunnable = null;
+            mConnection = null;
+        }
+
+        if (mClient != null) {
+            mClient.removeCall(this);
+        }
+    }
+}
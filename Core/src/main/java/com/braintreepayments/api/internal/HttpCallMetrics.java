@@ -0,0 +1,174 @@
+package com.braintreepayments.api.internal;
+
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings of a single call made by an {@link HttpClient}, reported to its
+ * {@link com.braintreepayments.api.interfaces.HttpEventListener}.
+ *
+ * Phases that were not reached or could not be measured are reported as {@code -1}. When a call is retried the
+ * phase timings are those of the last attempt. Connections made with {@link java.net.HttpURLConnection} include the
+ * TLS handshake in the connect time, and gzip decoding happens while the body is read so it is included in the
+ * body read time.
+ */
+public class HttpCallMetrics {
+
+    private final String mOperation;
+    private final String mMethod;
+    private final String mUrl;
+    private final long mCreatedNanos;
+
+    int mAttempts;
+    int mResponseCode = -1;
+    boolean mGzip;
+    boolean mRequestGzip;
+    Exception mException;
+    long mQueueNanos = -1;
+    long mConnectNanos = -1;
+    long mRequestWriteNanos = -1;
+    long mTimeToFirstByteNanos = -1;
+    long mBodyReadNanos = -1;
+    long mCallbackDispatchNanos = -1;
+    long mCallNanos = -1;
+
+    HttpCallMetrics(String operation, String method, String url) {
+        mOperation = operation;
+        mMethod = method;
+        mUrl = url;
+        mCreatedNanos = System.nanoTime();
+    }
+
+    void executing() {
+        if (mQueueNanos < 0) {
+            mQueueNanos = System.nanoTime() - mCreatedNanos;
+        }
+    }
+
+    void attempting(int attempt) {
+        mAttempts = attempt;
+        mResponseCode = -1;
+        mGzip = false;
+        mRequestGzip = false;
+        mConnectNanos = -1;
+        mRequestWriteNanos = -1;
+        mTimeToFirstByteNanos = -1;
+        mBodyReadNanos = -1;
+    }
+
+    void finished() {
+        mCallNanos = System.nanoTime() - mCreatedNanos;
+    }
+
+    /**
+     * @return the logical operation the call was made for, such as {@code configuration} or {@code tokenize}.
+     */
+    public String getOperation() {
+        return mOperation;
+    }
+
+    /**
+     * @return the HTTP method of the call.
+     */
+    public String getMethod() {
+        return mMethod;
+    }
+
+    /**
+     * @return the url of the call.
+     */
+    public String getUrl() {
+        return mUrl;
+    }
+
+    /**
+     * @return the number of attempts made, including retries.
+     */
+    public int getAttempts() {
+        return mAttempts;
+    }
+
+    /**
+     * @return the HTTP status code of the response, or {@code -1} if no response was received.
+     */
+    public int getResponseCode() {
+        return mResponseCode;
+    }
+
+    /**
+     * @return {@code true} if the response body was gzip encoded.
+     */
+    public boolean isGzip() {
+        return mGzip;
+    }
+
+    /**
+     * @return {@code true} if the request body was sent gzip compressed.
+     */
+    public boolean isRequestGzip() {
+        return mRequestGzip;
+    }
+
+    /**
+     * @return the {@link Exception} the call failed with, or {@code null} if it succeeded.
+     */
+    @Nullable
+    public Exception getException() {
+        return mException;
+    }
+
+    /**
+     * @return the time the call waited in the {@link HttpDispatcher} queue in milliseconds.
+     */
+    public long getQueueMillis() {
+        return toMillis(mQueueNanos);
+    }
+
+    /**
+     * @return the time taken to connect, including the TLS handshake, in milliseconds.
+     */
+    public long getConnectMillis() {
+        return toMillis(mConnectNanos);
+    }
+
+    /**
+     * @return the time taken to write the request body in milliseconds.
+     */
+    public long getRequestWriteMillis() {
+        return toMillis(mRequestWriteNanos);
+    }
+
+    /**
+     * @return the time between sending the request and receiving the response headers in milliseconds.
+     */
+    public long getTimeToFirstByteMillis() {
+        return toMillis(mTimeToFirstByteNanos);
+    }
+
+    /**
+     * @return the time taken to read, decode and parse the response body in milliseconds.
+     */
+    public long getBodyReadMillis() {
+        return toMillis(mBodyReadNanos);
+    }
+
+    /**
+     * @return the time between the response being ready and the callback being run on the main thread in
+     * milliseconds.
+     */
+    public long getCallbackDispatchMillis() {
+        return toMillis(mCallbackDispatchNanos);
+    }
+
+    /**
+     * @return the total time of the call from being made until the callback returned in milliseconds.
+     */
+    public long getCallMillis() {
+        return toMillis(mCallNanos);
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -2,73 +2,136 @@ package com.braintreepayments.api.internal;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.support.annotation.IntDef;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
+import android.util.JsonReader;
 
 import com.braintreepayments.api.core.BuildConfig;
 import com.braintreepayments.api.exceptions.AuthenticationException;
 import com.braintreepayments.api.exceptions.AuthorizationException;
+import com.braintreepayments.api.exceptions.CircuitBreakerOpenException;
 import com.braintreepayments.api.exceptions.DownForMaintenanceException;
 import com.braintreepayments.api.exceptions.RateLimitException;
 import com.braintreepayments.api.exceptions.ServerException;
 import com.braintreepayments.api.exceptions.UnexpectedException;
 import com.braintreepayments.api.exceptions.UnprocessableEntityException;
 import com.braintreepayments.api.exceptions.UpgradeRequiredException;
+import com.braintreepayments.api.interfaces.ConditionalHttpResponseCallback;
+import com.braintreepayments.api.interfaces.HttpEventListener;
 import com.braintreepayments.api.interfaces.HttpResponseCallback;
+import com.braintreepayments.api.interfaces.ParsedHttpResponseCallback;
+import com.braintreepayments.api.interfaces.StreamingHttpResponseCallback;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLSocketFactory;
 
 import static java.net.HttpURLConnection.HTTP_ACCEPTED;
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static java.net.HttpURLConnection.HTTP_CREATED;
 import static java.net.HttpURLConnection.HTTP_FORBIDDEN;
 import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_OK;
 import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
 import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
+import static java.net.HttpURLConnection.HTTP_UNSUPPORTED_TYPE;
 
 public class HttpClient<T extends HttpClient> {
 
-    private static final String METHOD_GET = "GET";
-    private static final String METHOD_POST = "POST";
+    /**
+     * The priority a request is dispatched with. Requests made with {@link #PRIORITY_USER_INITIATED} are run ahead
+     * of any queued {@link #PRIORITY_BACKGROUND} requests and background requests are deferred while user initiated
+     * requests are in flight.
+     */
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({HttpClient.PRIORITY_USER_INITIATED, HttpClient.PRIORITY_BACKGROUND})
+    public @interface RequestPriority {}
+
+    /**
+     * Requests the user is waiting on, such as fetching configuration or tokenizing. This is the default.
+     */
+    public static final int PRIORITY_USER_INITIATED = 0;
+
+    /**
+     * Requests the user is not waiting on, such as analytics.
+     */
+    public static final int PRIORITY_BACKGROUND = 1;
+
+    protected static final String METHOD_GET = "GET";
+    protected static final String METHOD_POST = "POST";
     private static final String UTF_8 = "UTF-8";
+    private static final int BUFFER_SIZE = 4 * 1024;
 
-    private final Handler mMainThreadHandler;
+    private Handler mMainThreadHandler;
+    private final Set<HttpCall> mCalls = new HashSet<>();
 
     @VisibleForTesting
-    protected final ExecutorService mThreadPool;
+    protected final HttpDispatcher mDispatcher;
 
     private String mUserAgent;
     private SSLSocketFactory mSSLSocketFactory;
     private int mConnectTimeout;
     private int mReadTimeout;
+    private boolean mConnectionReuseEnabled;
+    private boolean mRequestCoalescingEnabled;
+    private HttpRequestCoalescer mRequestCoalescer;
+    private HttpTransport mTransport;
+    private RetryPolicy mRetryPolicy;
+    private CircuitBreaker mCircuitBreaker;
+    private AdaptiveTimeouts mAdaptiveTimeouts;
+    private HttpEventListener mEventListener;
+    private Executor mCallbackExecutor;
+    private int mRequestCompressionThreshold;
+    private RequestCompressionNegotiator mCompressionNegotiator;
+    private final ByteArrayPool mByteArrayPool = ByteArrayPool.getInstance();
 
     protected String mBaseUrl;
 
     public HttpClient() {
-        mThreadPool =  Executors.newCachedThreadPool();
-        mMainThreadHandler = new Handler(Looper.getMainLooper());
+        mDispatcher = HttpDispatcher.getInstance();
         mUserAgent = "braintree/core/" + BuildConfig.VERSION_NAME;
         mConnectTimeout = (int) TimeUnit.SECONDS.toMillis(30);
         mReadTimeout = (int) TimeUnit.SECONDS.toMillis(30);
+        mConnectionReuseEnabled = false;
+        mRequestCoalescingEnabled = false;
+        mRequestCoalescer = HttpRequestCoalescer.getInstance();
+        mCompressionNegotiator = RequestCompressionNegotiator.getInstance();
+        mRetryPolicy = RetryPolicy.none();
+        mRequestCompressionThreshold = -1;
 
         try {
-            mSSLSocketFactory = new TLSSocketFactory();
+            mSSLSocketFactory = TLSSocketFactory.getInstance();
         } catch (SSLException e) {
             mSSLSocketFactory = null;
         }
@@ -125,43 +188,303 @@ public class HttpClient<T extends HttpClient> {
         return (T) this;
     }
 
+    /**
+     * Sets the {@link AdaptiveTimeouts} that derive connect timeouts from the time taken to connect to each host
+     * and read timeouts from the response times of each operation, measured on the current network type. The
+     * timeouts set with {@link #setConnectTimeout(int)} and {@link #setReadTimeout(int)} are used until enough
+     * samples have been measured, and read timeouts of requests that are not idempotent according to the
+     * {@link RetryPolicy} are never shortened below the configured timeout. Defaults to {@code null}, which always
+     * uses the configured timeouts.
+     *
+     * @param adaptiveTimeouts the {@link AdaptiveTimeouts} to use, or {@code null} to disable them.
+     * @return {@link HttpClient} for method chaining.
+     */
+    @SuppressWarnings("unchecked")
+    public T setAdaptiveTimeouts(@Nullable AdaptiveTimeouts adaptiveTimeouts) {
+        mAdaptiveTimeouts = adaptiveTimeouts;
+        return (T) this;
+    }
+
+    /**
+     * Reused sockets are kept by the keep-alive pool of the platform's {@link HttpURLConnection}, which only takes
+     * back a connection once its response has been fully read and closed. Every response is drained and closed for
+     * this reason, including error responses and responses parsed from the stream. The size of the pool and how
+     * long idle connections are kept are up to the platform.
+     *
+     * @param enabled {@code true} to keep connections alive after a response has been fully read so that the
+     * underlying socket can be reused by the next request to the same host, {@code false} to disconnect every
+     * connection once a request completes. Defaults to {@code false}.
+     * @return {@link HttpClient} for method chaining.
+     */
+    @SuppressWarnings("unchecked")
+    public T setConnectionReuseEnabled(boolean enabled) {
+        mConnectionReuseEnabled = enabled;
+        return (T) this;
+    }
+
+    /**
+     * @param enabled {@code true} to make a single network call for identical GET requests that are in flight at
+     * the same time and deliver its response to every caller, {@code false} to make a network call for every
+     * request. Requests are identical when they have the same url and headers. Defaults to {@code false}.
+     * @return {@link HttpClient} for method chaining.
+     * @see HttpRequestCoalescer
+     */
+    @SuppressWarnings("unchecked")
+    public T setRequestCoalescingEnabled(boolean enabled) {
+        mRequestCoalescingEnabled = enabled;
+        return (T) this;
+    }
+
+    /**
+     * @return the {@link HttpRequestCoalescer} GET requests are coalesced with when request coalescing is enabled.
+     */
+    public HttpRequestCoalescer getRequestCoalescer() {
+        return mRequestCoalescer;
+    }
+
     /**
      * Make a HTTP GET request to using the base url and path provided. If the path is a full url,
      * it will be used instead of the previously provided base url.
      *
      * @param path The path or url to request from the server via GET
      * @param callback The {@link HttpResponseCallback} to receive the response or error.
+     * @return {@link HttpCall} to cancel the request with.
+     */
+    public HttpCall get(String path, HttpResponseCallback callback) {
+        return get(path, PRIORITY_USER_INITIATED, callback);
+    }
+
+    /**
+     * Make a HTTP GET request to using the base url and path provided with the given priority.
+     *
+     * @param path The path or url to request from the server via GET
+     * @param priority The {@link RequestPriority} to dispatch the request with.
+     * @param callback The {@link HttpResponseCallback} to receive the response or error.
+     * @return {@link HttpCall} to cancel the request with.
+     * @see #get(String, HttpResponseCallback)
      */
-    public void get(final String path, final HttpResponseCallback callback) {
+    public HttpCall get(final String path, @RequestPriority int priority, final HttpResponseCallback callback) {
         if (path == null) {
             postCallbackOnMainThread(callback, new IllegalArgumentException("Path cannot be null"));
-            return;
+            return HttpCall.finished();
         }
 
-        final String url;
-        if (path.startsWith("http")) {
-            url = path;
-        } else {
-            url = mBaseUrl + path;
+        final String url = getUrl(path);
+        final HttpCall call = newCall(METHOD_GET, url);
+
+        if (!mRequestCoalescingEnabled) {
+            enqueue(call, url, priority, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        postCallbackOnMainThread(callback, execute(METHOD_GET, url, null, call), call);
+                    } catch (RetryScheduledException ignored) {
+                    } catch (Exception e) {
+                        postCallbackOnMainThread(callback, e, call);
+                    }
+                }
+            });
+            return call;
+        }
+
+        final String key = getRequestKey(METHOD_GET, url);
+        if (!mRequestCoalescer.join(key, new CancellableCallback(call, callback))) {
+            return call;
         }
 
-        mThreadPool.submit(new Runnable() {
+        // the network request is shared by every waiting callback, so cancelling any one call does not cancel it
+        final HttpCall networkCall = new HttpCall(null, newCallMetrics(METHOD_GET, url));
+        enqueue(networkCall, url, priority, new Runnable() {
             @Override
             public void run() {
-                HttpURLConnection connection = null;
+                String response = null;
+                Exception exception = null;
                 try {
-                    connection = init(url);
-                    connection.setRequestMethod(METHOD_GET);
-                    postCallbackOnMainThread(callback, parseResponse(connection));
+                    response = execute(METHOD_GET, url, null, networkCall);
+                } catch (RetryScheduledException e) {
+                    return;
                 } catch (Exception e) {
-                    postCallbackOnMainThread(callback, e);
-                } finally {
-                    if (connection != null) {
-                        connection.disconnect();
+                    exception = e;
+                }
+
+                HttpCall reportingCall = networkCall;
+                for (HttpResponseCallback waitingCallback : mRequestCoalescer.complete(key)) {
+                    if (exception == null) {
+                        postCallbackOnMainThread(waitingCallback, response, reportingCall);
+                    } else {
+                        postCallbackOnMainThread(waitingCallback, exception, reportingCall);
                     }
+
+                    // the network request is only reported once, with the first waiting callback
+                    reportingCall = null;
+                }
+            }
+        });
+
+        return call;
+    }
+
+    /**
+     * @return a key that is equal for requests with the same method, url and headers, whatever order
+     * {@link #getHeaders()} returns the headers in.
+     */
+    private String getRequestKey(String method, String url) {
+        return method + " " + url + " " + new TreeMap<>(getHeaders());
+    }
+
+    /**
+     * Make a HTTP GET request using the base url and path provided, parsing the response body on the thread the
+     * request was made on instead of the thread the callback is delivered on.
+     *
+     * @param path The path or url to request from the server via GET
+     * @param callback The {@link ParsedHttpResponseCallback} to parse and receive the response or error.
+     * @return {@link HttpCall} to cancel the request with.
+     * @see #get(String, HttpResponseCallback)
+     */
+    public <R> HttpCall getParsed(String path, ParsedHttpResponseCallback<R> callback) {
+        return get(path, PRIORITY_USER_INITIATED, new ParsingCallback<R>(callback));
+    }
+
+    /**
+     * Make a HTTP GET request using the base url and path provided, parsing the response body directly from the
+     * network stream instead of reading it into a {@link String} first. Useful for large responses.
+     *
+     * @param path The path or url to request from the server via GET
+     * @param priority The {@link RequestPriority} to dispatch the request with.
+     * @param callback The {@link StreamingHttpResponseCallback} to parse and receive the response or error.
+     * @return {@link HttpCall} to cancel the request with.
+     * @see #get(String, int, HttpResponseCallback)
+     */
+    public <R> HttpCall get(final String path, @RequestPriority int priority,
+            final StreamingHttpResponseCallback<R> callback) {
+        if (path == null) {
+            postCallbackOnMainThread(callback, new IllegalArgumentException("Path cannot be null"));
+            return HttpCall.finished();
+        }
+
+        final String url = getUrl(path);
+        final HttpCall call = newCall(METHOD_GET, url);
+
+        enqueue(call, url, priority, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    R response = execute(METHOD_GET, url, null, null, call, new ResponseReader<R>() {
+                        @Override
+                        public R read(HttpURLConnection connection) throws Exception {
+                            int responseCode = connection.getResponseCode();
+                            if (isSuccessful(responseCode)) {
+                                return parseStream(connection.getInputStream(),
+                                        "gzip".equals(connection.getContentEncoding()), callback);
+                            }
+
+                            parseResponse(connection);
+                            throw new UnexpectedException("Unexpected response code " + responseCode);
+                        }
+
+                        @Override
+                        public R read(HttpTransportResponse response) throws Exception {
+                            boolean gzip = "gzip".equals(response.getHeader("Content-Encoding"));
+                            if (isSuccessful(response.getResponseCode())) {
+                                return parseStream(response.getBody(), gzip, callback);
+                            }
+
+                            parseResponse(response.getResponseCode(), getBody(response), gzip);
+                            throw new UnexpectedException("Unexpected response code " +
+                                    response.getResponseCode());
+                        }
+                    });
+
+                    postCallbackOnMainThread(callback, response, call);
+                } catch (RetryScheduledException ignored) {
+                } catch (Exception e) {
+                    postCallbackOnMainThread(callback, e, call);
+                }
+            }
+        });
+
+        return call;
+    }
+
+    /**
+     * Make a conditional HTTP GET request using the base url and path provided. When validators from a previous
+     * response are given they are sent as {@code If-None-Match} and {@code If-Modified-Since} headers and the
+     * server may respond with {@link HttpURLConnection#HTTP_NOT_MODIFIED} instead of the response body.
+     *
+     * @param path The path or url to request from the server via GET
+     * @param priority The {@link RequestPriority} to dispatch the request with.
+     * @param validators The {@link HttpValidators} of the previous response, if any.
+     * @param callback The {@link ConditionalHttpResponseCallback} to receive the response or error.
+     * @return {@link HttpCall} to cancel the request with.
+     * @see #get(String, int, HttpResponseCallback)
+     */
+    public HttpCall get(final String path, @RequestPriority int priority, @Nullable HttpValidators validators,
+            final ConditionalHttpResponseCallback callback) {
+        if (path == null) {
+            postCallbackOnMainThread(callback, new IllegalArgumentException("Path cannot be null"));
+            return HttpCall.finished();
+        }
+
+        final String url = getUrl(path);
+        final Map<String, String> headers = new LinkedHashMap<>();
+        if (validators != null && validators.getETag() != null) {
+            headers.put("If-None-Match", validators.getETag());
+        }
+        if (validators != null && validators.getLastModified() != null) {
+            headers.put("If-Modified-Since", validators.getLastModified());
+        }
+        final HttpCall call = newCall(METHOD_GET, url);
+
+        enqueue(call, url, priority, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final ConditionalResponse response = execute(METHOD_GET, url, null, headers, call,
+                            new ResponseReader<ConditionalResponse>() {
+                                @Override
+                                public ConditionalResponse read(HttpURLConnection connection) throws Exception {
+                                    HttpValidators validators = new HttpValidators(
+                                            connection.getHeaderField("ETag"),
+                                            connection.getHeaderField("Last-Modified"));
+                                    if (connection.getResponseCode() == HTTP_NOT_MODIFIED) {
+                                        return new ConditionalResponse(null, validators);
+                                    }
+
+                                    return new ConditionalResponse(parseResponse(connection), validators);
+                                }
+
+                                @Override
+                                public ConditionalResponse read(HttpTransportResponse response) throws Exception {
+                                    HttpValidators validators = new HttpValidators(response.getHeader("ETag"),
+                                            response.getHeader("Last-Modified"));
+                                    if (response.getResponseCode() == HTTP_NOT_MODIFIED) {
+                                        return new ConditionalResponse(null, validators);
+                                    }
+
+                                    return new ConditionalResponse(parseResponse(response.getResponseCode(),
+                                            getBody(response), "gzip".equals(response.getHeader("Content-Encoding"))),
+                                            validators);
+                                }
+                            });
+
+                    postOnCallbackExecutor(call, new Runnable() {
+                        @Override
+                        public void run() {
+                            if (response.mBody == null) {
+                                callback.notModified(response.mValidators);
+                            } else {
+                                callback.success(response.mBody, response.mValidators);
+                            }
+                        }
+                    });
+                } catch (RetryScheduledException ignored) {
+                } catch (Exception e) {
+                    postCallbackOnMainThread(callback, e, call);
                 }
             }
         });
+
+        return call;
     }
 
     /**
@@ -171,23 +494,59 @@ public class HttpClient<T extends HttpClient> {
      * @param path The path or url to request from the server via HTTP POST
      * @param data The body of the POST request
      * @param callback The {@link HttpResponseCallback} to receive the response or error.
+     * @return {@link HttpCall} to cancel the request with.
+     */
+    public HttpCall post(String path, String data, HttpResponseCallback callback) {
+        return post(path, data, PRIORITY_USER_INITIATED, callback);
+    }
+
+    /**
+     * Make a HTTP POST request using the base url and path provided with the given priority.
+     *
+     * @param path The path or url to request from the server via HTTP POST
+     * @param data The body of the POST request
+     * @param priority The {@link RequestPriority} to dispatch the request with.
+     * @param callback The {@link HttpResponseCallback} to receive the response or error.
+     * @return {@link HttpCall} to cancel the request with.
+     * @see #post(String, String, HttpResponseCallback)
      */
-    public void post(final String path, final String data, final HttpResponseCallback callback) {
+    public HttpCall post(final String path, final String data, @RequestPriority int priority,
+            final HttpResponseCallback callback) {
         if (path == null) {
             postCallbackOnMainThread(callback, new IllegalArgumentException("Path cannot be null"));
-            return;
+            return HttpCall.finished();
         }
 
-        mThreadPool.submit(new Runnable() {
+        final String url = getUrl(path);
+        final HttpCall call = newCall(METHOD_POST, url);
+
+        enqueue(call, url, priority, new Runnable() {
             @Override
             public void run() {
                 try {
-                    postCallbackOnMainThread(callback, post(path, data));
+                    postCallbackOnMainThread(callback, execute(METHOD_POST, url, data, call), call);
+                } catch (RetryScheduledException ignored) {
                 } catch (Exception e) {
-                    postCallbackOnMainThread(callback, e);
+                    postCallbackOnMainThread(callback, e, call);
                 }
             }
         });
+
+        return call;
+    }
+
+    /**
+     * Make a HTTP POST request using the base url and path provided, parsing the response body on the thread the
+     * request was made on instead of the thread the callback is delivered on.
+     *
+     * @param path The path or url to request from the server via HTTP POST
+     * @param data The body of the POST request
+     * @param callback The {@link ParsedHttpResponseCallback} to parse and receive the response or error.
+     * @return {@link HttpCall} to cancel the request with.
+     * @see #post(String, String, HttpResponseCallback)
+     */
+    public <R> HttpCall postParsed(String path, String data, ParsedHttpResponseCallback<R> callback) {
+        return post(path, data, PRIORITY_USER_INITIATED, new ParsingCallback<R>(callback));
     }
 
     /**
@@ -201,129 +560,1061 @@ public class HttpClient<T extends HttpClient> {
      * @throws Exception
      */
     public String post(String path, String data) throws Exception {
-        HttpURLConnection connection = null;
+        return post(path, data, PRIORITY_USER_INITIATED);
+    }
+
+    /**
+     * Performs a synchronous post request with the given priority. Synchronous requests are not dispatched, the
+     * priority only decides whether the request is guarded by the {@link CircuitBreaker}.
+     *
+     * @param path the path or url to request from the server via HTTP POST
+     * @param data the body of the post request
+     * @param priority The {@link RequestPriority} of the request.
+     * @return The HTTP body the of the response
+     *
+     * @see #setCircuitBreaker(CircuitBreaker)
+     * @throws Exception
+     */
+    public String post(String path, String data, @RequestPriority int priority) throws Exception {
+        String url = getUrl(path);
+        HttpCall call = newCall(METHOD_POST, url);
+        call.setPriority(priority);
         try {
-            if (path.startsWith("http")) {
-                connection = init(path);
-            } else {
-                connection = init(mBaseUrl + path);
-            }
+            return execute(METHOD_POST, url, data, call);
+        } finally {
+            finish(call);
+        }
+    }
 
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestMethod(METHOD_POST);
-            connection.setDoOutput(true);
+    /**
+     * Connects to the host of the given path or url in the background without sending a request, so the next
+     * request made to the host finds its address resolved and resumes the TLS session instead of negotiating a new
+     * one. The connection is closed once it is open. It is made at {@link #PRIORITY_BACKGROUND}, is not retried and
+     * is not reported to the {@link HttpEventListener} or the {@link AdaptiveTimeouts}. Has no effect when a
+     * {@link HttpTransport} is set.
+     *
+     * @param path The path or url of the host to connect to.
+     * @return {@link HttpCall} to cancel the connection with.
+     */
+    public HttpCall preconnect(String path) {
+        if (path == null || mTransport != null) {
+            return HttpCall.finished();
+        }
 
-            writeOutputStream(connection.getOutputStream(), data);
+        final String url = getUrl(path);
+        final HttpCall call = newCall((HttpCallMetrics) null);
 
-            return parseResponse(connection);
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
+        enqueue(call, url, PRIORITY_BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                HttpURLConnection connection = null;
+                try {
+                    connection = init(url);
+                    if (call.connecting(connection)) {
+                        connection.connect();
+                    }
+                } catch (IOException ignored) {
+                } finally {
+                    call.connecting(null);
+                    if (connection != null) {
+                        connection.disconnect();
+                    }
+                    finish(call);
+                }
             }
+        });
+
+        return call;
+    }
+
+    /**
+     * Cancels every request made by this client that has not finished yet.
+     *
+     * @see HttpCall#cancel()
+     */
+    public void cancelAll() {
+        List<HttpCall> calls;
+        synchronized (mCalls) {
+            calls = new ArrayList<>(mCalls);
+        }
+
+        for (HttpCall call : calls) {
+            call.cancel();
         }
     }
 
-    protected HttpURLConnection init(String url) throws IOException {
-        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    /**
+     * Sets the {@link Executor} callbacks are delivered on. Defaults to the main thread. Responses to requests made
+     * with a {@link ParsedHttpResponseCallback} are always parsed on the thread the request was made on, before
+     * being delivered.
+     *
+     * @param callbackExecutor the {@link Executor} to deliver callbacks on, or {@code null} to deliver them on the
+     * main thread.
+     * @return {@link HttpClient} for method chaining.
+     */
+    @SuppressWarnings("unchecked")
+    public T setCallbackExecutor(@Nullable Executor callbackExecutor) {
+        mCallbackExecutor = callbackExecutor;
+        return (T) this;
+    }
 
-        if (connection instanceof HttpsURLConnection) {
-            if (mSSLSocketFactory == null) {
-                throw new SSLException("SSLSocketFactory was not set or failed to initialize");
-            }
+    /**
+     * @param eventListener the {@link HttpEventListener} to report the timings of every call to, or {@code null}
+     * to stop reporting.
+     * @return {@link HttpClient} for method chaining.
+     */
+    @SuppressWarnings("unchecked")
+    public T setEventListener(@Nullable HttpEventListener eventListener) {
+        mEventListener = eventListener;
+        return (T) this;
+    }
 
-            ((HttpsURLConnection) connection).setSSLSocketFactory(mSSLSocketFactory);
+    /**
+     * Names the logical operation a call is made for when reporting its {@link HttpCallMetrics}. Defaults to the
+     * path of the url.
+     *
+     * @param method the HTTP method of the call.
+     * @param url the url of the call.
+     * @return the name of the operation.
+     */
+    protected String getOperation(String method, String url) {
+        try {
+            return new URL(url).getPath();
+        } catch (MalformedURLException e) {
+            return url;
         }
+    }
 
-        connection.setRequestProperty("User-Agent", mUserAgent);
-        connection.setRequestProperty("Accept", "application/json");
-        connection.setRequestProperty("Accept-Language", Locale.getDefault().getLanguage());
-        connection.setRequestProperty("Accept-Encoding", "gzip");
-        connection.setConnectTimeout(mConnectTimeout);
-        connection.setReadTimeout(mReadTimeout);
+    /**
+     * Sets the {@link CircuitBreaker} that stops requests to endpoints that keep failing. Only requests made at
+     * {@link #PRIORITY_BACKGROUND} are guarded, user initiated requests are always sent. Guarded requests made
+     * while the circuit for their endpoint is open fail immediately with a {@link CircuitBreakerOpenException} and
+     * are not retried. A request counts as a single failure once it has failed and will not be retried. Defaults to
+     * {@code null}, which sends every request.
+     *
+     * @param circuitBreaker the {@link CircuitBreaker} to use, or {@code null} to disable it.
+     * @return {@link HttpClient} for method chaining.
+     */
+    @SuppressWarnings("unchecked")
+    public T setCircuitBreaker(@Nullable CircuitBreaker circuitBreaker) {
+        mCircuitBreaker = circuitBreaker;
+        return (T) this;
+    }
 
-        return connection;
+    /**
+     * Enables gzip compression of request bodies of at least the given number of characters, sent with
+     * {@code Content-Encoding: gzip}. Bodies are only compressed once the endpoint has listed {@code gzip} in the
+     * {@code Accept-Encoding} header of an earlier response and {@link #isRequestCompressionSupported(String)}
+     * returns {@code true}. When an endpoint responds to a compressed request with
+     * {@link HttpURLConnection#HTTP_UNSUPPORTED_TYPE} the request is sent again uncompressed, as are all later
+     * requests to the endpoint from any {@link HttpClient}. A {@link HttpURLConnection#HTTP_BAD_REQUEST} response
+     * whose body is not a json error is treated the same way, except that the request is only sent again if
+     * {@link RetryPolicy#isIdempotent(String, String)}. Disabled by default.
+     *
+     * @param threshold the minimum length of a request body to compress, or a negative number to disable
+     * compression.
+     * @return {@link HttpClient} for method chaining.
+     */
+    @SuppressWarnings("unchecked")
+    public T setRequestCompressionThreshold(int threshold) {
+        mRequestCompressionThreshold = threshold;
+        return (T) this;
     }
 
-    protected void writeOutputStream(OutputStream outputStream, String data) throws IOException {
-        Writer out = new OutputStreamWriter(outputStream, UTF_8);
-        out.write(data, 0, data.length());
-        out.flush();
-        out.close();
+    /**
+     * Decides whether request bodies sent to the given url may be compressed when the endpoint advertises support
+     * for it. Defaults to {@code true}, override to never compress requests to some endpoints.
+     *
+     * @param url the url of the request.
+     * @return {@code true} if the endpoint accepts gzip compressed request bodies.
+     * @see #setRequestCompressionThreshold(int)
+     */
+    protected boolean isRequestCompressionSupported(String url) {
+        return true;
     }
 
-    protected String parseResponse(HttpURLConnection connection) throws Exception {
-        int responseCode = connection.getResponseCode();
-        boolean gzip = "gzip".equals(connection.getContentEncoding());
-        switch(responseCode) {
-            case HTTP_OK: case HTTP_CREATED: case HTTP_ACCEPTED:
-                return readStream(connection.getInputStream(), gzip);
-            case HTTP_UNAUTHORIZED:
-                throw new AuthenticationException(readStream(connection.getErrorStream(), gzip));
-            case HTTP_FORBIDDEN:
-                throw new AuthorizationException(readStream(connection.getErrorStream(), gzip));
-            case 422: // HTTP_UNPROCESSABLE_ENTITY
-                throw new UnprocessableEntityException(readStream(connection.getErrorStream(), gzip));
-            case 426: // HTTP_UPGRADE_REQUIRED
-                throw new UpgradeRequiredException(readStream(connection.getErrorStream(), gzip));
-            case 429: // HTTP_TOO_MANY_REQUESTS
-                throw new RateLimitException("You are being rate-limited. Please try again in a few minutes.");
-            case HTTP_INTERNAL_ERROR:
-                throw new ServerException(readStream(connection.getErrorStream(), gzip));
-            case HTTP_UNAVAILABLE:
-                throw new DownForMaintenanceException(readStream(connection.getErrorStream(), gzip));
-            default:
-                throw new UnexpectedException(readStream(connection.getErrorStream(), gzip));
-        }
+    /**
+     * Sets the {@link HttpTransport} used to send requests. When no transport is set, requests are sent using
+     * {@link HttpURLConnection}.
+     *
+     * @param transport the {@link HttpTransport} to use, or {@code null} to use {@link HttpURLConnection}.
+     * @return {@link HttpClient} for method chaining.
+     */
+    @SuppressWarnings("unchecked")
+    public T setTransport(@Nullable HttpTransport transport) {
+        mTransport = transport;
+        return (T) this;
     }
 
-    void postCallbackOnMainThread(final HttpResponseCallback callback, final String response) {
-        if (callback == null) {
-            return;
-        }
+    private String execute(String method, String url, @Nullable String data, HttpCall call) throws Exception {
+        return execute(method, url, data, null, call, new ResponseReader<String>() {
+            @Override
+            public String read(HttpURLConnection connection) throws Exception {
+                return parseResponse(connection);
+            }
 
-        mMainThreadHandler.post(new Runnable() {
             @Override
-            public void run() {
-                callback.success(response);
+            public String read(HttpTransportResponse response) throws Exception {
+                return parseResponse(response.getResponseCode(), getBody(response),
+                        "gzip".equals(response.getHeader("Content-Encoding")));
             }
         });
     }
 
-    void postCallbackOnMainThread(final HttpResponseCallback callback, final Exception exception) {
-        if (callback == null) {
-            return;
-        }
-
-        mMainThreadHandler.post(new Runnable() {
-            @Override
+    /**
+     * Sets the {@link RetryPolicy} used to decide if and when failed requests are retried. Asynchronous requests
+     * give up their {@link HttpDispatcher} worker thread while they wait to be retried and are queued again once
+     * the delay has passed. Synchronous requests wait on the calling thread. Cancelled requests are not retried.
+     * Defaults to {@link RetryPolicy#none()}.
+     *
+     * @param retryPolicy the {@link RetryPolicy} to use.
+     * @return {@link HttpClient} for method chaining.
+     */
+    @SuppressWarnings("unchecked")
+    public T setRetryPolicy(RetryPolicy retryPolicy) {
+        mRetryPolicy = (retryPolicy == null) ? RetryPolicy.none() : retryPolicy;
+        return (T) this;
+    }
+
+    private <R> R execute(String method, String url, @Nullable String data, @Nullable Map<String, String> headers,
+            HttpCall call, ResponseReader<R> reader) throws Exception {
+        HttpCallMetrics metrics = call.getMetrics();
+        RetryPolicy retryPolicy = mRetryPolicy;
+        if (call.mAttempts == 0) {
+            metrics.executing();
+            retryPolicy.onRequest();
+        }
+        CircuitBreaker circuitBreaker = call.getPriority() == PRIORITY_BACKGROUND ? mCircuitBreaker : null;
+
+        for (int attempt = call.mAttempts + 1; ; attempt++) {
+            if (call.isCancelled()) {
+                throw new IOException("Canceled");
+            }
+
+            call.mAttempts = attempt;
+            Attempt current = new Attempt(call);
+            metrics.attempting(attempt);
+            if (circuitBreaker != null) {
+                try {
+                    circuitBreaker.acquire(url);
+                } catch (CircuitBreakerOpenException e) {
+                    metrics.mException = e;
+                    throw e;
+                }
+            }
+
+            try {
+                R response = execute(method, url, data, headers, reader, current);
+                metrics.mException = null;
+                if (circuitBreaker != null) {
+                    circuitBreaker.onSuccess(url);
+                }
+                return response;
+            } catch (Exception e) {
+                metrics.mException = e;
+                if (call.isCancelled()) {
+                    if (circuitBreaker != null) {
+                        circuitBreaker.release(url);
+                    }
+                    throw e;
+                }
+
+                AdaptiveTimeouts adaptiveTimeouts = mAdaptiveTimeouts;
+                if (adaptiveTimeouts != null && e instanceof SocketTimeoutException) {
+                    adaptiveTimeouts.onTimeout(url, metrics.getOperation());
+                }
+
+                if (current.mCompressionRejected) {
+                    // the endpoint does not accept compressed bodies, send the request again uncompressed right away
+                    if (circuitBreaker != null) {
+                        circuitBreaker.release(url);
+                    }
+                    continue;
+                }
+
+                long delay = retryPolicy.getRetryDelay(method, url, attempt, e, current.mRetryAfter);
+                if (circuitBreaker != null) {
+                    // only the final outcome of a request counts towards opening the circuit
+                    if (delay < 0) {
+                        circuitBreaker.onFailure(url, e);
+                    } else {
+                        circuitBreaker.release(url);
+                    }
+                }
+
+                if (delay < 0) {
+                    throw e;
+                } else if (delay > 0 && call.retryLater(delay)) {
+                    throw new RetryScheduledException();
+                }
+
+                call.waitForRetry(delay);
+            }
+        }
+    }
+
+    private <R> R execute(String method, String url, @Nullable String data, @Nullable Map<String, String> headers,
+            ResponseReader<R> reader, Attempt attempt) throws Exception {
+        if (mTransport != null) {
+            return executeWithTransport(method, url, data, headers, reader, attempt);
+        }
+
+        HttpURLConnection connection = null;
+        boolean reusable = false;
+        try {
+            connection = init(url);
+            if (!attempt.mCall.connecting(connection)) {
+                throw new IOException("Canceled");
+            }
+
+            HttpCallMetrics metrics = attempt.mCall.getMetrics();
+            connection.setRequestMethod(method);
+            connection.setReadTimeout(getReadTimeout(method, url, metrics));
+
+            if (headers != null) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    connection.setRequestProperty(header.getKey(), header.getValue());
+                }
+            }
+
+            byte[] body = null;
+            if (data != null) {
+                connection.setRequestProperty("Content-Type", "application/json");
+                body = compressRequestBody(url, data);
+                if (body != null) {
+                    connection.setRequestProperty("Content-Encoding", "gzip");
+                    metrics.mRequestGzip = true;
+                } else {
+                    body = data.getBytes(UTF_8);
+                }
+
+                // stream the body instead of letting the connection buffer a copy of it
+                connection.setFixedLengthStreamingMode(body.length);
+                connection.setDoOutput(true);
+            }
+
+            long start = System.nanoTime();
+            connection.connect();
+            metrics.mConnectNanos = System.nanoTime() - start;
+
+            if (body != null) {
+                start = System.nanoTime();
+                writeOutputStream(connection.getOutputStream(), body);
+                metrics.mRequestWriteNanos = System.nanoTime() - start;
+            }
+
+            start = System.nanoTime();
+            metrics.mResponseCode = connection.getResponseCode();
+            metrics.mTimeToFirstByteNanos = System.nanoTime() - start;
+            metrics.mGzip = "gzip".equals(connection.getContentEncoding());
+            onResponseStarted(url, metrics);
+
+            if (mRequestCompressionThreshold >= 0) {
+                mCompressionNegotiator.onResponse(url, connection.getHeaderField("Accept-Encoding"));
+            }
+
+            start = System.nanoTime();
+            R response;
+            try {
+                response = reader.read(connection);
+            } catch (Exception e) {
+                onResponseFailed(method, url, e, attempt);
+                throw e;
+            }
+            metrics.mBodyReadNanos = System.nanoTime() - start;
+
+            reusable = true;
+            return response;
+        } catch (Exception e) {
+            reusable = !(e instanceof IOException);
+            if (connection != null) {
+                attempt.mRetryAfter = connection.getHeaderField("Retry-After");
+            }
+            throw e;
+        } finally {
+            attempt.mCall.connecting(null);
+            releaseConnection(connection, reusable);
+        }
+    }
+
+    private <R> R executeWithTransport(String method, String url, @Nullable String data,
+            @Nullable Map<String, String> headers, ResponseReader<R> reader, Attempt attempt) throws Exception {
+        if (url.startsWith("https") && mSSLSocketFactory == null) {
+            throw new SSLException("SSLSocketFactory was not set or failed to initialize");
+        }
+
+        HttpTransportRequest request = new HttpTransportRequest(method, url)
+                .headers(getHeaders())
+                .connectTimeout(getConnectTimeout(url))
+                .readTimeout(getReadTimeout(method, url, attempt.mCall.getMetrics()))
+                .sslSocketFactory(mSSLSocketFactory);
+
+        if (headers != null) {
+            request.headers(headers);
+        }
+
+        HttpCallMetrics metrics = attempt.mCall.getMetrics();
+        byte[] compressedBody = null;
+        if (data != null) {
+            request.header("Content-Type", "application/json");
+            compressedBody = compressRequestBody(url, data);
+            if (compressedBody != null) {
+                request.header("Content-Encoding", "gzip")
+                        .body(compressedBody);
+                metrics.mRequestGzip = true;
+            } else {
+                request.body(data.getBytes(UTF_8));
+            }
+        }
+
+        // requests sent with a transport can not be interrupted once sent
+        if (attempt.mCall.isCancelled()) {
+            throw new IOException("Canceled");
+        }
+
+        long start = System.nanoTime();
+        HttpTransportResponse response = mTransport.execute(request);
+        metrics.mTimeToFirstByteNanos = System.nanoTime() - start;
+        metrics.mResponseCode = response.getResponseCode();
+        onResponseStarted(url, metrics);
+        metrics.mGzip = "gzip".equals(response.getHeader("Content-Encoding"));
+        attempt.mRetryAfter = response.getHeader("Retry-After");
+        if (mRequestCompressionThreshold >= 0) {
+            mCompressionNegotiator.onResponse(url, response.getHeader("Accept-Encoding"));
+        }
+        try {
+            start = System.nanoTime();
+            R parsedResponse = reader.read(response);
+            metrics.mBodyReadNanos = System.nanoTime() - start;
+            return parsedResponse;
+        } catch (Exception e) {
+            onResponseFailed(method, url, e, attempt);
+            throw e;
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Reads a response from either a {@link HttpURLConnection} or a {@link HttpTransportResponse}.
+     */
+    private interface ResponseReader<R> {
+        R read(HttpURLConnection connection) throws Exception;
+        R read(HttpTransportResponse response) throws Exception;
+    }
+
+    /**
+     * The body of a response to a conditional request, {@code null} if it was not modified, and its validators.
+     */
+    private static class ConditionalResponse {
+        final String mBody;
+        final HttpValidators mValidators;
+
+        ConditionalResponse(@Nullable String body, HttpValidators validators) {
+            mBody = body;
+            mValidators = validators;
+        }
+    }
+
+    /**
+     * State of a single attempt at a request that is needed to decide whether to retry it.
+     */
+    private static class Attempt {
+        final HttpCall mCall;
+        String mRetryAfter;
+        boolean mCompressionRejected;
+
+        Attempt(HttpCall call) {
+            mCall = call;
+        }
+    }
+
+    /**
+     * Thrown by an asynchronous request that has been queued on the {@link HttpDispatcher} again to be retried
+     * after a delay. The request's callback is invoked by the retry, so it must not be invoked for this exception.
+     */
+    private static class RetryScheduledException extends Exception {}
+
+    /**
+     * @return the gzip compressed request body, or {@code null} if the body should be sent uncompressed.
+     */
+    @Nullable
+    private byte[] compressRequestBody(String url, String data) throws IOException {
+        int threshold = mRequestCompressionThreshold;
+        if (threshold < 0 || data.length() < threshold || !isRequestCompressionSupported(url)
+                || !mCompressionNegotiator.isCompressionAccepted(url)) {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length() / 4);
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(data.getBytes(UTF_8));
+        gzip.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Records that the endpoint of the url rejected a compressed request body, so requests to it are sent
+     * uncompressed from now on, if it responded with {@link HttpURLConnection#HTTP_UNSUPPORTED_TYPE}, or with
+     * {@link HttpURLConnection#HTTP_BAD_REQUEST} and a body that is not a json error. A bad request may still have
+     * been processed, so it is only sent again uncompressed if it is idempotent.
+     */
+    private void onResponseFailed(String method, String url, Exception exception, Attempt attempt) {
+        HttpCallMetrics metrics = attempt.mCall.getMetrics();
+        if (!metrics.mRequestGzip) {
+            return;
+        }
+
+        if (metrics.mResponseCode == HTTP_UNSUPPORTED_TYPE) {
+            mCompressionNegotiator.onRejected(url);
+            attempt.mCompressionRejected = true;
+        } else if (metrics.mResponseCode == HTTP_BAD_REQUEST && exception instanceof UnexpectedException &&
+                !isJsonObject(exception.getMessage())) {
+            mCompressionNegotiator.onRejected(url);
+            attempt.mCompressionRejected = mRetryPolicy.isIdempotent(method, url);
+        }
+    }
+
+    private static boolean isJsonObject(@Nullable String body) {
+        if (body == null) {
+            return false;
+        }
+
+        try {
+            new JSONObject(body);
+            return true;
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Disconnects the connection, unless connection reuse is enabled and the response was fully read, in which
+     * case the underlying socket is left open for the platform's keep-alive pool.
+     */
+    private void releaseConnection(@Nullable HttpURLConnection connection, boolean reusable) {
+        if (connection != null && !(mConnectionReuseEnabled && reusable)) {
+            connection.disconnect();
+        }
+    }
+
+    private String getUrl(String path) {
+        if (path.startsWith("http")) {
+            return path;
+        } else {
+            return mBaseUrl + path;
+        }
+    }
+
+    private static String getHost(String url) {
+        try {
+            return new URL(url).getHost();
+        } catch (MalformedURLException e) {
+            return "";
+        }
+    }
+
+    protected HttpURLConnection init(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+
+        if (connection instanceof HttpsURLConnection) {
+            if (mSSLSocketFactory == null) {
+                throw new SSLException("SSLSocketFactory was not set or failed to initialize");
+            }
+
+            ((HttpsURLConnection) connection).setSSLSocketFactory(mSSLSocketFactory);
+        }
+
+        for (Map.Entry<String, String> header : getHeaders().entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+
+        connection.setConnectTimeout(getConnectTimeout(url));
+        connection.setReadTimeout(mReadTimeout);
+
+        return connection;
+    }
+
+    private int getConnectTimeout(String url) {
+        AdaptiveTimeouts adaptiveTimeouts = mAdaptiveTimeouts;
+        return adaptiveTimeouts == null ? mConnectTimeout : adaptiveTimeouts.getConnectTimeout(url, mConnectTimeout);
+    }
+
+    private int getReadTimeout(String method, String url, HttpCallMetrics metrics) {
+        AdaptiveTimeouts adaptiveTimeouts = mAdaptiveTimeouts;
+        if (adaptiveTimeouts == null) {
+            return mReadTimeout;
+        }
+
+        return adaptiveTimeouts.getReadTimeout(url, metrics.getOperation(), mReadTimeout,
+                mRetryPolicy.isIdempotent(method, url));
+    }
+
+    private void onResponseStarted(String url, HttpCallMetrics metrics) {
+        AdaptiveTimeouts adaptiveTimeouts = mAdaptiveTimeouts;
+        if (adaptiveTimeouts != null) {
+            adaptiveTimeouts.onConnect(url, metrics.mConnectNanos);
+            adaptiveTimeouts.onResponse(url, metrics.getOperation(), metrics.mTimeToFirstByteNanos);
+        }
+    }
+
+    /**
+     * @return the headers to be sent with every request.
+     */
+    protected Map<String, String> getHeaders() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("User-Agent", mUserAgent);
+        headers.put("Accept", "application/json");
+        headers.put("Accept-Language", Locale.getDefault().getLanguage());
+        headers.put("Accept-Encoding", "gzip");
+        return headers;
+    }
+
+    protected void writeOutputStream(OutputStream outputStream, String data) throws IOException {
+        writeOutputStream(outputStream, data.getBytes(UTF_8));
+    }
+
+    protected void writeOutputStream(OutputStream outputStream, byte[] data) throws IOException {
+        try {
+            outputStream.write(data);
+            outputStream.flush();
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    protected String parseResponse(HttpURLConnection connection) throws Exception {
+        int responseCode = connection.getResponseCode();
+        boolean gzip = "gzip".equals(connection.getContentEncoding());
+        switch(responseCode) {
+            case HTTP_OK: case HTTP_CREATED: case HTTP_ACCEPTED:
+                return parseResponse(responseCode, withContentLength(connection.getInputStream(),
+                        connection.getContentLength()), gzip);
+            default:
+                return parseResponse(responseCode, withContentLength(connection.getErrorStream(),
+                        connection.getContentLength()), gzip);
+        }
+    }
+
+    /**
+     * Reads the response body and returns it for successful response codes or throws the appropriate exception
+     * for unsuccessful ones.
+     *
+     * @param responseCode the HTTP status code of the response.
+     * @param body the response body.
+     * @param gzip {@code true} if the body is gzip encoded.
+     * @return the response body.
+     */
+    protected String parseResponse(int responseCode, @Nullable InputStream body, boolean gzip) throws Exception {
+        switch(responseCode) {
+            case HTTP_OK: case HTTP_CREATED: case HTTP_ACCEPTED:
+                return readStream(body, gzip);
+            case HTTP_UNAUTHORIZED:
+                throw new AuthenticationException(readStream(body, gzip));
+            case HTTP_FORBIDDEN:
+                throw new AuthorizationException(readStream(body, gzip));
+            case 422: // HTTP_UNPROCESSABLE_ENTITY
+                throw new UnprocessableEntityException(readStream(body, gzip));
+            case 426: // HTTP_UPGRADE_REQUIRED
+                throw new UpgradeRequiredException(readStream(body, gzip));
+            case 429: // HTTP_TOO_MANY_REQUESTS
+                readStream(body, gzip);
+                throw new RateLimitException("You are being rate-limited. Please try again in a few minutes.");
+            case HTTP_INTERNAL_ERROR:
+                throw new ServerException(readStream(body, gzip));
+            case HTTP_UNAVAILABLE:
+                throw new DownForMaintenanceException(readStream(body, gzip));
+            default:
+                throw new UnexpectedException(readStream(body, gzip));
+        }
+    }
+
+    private static boolean isSuccessful(int responseCode) {
+        return responseCode == HTTP_OK || responseCode == HTTP_CREATED || responseCode == HTTP_ACCEPTED;
+    }
+
+    private <R> R parseStream(@Nullable InputStream in, boolean gzip, StreamingHttpResponseCallback<R> callback)
+            throws Exception {
+        if (in == null) {
+            in = new ByteArrayInputStream(new byte[0]);
+        }
+
+        if (gzip) {
+            in = new GZIPInputStream(in);
+        }
+
+        JsonReader reader = new JsonReader(new InputStreamReader(in, UTF_8));
+        try {
+            R response = callback.parseResponse(reader);
+
+            byte[] buffer = mByteArrayPool.acquire(BUFFER_SIZE);
+            try {
+                while (in.read(buffer) != -1) {
+                    // drain the remainder of the body so the connection can be reused
+                }
+            } finally {
+                mByteArrayPool.release(buffer);
+            }
+
+            return response;
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private HttpCallMetrics newCallMetrics(String method, String url) {
+        return new HttpCallMetrics(getOperation(method, url), method, url);
+    }
+
+    /**
+     * Creates a {@link HttpCall} and records it as outstanding until it finishes, so it can be cancelled by
+     * {@link #cancelAll()}.
+     */
+    private HttpCall newCall(String method, String url) {
+        return newCall(newCallMetrics(method, url));
+    }
+
+    private HttpCall newCall(@Nullable HttpCallMetrics metrics) {
+        HttpCall call = new HttpCall(this, metrics);
+        synchronized (mCalls) {
+            mCalls.add(call);
+        }
+
+        return call;
+    }
+
+    void removeCall(HttpCall call) {
+        synchronized (mCalls) {
+            mCalls.remove(call);
+        }
+    }
+
+    private void enqueue(HttpCall call, String url, @RequestPriority int priority, Runnable runnable) {
+        String host = getHost(url);
+        call.dispatched(mDispatcher, host, priority, runnable);
+        mDispatcher.enqueue(host, priority, runnable);
+    }
+
+    /**
+     * Wraps the callback of a coalesced request so it is dropped if the given call is cancelled.
+     */
+    private static class CancellableCallback implements HttpResponseCallback {
+        final HttpCall mCall;
+        final HttpResponseCallback mCallback;
+
+        CancellableCallback(HttpCall call, @Nullable HttpResponseCallback callback) {
+            mCall = call;
+            mCallback = callback;
+        }
+
+        @Override
+        public void success(String responseBody) {
+            if (mCallback != null && !mCall.isCancelled()) {
+                mCallback.success(responseBody);
+            }
+            mCall.finish();
+        }
+
+        @Override
+        public void failure(Exception exception) {
+            if (mCallback != null && !mCall.isCancelled()) {
+                mCallback.failure(exception);
+            }
+            mCall.finish();
+        }
+    }
+
+    /**
+     * Adapts a {@link ParsedHttpResponseCallback} to a {@link HttpResponseCallback}. The response body is parsed by
+     * {@link #parse(String)} on the thread the request was made on, before the callback is posted.
+     */
+    private static class ParsingCallback<R> implements HttpResponseCallback {
+        private final ParsedHttpResponseCallback<R> mCallback;
+        private boolean mParsed;
+        private R mResponse;
+        private Exception mException;
+
+        ParsingCallback(ParsedHttpResponseCallback<R> callback) {
+            mCallback = callback;
+        }
+
+        void parse(String responseBody) {
+            try {
+                mResponse = mCallback.parseResponse(responseBody);
+            } catch (Exception e) {
+                mException = e;
+            }
+            mParsed = true;
+        }
+
+        @Override
+        public void success(String responseBody) {
+            if (!mParsed) {
+                parse(responseBody);
+            }
+
+            if (mException != null) {
+                mCallback.failure(mException);
+            } else {
+                mCallback.success(mResponse);
+            }
+        }
+
+        @Override
+        public void failure(Exception exception) {
+            mCallback.failure(exception);
+        }
+    }
+
+    /**
+     * Reports the call to the {@link HttpEventListener} and marks it as finished.
+     */
+    private void finish(@Nullable HttpCall call) {
+        if (call == null) {
+            return;
+        }
+
+        HttpCallMetrics metrics = call.getMetrics();
+        if (metrics != null) {
+            metrics.finished();
+
+            HttpEventListener eventListener = mEventListener;
+            if (eventListener != null) {
+                eventListener.onCallFinished(metrics);
+            }
+        }
+
+        call.finish();
+    }
+
+    /**
+     * Posts a callback to the callback executor, or the main thread when none is set, recording how long it waited
+     * to be run and reporting the call to the {@link HttpEventListener} once it has run. The callback is dropped if
+     * the call was cancelled.
+     */
+    private void postOnCallbackExecutor(@Nullable final HttpCall call, final Runnable callback) {
+        final long postedNanos = System.nanoTime();
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                if (call == null) {
+                    callback.run();
+                    return;
+                }
+
+                if (call.getMetrics() != null) {
+                    call.getMetrics().mCallbackDispatchNanos = System.nanoTime() - postedNanos;
+                }
+
+                try {
+                    if (!call.isCancelled()) {
+                        callback.run();
+                    }
+                } finally {
+                    finish(call);
+                }
+            }
+        };
+
+        Executor executor = mCallbackExecutor;
+        if (executor == null) {
+            getMainThreadHandler().post(runnable);
+        } else {
+            executor.execute(runnable);
+        }
+    }
+
+    /**
+     * The handler is created on first use rather than in the constructor, so clients that only make synchronous
+     * requests never touch the main {@link Looper}.
+     */
+    private synchronized Handler getMainThreadHandler() {
+        if (mMainThreadHandler == null) {
+            mMainThreadHandler = new Handler(Looper.getMainLooper());
+        }
+
+        return mMainThreadHandler;
+    }
+
+    <R> void postCallbackOnMainThread(StreamingHttpResponseCallback<R> callback, R response) {
+        postCallbackOnMainThread(callback, response, null);
+    }
+
+    private <R> void postCallbackOnMainThread(final StreamingHttpResponseCallback<R> callback, final R response,
+            @Nullable HttpCall call) {
+        postOnCallbackExecutor(call, new Runnable() {
+            @Override
+            public void run() {
+                callback.success(response);
+            }
+        });
+    }
+
+    <R> void postCallbackOnMainThread(StreamingHttpResponseCallback<R> callback, Exception exception) {
+        postCallbackOnMainThread(callback, exception, null);
+    }
+
+    private <R> void postCallbackOnMainThread(final StreamingHttpResponseCallback<R> callback,
+            final Exception exception, @Nullable HttpCall call) {
+        postOnCallbackExecutor(call, new Runnable() {
+            @Override
+            public void run() {
+                callback.failure(exception);
+            }
+        });
+    }
+
+    void postCallbackOnMainThread(ConditionalHttpResponseCallback callback, Exception exception) {
+        postCallbackOnMainThread(callback, exception, null);
+    }
+
+    private void postCallbackOnMainThread(final ConditionalHttpResponseCallback callback, final Exception exception,
+            @Nullable HttpCall call) {
+        postOnCallbackExecutor(call, new Runnable() {
+            @Override
+            public void run() {
+                callback.failure(exception);
+            }
+        });
+    }
+
+    void postCallbackOnMainThread(HttpResponseCallback callback, String response) {
+        postCallbackOnMainThread(callback, response, null);
+    }
+
+    private void postCallbackOnMainThread(final HttpResponseCallback callback, final String response,
+            @Nullable HttpCall call) {
+        if (callback == null) {
+            finish(call);
+            return;
+        }
+
+        HttpResponseCallback target = callback;
+        if (target instanceof CancellableCallback) {
+            target = ((CancellableCallback) target).mCallback;
+        }
+        if (target instanceof ParsingCallback) {
+            ((ParsingCallback) target).parse(response);
+        }
+
+        postOnCallbackExecutor(call, new Runnable() {
+            @Override
+            public void run() {
+                callback.success(response);
+            }
+        });
+    }
+
+    void postCallbackOnMainThread(HttpResponseCallback callback, Exception exception) {
+        postCallbackOnMainThread(callback, exception, null);
+    }
+
+    private void postCallbackOnMainThread(final HttpResponseCallback callback, final Exception exception,
+            @Nullable HttpCall call) {
+        if (callback == null) {
+            finish(call);
+            return;
+        }
+
+        postOnCallbackExecutor(call, new Runnable() {
+            @Override
             public void run() {
                 callback.failure(exception);
             }
         });
     }
 
+    /**
+     * Reads the stream into a pooled buffer sized from the {@code Content-Length} of the response when it is known,
+     * decoding the string directly from the buffer. The initial buffer is capped at
+     * {@link ByteArrayPool#MAX_BUFFER_BYTES} and grows as bytes arrive, so a wrong or hostile
+     * {@code Content-Length} can not allocate more memory than the body actually needs.
+     */
     @Nullable
     private String readStream(InputStream in, boolean gzip) throws IOException {
         if (in == null) {
             return null;
         }
 
+        int capacity = BUFFER_SIZE;
+        if (in instanceof ContentLengthInputStream) {
+            long contentLength = ((ContentLengthInputStream) in).mContentLength;
+            capacity = (int) Math.min(gzip ? contentLength * 4 : contentLength, ByteArrayPool.MAX_BUFFER_BYTES);
+        }
+
+        ByteArrayPool pool = mByteArrayPool;
+        byte[] buffer = pool.acquire(Math.max(1, capacity));
         try {
             if (gzip) {
                 in = new GZIPInputStream(in);
             }
 
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            byte[] buffer = new byte[1024];
-            for (int count; (count = in.read(buffer)) != -1; ) {
-                out.write(buffer, 0, count);
+            int size = 0;
+            while (true) {
+                if (size == buffer.length) {
+                    int next = in.read();
+                    if (next == -1) {
+                        break;
+                    }
+
+                    byte[] larger = pool.acquire(buffer.length * 2);
+                    System.arraycopy(buffer, 0, larger, 0, size);
+                    pool.release(buffer);
+                    buffer = larger;
+                    buffer[size++] = (byte) next;
+                }
+
+                int count = in.read(buffer, size, buffer.length - size);
+                if (count == -1) {
+                    break;
+                }
+                size += count;
             }
 
-            return new String(out.toByteArray(), UTF_8);
+            return new String(buffer, 0, size, UTF_8);
         } finally {
+            pool.release(buffer);
             try {
                 in.close();
             } catch (IOException ignored) {}
         }
     }
+
+    @Nullable
+    private static InputStream withContentLength(@Nullable InputStream in, int contentLength) {
+        if (in == null || contentLength < 0) {
+            return in;
+        }
+
+        return new ContentLengthInputStream(in, contentLength);
+    }
+
+    @Nullable
+    private static InputStream getBody(HttpTransportResponse response) {
+        String contentLength = response.getHeader("Content-Length");
+        if (contentLength == null) {
+            return response.getBody();
+        }
+
+        try {
+            return withContentLength(response.getBody(), Integer.parseInt(contentLength.trim()));
+        } catch (NumberFormatException e) {
+            return response.getBody();
+        }
+    }
+
+    /**
+     * Carries the {@code Content-Length} of a response body so it can be read into a buffer of the right size.
+     */
+    private static class ContentLengthInputStream extends FilterInputStream {
+
+        final int mContentLength;
+
+        ContentLengthInputStream(InputStream in, int contentLength) {
+            super(in);
+            mContentLength = contentLength;
+        }
+    }
 }
@@ -0,0 +1,376 @@
+package com.braintreepayments.api.internal;
+
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide dispatcher shared by all {@link HttpClient}s. Requests run on a single bounded pool of worker
+ * threads, the number of concurrent requests to any one host is limited and idle worker threads are reaped.
+ *
+ * Queued requests are run in {@link HttpClient.RequestPriority} order. {@link HttpClient#PRIORITY_BACKGROUND}
+ * requests are not started while any {@link HttpClient#PRIORITY_USER_INITIATED} request is queued or running,
+ * unless they have waited longer than {@link #MAX_BACKGROUND_WAIT_MILLIS}. The oldest such request is then given
+ * one worker thread, ahead of queued user initiated requests, so background work is not starved by steady user
+ * traffic. Waiting requests are checked whenever a request is queued or finishes, and when the oldest waiting
+ * background request becomes overdue.
+ *
+ * Requests can also be queued after a delay, for example to retry them, without holding a worker thread while
+ * they wait.
+ */
+public class HttpDispatcher {
+
+    static final int MAX_REQUESTS = 6;
+    static final int MAX_REQUESTS_PER_HOST = 4;
+    static final long KEEP_ALIVE_SECONDS = 30;
+    static final long MAX_BACKGROUND_WAIT_MILLIS = 10000;
+
+    private static HttpDispatcher sInstance;
+
+    private final ThreadPoolExecutor mExecutorService;
+    private final int mMaxRequests;
+    private final int mMaxRequestsPerHost;
+    private final long mMaxBackgroundWaitNanos;
+    private final LinkedList<Call> mReadyCalls = new LinkedList<>();
+    private final List<Call> mRunningCalls = new ArrayList<>();
+    private final Map<Runnable, ScheduledFuture<?>> mDelayedCalls = new HashMap<>();
+    private final ScheduledThreadPoolExecutor mScheduler;
+    private final Runnable mOverdueCheck = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (HttpDispatcher.this) {
+                mScheduledOverdueCheck = null;
+            }
+
+            promoteCalls();
+        }
+    };
+    private ScheduledFuture<?> mScheduledOverdueCheck;
+    private long mScheduledOverdueCheckNanos;
+
+    /**
+     * @return the process-wide {@link HttpDispatcher}.
+     */
+    public static synchronized HttpDispatcher getInstance() {
+        if (sInstance == null) {
+            sInstance = new HttpDispatcher(MAX_REQUESTS, MAX_REQUESTS_PER_HOST, KEEP_ALIVE_SECONDS,
+                    MAX_BACKGROUND_WAIT_MILLIS);
+        }
+
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    HttpDispatcher(int maxRequests, int maxRequestsPerHost, long keepAliveSeconds) {
+        this(maxRequests, maxRequestsPerHost, keepAliveSeconds, MAX_BACKGROUND_WAIT_MILLIS);
+    }
+
+    @VisibleForTesting
+    HttpDispatcher(int maxRequests, int maxRequestsPerHost, long keepAliveSeconds, long maxBackgroundWaitMillis) {
+        mMaxRequests = maxRequests;
+        mMaxRequestsPerHost = maxRequestsPerHost;
+        mMaxBackgroundWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxBackgroundWaitMillis);
+        mExecutorService = new ThreadPoolExecutor(maxRequests, maxRequests, keepAliveSeconds, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DispatcherThreadFactory());
+        mExecutorService.allowCoreThreadTimeOut(true);
+        mScheduler = new ScheduledThreadPoolExecutor(1, new DispatcherThreadFactory());
+        mScheduler.setKeepAliveTime(keepAliveSeconds, TimeUnit.SECONDS);
+        mScheduler.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues a {@link HttpClient#PRIORITY_USER_INITIATED} request to be run on a worker thread once there is
+     * capacity for it.
+     *
+     * @param host the host the request will be made to, used to limit concurrent requests per host.
+     * @param runnable the work to run.
+     */
+    public void enqueue(String host, Runnable runnable) {
+        enqueue(host, HttpClient.PRIORITY_USER_INITIATED, runnable);
+    }
+
+    /**
+     * Queues a request to be run on a worker thread once there is capacity for it. Requests are queued behind
+     * requests of the same or a higher priority and ahead of requests of a lower priority.
+     *
+     * @param host the host the request will be made to, used to limit concurrent requests per host.
+     * @param priority the {@link HttpClient.RequestPriority} of the request.
+     * @param runnable the work to run.
+     */
+    public void enqueue(String host, @HttpClient.RequestPriority int priority, Runnable runnable) {
+        Call call = new Call(host == null ? "" : host, priority, runnable);
+        synchronized (this) {
+            int index = mReadyCalls.size();
+            while (index > 0 && mReadyCalls.get(index - 1).mPriority > priority) {
+                index--;
+            }
+
+            mReadyCalls.add(index, call);
+        }
+
+        promoteCalls();
+    }
+
+    /**
+     * Queues a request once the given delay has passed. No worker thread is used while the request waits.
+     *
+     * @param host the host the request will be made to, used to limit concurrent requests per host.
+     * @param priority the {@link HttpClient.RequestPriority} of the request.
+     * @param runnable the work to run.
+     * @param delayMillis the time in milliseconds to wait before queueing the request.
+     * @see #enqueue(String, int, Runnable)
+     */
+    public void enqueue(final String host, @HttpClient.RequestPriority final int priority, final Runnable runnable,
+            long delayMillis) {
+        if (delayMillis <= 0) {
+            enqueue(host, priority, runnable);
+            return;
+        }
+
+        synchronized (this) {
+            mDelayedCalls.put(runnable, mScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (HttpDispatcher.this) {
+                        if (mDelayedCalls.remove(runnable) == null) {
+                            return;
+                        }
+                    }
+
+                    enqueue(host, priority, runnable);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Removes a request that is waiting for a worker thread, or for its delay to pass, from the queue. Requests
+     * that are already running are not affected.
+     *
+     * @param runnable the work passed to {@link #enqueue(String, int, Runnable)}.
+     * @return {@code true} if the request was queued and has been removed.
+     */
+    public boolean cancel(Runnable runnable) {
+        boolean removed = false;
+        synchronized (this) {
+            ScheduledFuture<?> delayedCall = mDelayedCalls.remove(runnable);
+            if (delayedCall != null) {
+                delayedCall.cancel(false);
+                return true;
+            }
+
+            Iterator<Call> iterator = mReadyCalls.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().mRunnable == runnable) {
+                    iterator.remove();
+                    removed = true;
+                    break;
+                }
+            }
+        }
+
+        if (removed) {
+            promoteCalls();
+        }
+
+        return removed;
+    }
+
+    /**
+     * @return the number of requests currently running.
+     */
+    public synchronized int getRunningCallCount() {
+        return mRunningCalls.size();
+    }
+
+    /**
+     * @return the number of requests waiting for a worker thread.
+     */
+    public synchronized int getQueuedCallCount() {
+        return mReadyCalls.size();
+    }
+
+    /**
+     * @return the number of requests waiting for their delay to pass before being queued.
+     */
+    public synchronized int getDelayedCallCount() {
+        return mDelayedCalls.size();
+    }
+
+    private void promoteCalls() {
+        List<Call> promotedCalls = new ArrayList<>();
+        synchronized (this) {
+            boolean userInitiatedPending = hasUserInitiatedCalls();
+            Call overdueCall = userInitiatedPending ? getOverdueBackgroundCall() : null;
+            if (overdueCall != null) {
+                mReadyCalls.remove(overdueCall);
+                mRunningCalls.add(overdueCall);
+                promotedCalls.add(overdueCall);
+            }
+
+            Iterator<Call> iterator = mReadyCalls.iterator();
+            while (iterator.hasNext() && mRunningCalls.size() < mMaxRequests) {
+                Call call = iterator.next();
+                if (call.mPriority == HttpClient.PRIORITY_BACKGROUND && userInitiatedPending) {
+                    break;
+                }
+
+                if (runningCallsForHost(call.mHost) < mMaxRequestsPerHost) {
+                    iterator.remove();
+                    mRunningCalls.add(call);
+                    promotedCalls.add(call);
+                }
+            }
+
+            if (userInitiatedPending) {
+                scheduleOverdueCheck();
+            }
+        }
+
+        for (Call call : promotedCalls) {
+            mExecutorService.execute(call);
+        }
+    }
+
+    /**
+     * @return the oldest queued {@link HttpClient#PRIORITY_BACKGROUND} request if it has waited longer than the
+     * maximum background wait and can be started now, otherwise {@code null}. Only one background request is
+     * started this way at a time.
+     */
+    private Call getOverdueBackgroundCall() {
+        if (mRunningCalls.size() >= mMaxRequests) {
+            return null;
+        }
+
+        for (Call call : mRunningCalls) {
+            if (call.mPriority == HttpClient.PRIORITY_BACKGROUND) {
+                return null;
+            }
+        }
+
+        long now = System.nanoTime();
+        for (Call call : mReadyCalls) {
+            if (call.mPriority == HttpClient.PRIORITY_BACKGROUND) {
+                if (now - call.mEnqueuedNanos >= mMaxBackgroundWaitNanos &&
+                        runningCallsForHost(call.mHost) < mMaxRequestsPerHost) {
+                    return call;
+                }
+
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Schedules a check for when the oldest queued {@link HttpClient#PRIORITY_BACKGROUND} request becomes overdue,
+     * so it is started then even if no request is queued or finishes in the meantime. Only the earliest check is
+     * kept scheduled.
+     */
+    private void scheduleOverdueCheck() {
+        for (Call call : mReadyCalls) {
+            if (call.mPriority != HttpClient.PRIORITY_BACKGROUND) {
+                continue;
+            }
+
+            long dueNanos = call.mEnqueuedNanos + mMaxBackgroundWaitNanos;
+            long delayNanos = dueNanos - System.nanoTime();
+            if (delayNanos <= 0 ||
+                    (mScheduledOverdueCheck != null && mScheduledOverdueCheckNanos - dueNanos <= 0)) {
+                return;
+            }
+
+            if (mScheduledOverdueCheck != null) {
+                mScheduledOverdueCheck.cancel(false);
+            }
+
+            mScheduledOverdueCheckNanos = dueNanos;
+            mScheduledOverdueCheck = mScheduler.schedule(mOverdueCheck, delayNanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+    }
+
+    private boolean hasUserInitiatedCalls() {
+        for (Call call : mRunningCalls) {
+            if (call.mPriority == HttpClient.PRIORITY_USER_INITIATED) {
+                return true;
+            }
+        }
+
+        for (Call call : mReadyCalls) {
+            if (call.mPriority == HttpClient.PRIORITY_USER_INITIATED) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private int runningCallsForHost(String host) {
+        int count = 0;
+        for (Call call : mRunningCalls) {
+            if (call.mHost.equals(host)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private void finished(Call call) {
+        synchronized (this) {
+            mRunningCalls.remove(call);
+        }
+
+        promoteCalls();
+    }
+
+    private class Call implements Runnable {
+
+        private final String mHost;
+        private final int mPriority;
+        private final Runnable mRunnable;
+        private final long mEnqueuedNanos;
+
+        Call(String host, int priority, Runnable runnable) {
+            mHost = host;
+            mPriority = priority;
+            mRunnable = runnable;
+            mEnqueuedNanos = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            try {
+                mRunnable.run();
+            } finally {
+                finished(this);
+            }
+        }
+    }
+
+    private static class DispatcherThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mThreadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "BraintreeHttpDispatcher-" + mThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
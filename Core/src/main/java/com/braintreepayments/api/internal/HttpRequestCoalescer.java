@@ -0,0 +1,96 @@
+package com.braintreepayments.api.internal;
+
+import android.support.annotation.VisibleForTesting;
+
+import com.braintreepayments.api.interfaces.HttpResponseCallback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide record of GET requests in flight from {@link HttpClient}s with request coalescing enabled.
+ *
+ * The first request for a key is made on the network and every identical request made while it is in flight
+ * waits for its response instead of making another network call. A key identifies the url and the headers,
+ * including any authorization, a request is sent with.
+ */
+public class HttpRequestCoalescer {
+
+    private static HttpRequestCoalescer sInstance;
+
+    private final Map<String, List<HttpResponseCallback>> mInFlightRequests = new HashMap<>();
+
+    private int mRequestCount;
+    private int mCoalescedCount;
+
+    /**
+     * @return the process-wide {@link HttpRequestCoalescer}.
+     */
+    public static synchronized HttpRequestCoalescer getInstance() {
+        if (sInstance == null) {
+            sInstance = new HttpRequestCoalescer();
+        }
+
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    HttpRequestCoalescer() {}
+
+    /**
+     * Adds a callback waiting for the response to the request identified by the given key.
+     *
+     * @param key the key identifying the request.
+     * @param callback the callback to notify when the request completes.
+     * @return {@code true} if no identical request is in flight and the caller should make the request,
+     * {@code false} if the callback will be notified when the in flight request completes.
+     */
+    synchronized boolean join(String key, HttpResponseCallback callback) {
+        mRequestCount++;
+
+        List<HttpResponseCallback> callbacks = mInFlightRequests.get(key);
+        if (callbacks != null) {
+            mCoalescedCount++;
+            callbacks.add(callback);
+            return false;
+        }
+
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        mInFlightRequests.put(key, callbacks);
+        return true;
+    }
+
+    /**
+     * Marks the request identified by the given key as complete. Requests made after this call are made on
+     * the network again.
+     *
+     * @param key the key identifying the request.
+     * @return the callbacks waiting for the response.
+     */
+    synchronized List<HttpResponseCallback> complete(String key) {
+        List<HttpResponseCallback> callbacks = mInFlightRequests.remove(key);
+        if (callbacks == null) {
+            return Collections.emptyList();
+        }
+
+        return callbacks;
+    }
+
+    /**
+     * @return the number of requests made while request coalescing was enabled.
+     */
+    public synchronized int getRequestCount() {
+        return mRequestCount;
+    }
+
+    /**
+     * @return the number of requests that were served by an identical in flight request instead of the network.
+     */
+    public synchronized int getCoalescedCount() {
+        return mCoalescedCount;
+    }
+}
@@ -0,0 +1,23 @@
+package com.braintreepayments.api.internal;
+
+import java.io.IOException;
+
+/**
+ * Engine used by {@link HttpClient} to send requests over the network. By default {@link HttpClient} uses
+ * {@link java.net.HttpURLConnection}; an alternative engine can be set with
+ * {@link HttpClient#setTransport(HttpTransport)}.
+ *
+ * Implementations must be safe to use from multiple threads and must not follow redirects, decode the response body
+ * or throw for non-2xx response codes; {@link HttpClient} handles those.
+ */
+public interface HttpTransport {
+
+    /**
+     * Synchronously executes a request.
+     *
+     * @param request the {@link HttpTransportRequest} to send.
+     * @return the {@link HttpTransportResponse}. The caller is responsible for closing it.
+     * @throws IOException if the request could not be executed.
+     */
+    HttpTransportResponse execute(HttpTransportRequest request) throws IOException;
+}
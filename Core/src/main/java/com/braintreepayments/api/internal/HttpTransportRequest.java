@@ -0,0 +1,116 @@
+package com.braintreepayments.api.internal;
+
+import android.support.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * A request to be executed by a {@link HttpTransport}.
+ */
+public class HttpTransportRequest {
+
+    private final String mMethod;
+    private final String mUrl;
+    private final Map<String, String> mHeaders = new LinkedHashMap<>();
+    private byte[] mBody;
+    private int mConnectTimeout;
+    private int mReadTimeout;
+    private SSLSocketFactory mSSLSocketFactory;
+
+    /**
+     * @param method the HTTP method, e.g. GET or POST.
+     * @param url the full url of the request.
+     */
+    public HttpTransportRequest(String method, String url) {
+        mMethod = method;
+        mUrl = url;
+    }
+
+    /**
+     * @param name the name of the header.
+     * @param value the value of the header.
+     * @return {@link HttpTransportRequest} for method chaining.
+     */
+    public HttpTransportRequest header(String name, String value) {
+        mHeaders.put(name, value);
+        return this;
+    }
+
+    /**
+     * @param headers headers to add to the request.
+     * @return {@link HttpTransportRequest} for method chaining.
+     */
+    public HttpTransportRequest headers(Map<String, String> headers) {
+        mHeaders.putAll(headers);
+        return this;
+    }
+
+    /**
+     * @param body the request body, or {@code null} for requests without a body.
+     * @return {@link HttpTransportRequest} for method chaining.
+     */
+    public HttpTransportRequest body(@Nullable byte[] body) {
+        mBody = body;
+        return this;
+    }
+
+    /**
+     * @param timeout the time in milliseconds to wait for a connection before timing out.
+     * @return {@link HttpTransportRequest} for method chaining.
+     */
+    public HttpTransportRequest connectTimeout(int timeout) {
+        mConnectTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * @param timeout the time in milliseconds to read a response from the server before timing out.
+     * @return {@link HttpTransportRequest} for method chaining.
+     */
+    public HttpTransportRequest readTimeout(int timeout) {
+        mReadTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * @param sslSocketFactory the {@link SSLSocketFactory} to use if this is a https request.
+     * @return {@link HttpTransportRequest} for method chaining.
+     */
+    public HttpTransportRequest sslSocketFactory(SSLSocketFactory sslSocketFactory) {
+        mSSLSocketFactory = sslSocketFactory;
+        return this;
+    }
+
+    public String getMethod() {
+        return mMethod;
+    }
+
+    public String getUrl() {
+        return mUrl;
+    }
+
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(mHeaders);
+    }
+
+    @Nullable
+    public byte[] getBody() {
+        return mBody;
+    }
+
+    public int getConnectTimeout() {
+        return mConnectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return mReadTimeout;
+    }
+
+    public SSLSocketFactory getSSLSocketFactory() {
+        return mSSLSocketFactory;
+    }
+}
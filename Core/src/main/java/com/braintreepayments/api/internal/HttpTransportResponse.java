@@ -0,0 +1,63 @@
+package com.braintreepayments.api.internal;
+
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A response returned by a {@link HttpTransport}. Closing the response closes the body and releases the underlying
+ * connection back to the transport.
+ */
+public class HttpTransportResponse implements Closeable {
+
+    private final int mResponseCode;
+    private final Map<String, String> mHeaders = new TreeMap<>();
+    private final InputStream mBody;
+
+    /**
+     * @param responseCode the HTTP status code of the response.
+     * @param headers the response headers. Header names are matched case insensitively.
+     * @param body the raw, undecoded response body, or {@code null} if the response has no body.
+     */
+    public HttpTransportResponse(int responseCode, Map<String, String> headers, @Nullable InputStream body) {
+        mResponseCode = responseCode;
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey() != null) {
+                mHeaders.put(header.getKey().toLowerCase(Locale.US), header.getValue());
+            }
+        }
+        mBody = body;
+    }
+
+    public int getResponseCode() {
+        return mResponseCode;
+    }
+
+    /**
+     * @param name the name of the header.
+     * @return the value of the header or {@code null} if the response does not contain it.
+     */
+    @Nullable
+    public String getHeader(String name) {
+        return mHeaders.get(name.toLowerCase(Locale.US));
+    }
+
+    @Nullable
+    public InputStream getBody() {
+        return mBody;
+    }
+
+    @Override
+    public void close() {
+        if (mBody != null) {
+            try {
+                mBody.close();
+            } catch (IOException ignored) {}
+        }
+    }
+}
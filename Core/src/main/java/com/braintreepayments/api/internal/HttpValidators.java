@@ -0,0 +1,45 @@
+package com.braintreepayments.api.internal;
+
+import android.support.annotation.Nullable;
+
+/**
+ * The {@code ETag} and {@code Last-Modified} validators of a HTTP response, used to make a conditional request
+ * that only transfers the response body when it has changed.
+ */
+public class HttpValidators {
+
+    private final String mETag;
+    private final String mLastModified;
+
+    /**
+     * @param eTag the value of the {@code ETag} header, if any.
+     * @param lastModified the value of the {@code Last-Modified} header, if any.
+     */
+    public HttpValidators(@Nullable String eTag, @Nullable String lastModified) {
+        mETag = eTag;
+        mLastModified = lastModified;
+    }
+
+    /**
+     * @return the value of the {@code ETag} header, if any.
+     */
+    @Nullable
+    public String getETag() {
+        return mETag;
+    }
+
+    /**
+     * @return the value of the {@code Last-Modified} header, if any.
+     */
+    @Nullable
+    public String getLastModified() {
+        return mLastModified;
+    }
+
+    /**
+     * @return {@code true} if there are no validators to make a conditional request with.
+     */
+    public boolean isEmpty() {
+        return mETag == null && mLastModified == null;
+    }
+}
@@ -0,0 +1,112 @@
+package com.braintreepayments.api.internal;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide record of the endpoints that accept gzip compressed request bodies from {@link HttpClient}s with
+ * request compression enabled. Endpoints are identified by the host and path of their url.
+ *
+ * Nothing is compressed until an endpoint advertises support by listing {@code gzip} in the
+ * {@code Accept-Encoding} header of a response, as described in RFC 7694. An endpoint that rejects a compressed
+ * request body is sent uncompressed bodies for the rest of the process, even if it advertises support again.
+ */
+public class RequestCompressionNegotiator {
+
+    private static RequestCompressionNegotiator sInstance;
+
+    private final Map<String, Boolean> mEndpoints = new HashMap<>();
+
+    /**
+     * @return the process-wide {@link RequestCompressionNegotiator}.
+     */
+    public static synchronized RequestCompressionNegotiator getInstance() {
+        if (sInstance == null) {
+            sInstance = new RequestCompressionNegotiator();
+        }
+
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    RequestCompressionNegotiator() {}
+
+    /**
+     * @param url the url of the request.
+     * @return {@code true} if the endpoint has advertised support for gzip compressed request bodies and has not
+     * rejected one since.
+     */
+    public synchronized boolean isCompressionAccepted(String url) {
+        return Boolean.TRUE.equals(mEndpoints.get(getEndpoint(url)));
+    }
+
+    /**
+     * Records the request encodings advertised in a response from the url.
+     *
+     * @param url the url of the request.
+     * @param acceptEncoding the value of the {@code Accept-Encoding} header of the response, if any.
+     */
+    synchronized void onResponse(String url, @Nullable String acceptEncoding) {
+        String endpoint = getEndpoint(url);
+        if (mEndpoints.containsKey(endpoint) || !acceptsGzip(acceptEncoding)) {
+            return;
+        }
+
+        mEndpoints.put(endpoint, true);
+    }
+
+    /**
+     * Records that the endpoint of the url rejected a compressed request body.
+     *
+     * @param url the url of the request.
+     */
+    synchronized void onRejected(String url) {
+        mEndpoints.put(getEndpoint(url), false);
+    }
+
+    /**
+     * @return {@code true} if the header lists {@code gzip} without a quality value of zero.
+     */
+    @VisibleForTesting
+    static boolean acceptsGzip(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            if (!"gzip".equalsIgnoreCase(parameters[0].trim())) {
+                continue;
+            }
+
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Float.parseFloat(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    private static String getEndpoint(String url) {
+        try {
+            URL parsed = new URL(url);
+            return parsed.getHost() + parsed.getPath();
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.braintreepayments.api.internal;
+
+import android.support.annotation.VisibleForTesting;
+
+/**
+ * Process-wide limit on the number of retries made by {@link HttpClient}s, shared by every {@link RetryPolicy}
+ * unless one is given its own budget.
+ *
+ * The budget is a token bucket. Every request that is not a retry deposits a fraction of a token and every retry
+ * withdraws a whole one, so once the bucket is empty retries are limited to that fraction of requests. This keeps
+ * a failing server from receiving a multiple of its normal traffic from clients that are all retrying.
+ */
+public class RetryBudget {
+
+    static final double RETRY_RATIO = 0.1;
+    static final int MAX_TOKENS = 10;
+
+    private static RetryBudget sInstance;
+
+    private final double mRetryRatio;
+    private final double mMaxTokens;
+    private double mTokens;
+
+    /**
+     * @return the process-wide {@link RetryBudget}.
+     */
+    public static synchronized RetryBudget getInstance() {
+        if (sInstance == null) {
+            sInstance = new RetryBudget(RETRY_RATIO, MAX_TOKENS);
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * @param retryRatio the number of retries allowed for each request once the initial tokens are used.
+     * @param maxTokens the maximum number of retries that can be saved up and the number of tokens the budget
+     * starts with.
+     */
+    public RetryBudget(double retryRatio, int maxTokens) {
+        mRetryRatio = retryRatio;
+        mMaxTokens = maxTokens;
+        mTokens = maxTokens;
+    }
+
+    /**
+     * Records a request that is not a retry, depositing a fraction of a token.
+     */
+    synchronized void onRequest() {
+        mTokens = Math.min(mMaxTokens, mTokens + mRetryRatio);
+    }
+
+    /**
+     * Withdraws a token for a retry if one is available.
+     *
+     * @return {@code true} if the retry may be made, {@code false} if the budget is exhausted.
+     */
+    synchronized boolean tryAcquireRetry() {
+        if (mTokens >= 1) {
+            mTokens -= 1;
+            return true;
+        }
+
+        return false;
+    }
+
+    @VisibleForTesting
+    synchronized double getTokens() {
+        return mTokens;
+    }
+}
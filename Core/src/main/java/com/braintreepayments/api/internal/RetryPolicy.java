@@ -0,0 +1,198 @@
+package com.braintreepayments.api.internal;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.MalformedJsonException;
+
+import com.braintreepayments.api.exceptions.DownForMaintenanceException;
+import com.braintreepayments.api.exceptions.RateLimitException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.UnknownHostException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLException;
+
+/**
+ * Decides whether a failed {@link HttpClient} request is retried and how long to wait before retrying it.
+ *
+ * Requests are retried when the server rejected them without processing them ({@link RateLimitException} and
+ * {@link DownForMaintenanceException}) or when a connection could not be established. Other {@link IOException}s
+ * are only retried for idempotent requests, since the server may already have processed the request. Responses
+ * that could not be parsed are never retried, since the server will send the same response again.
+ *
+ * Retries back off exponentially with full jitter so that clients failing at the same time do not retry at the
+ * same time. A {@code Retry-After} header sent by the server is honored instead of the computed backoff, and
+ * every retry is taken from a {@link RetryBudget}.
+ */
+public class RetryPolicy {
+
+    static final int MAX_ATTEMPTS = 3;
+    static final long INITIAL_BACKOFF_MILLIS = 250;
+    static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    static final long MAX_RETRY_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private int mMaxAttempts = MAX_ATTEMPTS;
+    private long mInitialBackoffMillis = INITIAL_BACKOFF_MILLIS;
+    private long mMaxBackoffMillis = MAX_BACKOFF_MILLIS;
+    private long mMaxRetryAfterMillis = MAX_RETRY_AFTER_MILLIS;
+    private RetryBudget mRetryBudget = RetryBudget.getInstance();
+    private Random mRandom = new Random();
+
+    /**
+     * @return a {@link RetryPolicy} that never retries.
+     */
+    public static RetryPolicy none() {
+        return new RetryPolicy().maxAttempts(1);
+    }
+
+    /**
+     * @param maxAttempts the maximum number of times a request is attempted, including the first attempt.
+     * @return {@link RetryPolicy} for method chaining.
+     */
+    public RetryPolicy maxAttempts(int maxAttempts) {
+        mMaxAttempts = Math.max(1, maxAttempts);
+        return this;
+    }
+
+    /**
+     * @param initialBackoffMillis the upper bound of the delay before the first retry. The upper bound doubles
+     * for every subsequent retry.
+     * @return {@link RetryPolicy} for method chaining.
+     */
+    public RetryPolicy initialBackoff(long initialBackoffMillis) {
+        mInitialBackoffMillis = initialBackoffMillis;
+        return this;
+    }
+
+    /**
+     * @param maxBackoffMillis the largest delay before any retry.
+     * @return {@link RetryPolicy} for method chaining.
+     */
+    public RetryPolicy maxBackoff(long maxBackoffMillis) {
+        mMaxBackoffMillis = maxBackoffMillis;
+        return this;
+    }
+
+    /**
+     * @param maxRetryAfterMillis the longest {@code Retry-After} delay that will be waited for. Requests are not
+     * retried when the server asks for a longer delay.
+     * @return {@link RetryPolicy} for method chaining.
+     */
+    public RetryPolicy maxRetryAfter(long maxRetryAfterMillis) {
+        mMaxRetryAfterMillis = maxRetryAfterMillis;
+        return this;
+    }
+
+    /**
+     * @param retryBudget the {@link RetryBudget} retries are taken from. Defaults to the process-wide budget.
+     * @return {@link RetryPolicy} for method chaining.
+     */
+    public RetryPolicy retryBudget(RetryBudget retryBudget) {
+        mRetryBudget = retryBudget;
+        return this;
+    }
+
+    /**
+     * Classifies a request as idempotent, meaning it is safe to repeat even if the server may have processed it.
+     * Override to mark additional requests as idempotent.
+     *
+     * @param method the HTTP method of the request.
+     * @param url the url of the request.
+     * @return {@code true} if the request is idempotent.
+     */
+    public boolean isIdempotent(String method, String url) {
+        return "GET".equals(method);
+    }
+
+    /**
+     * @param method the HTTP method of the request.
+     * @param url the url of the request.
+     * @param exception the {@link Exception} the request failed with.
+     * @return {@code true} if the failure is one a retry may recover from.
+     */
+    public boolean isRetryable(String method, String url, Exception exception) {
+        if (exception instanceof RateLimitException || exception instanceof DownForMaintenanceException ||
+                exception instanceof ConnectException) {
+            return true;
+        }
+
+        if (exception instanceof MalformedURLException || exception instanceof UnknownHostException ||
+                exception instanceof SSLException || exception instanceof MalformedJsonException) {
+            return false;
+        }
+
+        return exception instanceof IOException && isIdempotent(method, url);
+    }
+
+    /**
+     * Records a request that is not a retry against the {@link RetryBudget}.
+     */
+    void onRequest() {
+        if (mMaxAttempts > 1) {
+            mRetryBudget.onRequest();
+        }
+    }
+
+    /**
+     * @param method the HTTP method of the request.
+     * @param url the url of the request.
+     * @param attempt the attempt that failed, starting at 1.
+     * @param exception the {@link Exception} the attempt failed with.
+     * @param retryAfter the value of the {@code Retry-After} header of the response, if any.
+     * @return the number of milliseconds to wait before retrying, or {@code -1} if the request should not be
+     * retried.
+     */
+    long getRetryDelay(String method, String url, int attempt, Exception exception, @Nullable String retryAfter) {
+        if (attempt >= mMaxAttempts || !isRetryable(method, url, exception)) {
+            return -1;
+        }
+
+        long delay;
+        long retryAfterMillis = parseRetryAfter(retryAfter, System.currentTimeMillis());
+        if (retryAfterMillis > mMaxRetryAfterMillis) {
+            return -1;
+        } else if (retryAfterMillis >= 0) {
+            delay = retryAfterMillis;
+        } else {
+            long backoff = Math.min(mMaxBackoffMillis, mInitialBackoffMillis << Math.min(attempt - 1, 30));
+            delay = (long) (mRandom.nextDouble() * backoff);
+        }
+
+        return mRetryBudget.tryAcquireRetry() ? delay : -1;
+    }
+
+    /**
+     * @param retryAfter the value of a {@code Retry-After} header, either a number of seconds or an HTTP date.
+     * @param now the current time in milliseconds.
+     * @return the delay in milliseconds, or {@code -1} if the value is missing or can not be parsed.
+     */
+    @VisibleForTesting
+    static long parseRetryAfter(@Nullable String retryAfter, long now) {
+        if (retryAfter == null) {
+            return -1;
+        }
+
+        retryAfter = retryAfter.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter)));
+        } catch (NumberFormatException ignored) {}
+
+        try {
+            SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            return Math.max(0, format.parse(retryAfter).getTime() - now);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
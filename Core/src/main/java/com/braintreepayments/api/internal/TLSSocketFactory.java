@@ -1,11 +1,14 @@
 package com.braintreepayments.api.internal;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
+import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
@@ -14,23 +17,74 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
 
 public class TLSSocketFactory extends SSLSocketFactory {
 
+    private static final Map<String, TLSSocketFactory> sInstances = new HashMap<>();
+    private static TLSSocketFactory sDefaultInstance;
+
     private SSLSocketFactory mInternalSSLSocketFactory;
+    private X509TrustManager mTrustManager;
+
+    /**
+     * @return the process-wide {@link TLSSocketFactory} trusting the system certificate authorities. Sharing it
+     * shares its TLS session cache, allowing sessions to be resumed by every {@link HttpClient}.
+     * @throws SSLException if the {@link TLSSocketFactory} could not be created.
+     */
+    public static synchronized TLSSocketFactory getInstance() throws SSLException {
+        if (sDefaultInstance == null) {
+            sDefaultInstance = new TLSSocketFactory();
+        }
+
+        return sDefaultInstance;
+    }
+
+    /**
+     * The certificates are only decoded and the {@link SSLContext} is only created the first time a set of
+     * certificates is requested. Every later request for the same certificates returns the same
+     * {@link TLSSocketFactory}, sharing its TLS session cache.
+     *
+     * @param certificates PEM encoded certificates to trust.
+     * @return the process-wide {@link TLSSocketFactory} trusting only the given certificates.
+     * @throws SSLException if the {@link TLSSocketFactory} could not be created.
+     */
+    public static TLSSocketFactory getInstance(String certificates) throws SSLException {
+        synchronized (sInstances) {
+            TLSSocketFactory instance = sInstances.get(certificates);
+            if (instance == null) {
+                try {
+                    instance = new TLSSocketFactory(new ByteArrayInputStream(certificates.getBytes("UTF-8")));
+                } catch (UnsupportedEncodingException e) {
+                    throw new SSLException(e.getMessage());
+                }
+                sInstances.put(certificates, instance);
+            }
+
+            return instance;
+        }
+    }
 
     public TLSSocketFactory() throws SSLException {
         try {
+            TrustManagerFactory tmf = TrustManagerFactory.getInstance(
+                    TrustManagerFactory.getDefaultAlgorithm());
+            tmf.init((KeyStore) null); // use system security providers
+            mTrustManager = findX509TrustManager(tmf.getTrustManagers());
+
             SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(null, null, null); // use system security providers
+            sslContext.init(null, tmf.getTrustManagers(), null);
             mInternalSSLSocketFactory = sslContext.getSocketFactory();
-        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+        } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException e) {
             throw new SSLException(e.getMessage());
         }
     }
@@ -57,6 +111,7 @@ public class TLSSocketFactory extends SSLSocketFactory {
             TrustManagerFactory tmf = TrustManagerFactory.getInstance(
                     TrustManagerFactory.getDefaultAlgorithm());
             tmf.init(keyStore);
+            mTrustManager = findX509TrustManager(tmf.getTrustManagers());
 
             SSLContext sslContext = SSLContext.getInstance("TLS");
             sslContext.init(null, tmf.getTrustManagers(), null);
@@ -70,6 +125,24 @@ public class TLSSocketFactory extends SSLSocketFactory {
         }
     }
 
+    /**
+     * @return the {@link X509TrustManager} used to verify server certificates, for use by
+     * {@link HttpTransport}s that need to configure their own TLS stack.
+     */
+    public X509TrustManager getTrustManager() {
+        return mTrustManager;
+    }
+
+    private static X509TrustManager findX509TrustManager(TrustManager[] trustManagers) {
+        for (TrustManager trustManager : trustManagers) {
+            if (trustManager instanceof X509TrustManager) {
+                return (X509TrustManager) trustManager;
+            }
+        }
+
+        return null;
+    }
+
     @Override
     public String[] getDefaultCipherSuites() {
         return mInternalSSLSocketFactory.getDefaultCipherSuites();
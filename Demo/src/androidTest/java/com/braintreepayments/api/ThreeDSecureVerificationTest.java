@@ -440,6 +440,7 @@ public class ThreeDSecureVerificationTest {
             }
 
             writeMockConfiguration(getTargetContext(), auth.getConfigUrl(), appendedAuthorization, configuration);
+            ConfigurationManager.clearMemoryCache();
 
             BraintreeFragment fragment = BraintreeFragment.newInstance(mActivity, authorization);
 
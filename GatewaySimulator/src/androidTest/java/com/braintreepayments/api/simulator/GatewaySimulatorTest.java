@@ -0,0 +1,149 @@
+package com.braintreepayments.api.simulator;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.braintreepayments.api.exceptions.DownForMaintenanceException;
+import com.braintreepayments.api.internal.HttpClient;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.net.URL;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class GatewaySimulatorTest {
+
+    private static final String CLIENT_API_URL = "http://127.0.0.1:3000/merchants/" + GatewaySimulator.MERCHANT_ID +
+            "/client_api/";
+
+    @Test(timeout = 1000)
+    public void getEndpoint_recognizesEndpointsCalledBySdk() throws Exception {
+        assertEquals(GatewaySimulator.ENDPOINT_CONFIGURATION, endpoint("GET", "v1/configuration"));
+        assertEquals(GatewaySimulator.ENDPOINT_PAYMENT_METHODS, endpoint("GET", "v1/payment_methods"));
+        assertEquals(GatewaySimulator.ENDPOINT_TOKENIZE, endpoint("POST", "v1/payment_methods/credit_cards"));
+        assertEquals(GatewaySimulator.ENDPOINT_THREE_D_SECURE_LOOKUP,
+                endpoint("POST", "v1/payment_methods/nonce/three_d_secure/lookup"));
+        assertEquals(GatewaySimulator.ENDPOINT_UNIONPAY_CAPABILITIES,
+                endpoint("GET", "v1/payment_methods/credit_cards/capabilities"));
+        assertEquals(GatewaySimulator.ENDPOINT_UNIONPAY_ENROLLMENT, endpoint("POST", "v1/union_pay_enrollments"));
+        assertEquals(GatewaySimulator.ENDPOINT_PAYPAL, endpoint("POST", "v1/paypal_hermes/create_payment_resource"));
+        assertEquals(GatewaySimulator.ENDPOINT_ANALYTICS,
+                GatewaySimulator.getEndpoint("POST", new URL("https://client-analytics.example.com/")));
+        assertEquals(GatewaySimulator.ENDPOINT_TRACKING_EVENTS,
+                GatewaySimulator.getEndpoint("POST", new URL("https://api-m.paypal.com/v1/tracking/events")));
+        assertNull(endpoint("GET", "v1/unknown"));
+    }
+
+    @Test(timeout = 1000)
+    public void handle_returnsConfigurationPointingBackAtSimulator() throws Exception {
+        GatewaySimulator.Response response = new GatewaySimulator()
+                .handle("GET", CLIENT_API_URL + "v1/configuration");
+
+        JSONObject configuration = new JSONObject(new String(response.getBody(), "UTF-8"));
+        assertEquals(200, response.getResponseCode());
+        assertEquals(CLIENT_API_URL.substring(0, CLIENT_API_URL.length() - 1),
+                configuration.getString("clientApiUrl"));
+        assertEquals("http://127.0.0.1:3000/analytics", configuration.getJSONObject("analytics").getString("url"));
+    }
+
+    @Test(timeout = 1000)
+    public void handle_returnsConfiguredNumberOfPaymentMethods() throws Exception {
+        GatewaySimulator.Response response = new GatewaySimulator()
+                .paymentMethodCount(25)
+                .handle("GET", CLIENT_API_URL + "v1/payment_methods");
+
+        JSONObject body = new JSONObject(new String(response.getBody(), "UTF-8"));
+        assertEquals(25, body.getJSONArray("paymentMethods").length());
+    }
+
+    @Test(timeout = 1000)
+    public void handle_padsResponses() throws Exception {
+        GatewaySimulator.Response response = new GatewaySimulator()
+                .responsePadding(10000)
+                .handle("POST", CLIENT_API_URL + "v1/payment_methods/credit_cards");
+
+        assertEquals(201, response.getResponseCode());
+        assertTrue(response.getBody().length > 10000);
+    }
+
+    @Test(timeout = 1000)
+    public void handle_failsRequestsAtConfiguredRate() {
+        GatewaySimulator simulator = new GatewaySimulator()
+                .errorRate(1)
+                .errorRate(GatewaySimulator.ENDPOINT_ANALYTICS, 0)
+                .errorResponseCode(500);
+
+        assertEquals(500, simulator.handle("GET", CLIENT_API_URL + "v1/configuration").getResponseCode());
+        assertEquals(200, simulator.handle("POST", "http://127.0.0.1:3000/analytics").getResponseCode());
+    }
+
+    @Test(timeout = 1000)
+    public void handle_waitsForConfiguredLatency() {
+        GatewaySimulator simulator = new GatewaySimulator()
+                .latency(GatewaySimulator.ENDPOINT_CONFIGURATION, 100, 100);
+
+        long start = System.currentTimeMillis();
+        simulator.handle("GET", CLIENT_API_URL + "v1/configuration");
+
+        assertTrue(System.currentTimeMillis() - start >= 100);
+    }
+
+    @Test(timeout = 1000)
+    public void handle_countsRequestsPerEndpoint() {
+        GatewaySimulator simulator = new GatewaySimulator();
+
+        simulator.handle("GET", CLIENT_API_URL + "v1/configuration");
+        simulator.handle("GET", CLIENT_API_URL + "v1/configuration");
+        simulator.handle("POST", "http://127.0.0.1:3000/analytics");
+
+        assertEquals(2, simulator.getRequestCount(GatewaySimulator.ENDPOINT_CONFIGURATION));
+        assertEquals(1, simulator.getRequestCount(GatewaySimulator.ENDPOINT_ANALYTICS));
+        assertEquals(0, simulator.getRequestCount(GatewaySimulator.ENDPOINT_TOKENIZE));
+    }
+
+    @Test(timeout = 1000)
+    public void transport_servesHttpClientRequestsInProcess() throws Exception {
+        GatewaySimulator simulator = new GatewaySimulator();
+        HttpClient httpClient = new HttpClient()
+                .setTransport(new GatewaySimulatorTransport(simulator));
+
+        String response = httpClient.post(CLIENT_API_URL + "v1/payment_methods/credit_cards", "{}");
+
+        assertEquals("simulated-nonce-0", new JSONObject(response).getJSONArray("creditCards")
+                .getJSONObject(0).getString("nonce"));
+        assertEquals(1, simulator.getRequestCount(GatewaySimulator.ENDPOINT_TOKENIZE));
+    }
+
+    @Test(timeout = 5000)
+    public void server_servesHttpClientRequestsOverLocalhost() throws Exception {
+        GatewaySimulator simulator = new GatewaySimulator();
+        GatewaySimulatorServer server = new GatewaySimulatorServer(simulator);
+        String url = server.start();
+        try {
+            HttpClient httpClient = new HttpClient()
+                    .setConnectionReuseEnabled(true);
+
+            String response = httpClient.post(url + "merchants/" + GatewaySimulator.MERCHANT_ID +
+                    "/client_api/v1/union_pay_enrollments", "{}");
+            assertEquals("simulated-enrollment-id", new JSONObject(response).getString("unionPayEnrollmentId"));
+
+            simulator.errorRate(1);
+            try {
+                httpClient.post(url + "analytics", "{}");
+                fail("Expected DownForMaintenanceException");
+            } catch (DownForMaintenanceException ignored) {}
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static String endpoint(String method, String path) throws Exception {
+        return GatewaySimulator.getEndpoint(method, new URL(CLIENT_API_URL + path));
+    }
+}
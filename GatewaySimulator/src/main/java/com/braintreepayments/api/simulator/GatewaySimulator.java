@@ -0,0 +1,455 @@
+package com.braintreepayments.api.simulator;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.StringDef;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Stand-in for the Braintree gateway and the PayPal endpoints the SDK calls, used to measure the throughput and
+ * latency of the SDK reproducibly without a network or a sandbox account.
+ *
+ * The simulator answers configuration, payment method listing and tokenization, 3D Secure lookup, UnionPay
+ * capabilities and enrollment, PayPal Hermes, analytics and PayPal {@code tracking/events} requests with canned
+ * responses. Latency, the rate of failed responses and the size of responses can be configured for all endpoints
+ * or for a single one. Requests are served in-process with a {@link GatewaySimulatorTransport} or over localhost
+ * with a {@link GatewaySimulatorServer}.
+ */
+public class GatewaySimulator {
+
+    @Retention(RetentionPolicy.SOURCE)
+    @StringDef({ENDPOINT_CONFIGURATION, ENDPOINT_PAYMENT_METHODS, ENDPOINT_TOKENIZE,
+            ENDPOINT_THREE_D_SECURE_LOOKUP, ENDPOINT_UNIONPAY_CAPABILITIES, ENDPOINT_UNIONPAY_ENROLLMENT,
+            ENDPOINT_PAYPAL, ENDPOINT_ANALYTICS, ENDPOINT_TRACKING_EVENTS})
+    public @interface Endpoint {}
+
+    public static final String ENDPOINT_CONFIGURATION = "configuration";
+    public static final String ENDPOINT_PAYMENT_METHODS = "payment_methods";
+    public static final String ENDPOINT_TOKENIZE = "tokenize";
+    public static final String ENDPOINT_THREE_D_SECURE_LOOKUP = "3ds_lookup";
+    public static final String ENDPOINT_UNIONPAY_CAPABILITIES = "unionpay_capabilities";
+    public static final String ENDPOINT_UNIONPAY_ENROLLMENT = "unionpay_enrollment";
+    public static final String ENDPOINT_PAYPAL = "paypal";
+    public static final String ENDPOINT_ANALYTICS = "analytics";
+    public static final String ENDPOINT_TRACKING_EVENTS = "tracking_events";
+
+    /**
+     * The merchant id used in the configuration returned by the simulator.
+     */
+    public static final String MERCHANT_ID = "simulated_merchant_id";
+
+    static final int DEFAULT_ERROR_RESPONSE_CODE = 503;
+    static final int DEFAULT_PAYMENT_METHOD_COUNT = 3;
+
+    private static final String UTF_8 = "UTF-8";
+
+    private final Behavior mDefaultBehavior = new Behavior();
+    private final Map<String, Behavior> mEndpointBehaviors = new HashMap<>();
+    private final Map<String, Integer> mRequestCounts = new HashMap<>();
+
+    private Random mRandom = new Random();
+    private int mErrorResponseCode = DEFAULT_ERROR_RESPONSE_CODE;
+    private int mPaymentMethodCount = DEFAULT_PAYMENT_METHOD_COUNT;
+    private int mResponsePaddingBytes;
+
+    public GatewaySimulator() {
+        mDefaultBehavior.mMinLatencyMillis = 0;
+        mDefaultBehavior.mMaxLatencyMillis = 0;
+        mDefaultBehavior.mErrorRate = 0;
+    }
+
+    /**
+     * @param seed the seed of the random numbers used to pick latencies and failed responses, so runs can be
+     * repeated exactly.
+     * @return {@link GatewaySimulator} for method chaining.
+     */
+    public synchronized GatewaySimulator seed(long seed) {
+        mRandom = new Random(seed);
+        return this;
+    }
+
+    /**
+     * @param minMillis the shortest time to wait before responding.
+     * @param maxMillis the longest time to wait before responding. Latencies are picked uniformly in between.
+     * @return {@link GatewaySimulator} for method chaining.
+     */
+    public synchronized GatewaySimulator latency(long minMillis, long maxMillis) {
+        mDefaultBehavior.mMinLatencyMillis = minMillis;
+        mDefaultBehavior.mMaxLatencyMillis = Math.max(minMillis, maxMillis);
+        return this;
+    }
+
+    /**
+     * @param endpoint the {@link Endpoint} to set the latency of, overriding {@link #latency(long, long)}.
+     * @param minMillis the shortest time to wait before responding.
+     * @param maxMillis the longest time to wait before responding.
+     * @return {@link GatewaySimulator} for method chaining.
+     */
+    public synchronized GatewaySimulator latency(@Endpoint String endpoint, long minMillis, long maxMillis) {
+        Behavior behavior = getBehavior(endpoint);
+        behavior.mMinLatencyMillis = minMillis;
+        behavior.mMaxLatencyMillis = Math.max(minMillis, maxMillis);
+        return this;
+    }
+
+    /**
+     * @param errorRate the fraction of requests, between 0 and 1, that are answered with
+     * {@link #errorResponseCode(int)}.
+     * @return {@link GatewaySimulator} for method chaining.
+     */
+    public synchronized GatewaySimulator errorRate(double errorRate) {
+        mDefaultBehavior.mErrorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * @param endpoint the {@link Endpoint} to set the error rate of, overriding {@link #errorRate(double)}.
+     * @param errorRate the fraction of requests, between 0 and 1, that fail.
+     * @return {@link GatewaySimulator} for method chaining.
+     */
+    public synchronized GatewaySimulator errorRate(@Endpoint String endpoint, double errorRate) {
+        getBehavior(endpoint).mErrorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * @param responseCode the HTTP status code of failed responses. Defaults to 503.
+     * @return {@link GatewaySimulator} for method chaining.
+     */
+    public synchronized GatewaySimulator errorResponseCode(int responseCode) {
+        mErrorResponseCode = responseCode;
+        return this;
+    }
+
+    /**
+     * @param count the number of payment methods returned when listing payment methods. Defaults to 3.
+     * @return {@link GatewaySimulator} for method chaining.
+     */
+    public synchronized GatewaySimulator paymentMethodCount(int count) {
+        mPaymentMethodCount = Math.max(0, count);
+        return this;
+    }
+
+    /**
+     * @param bytes the number of bytes of padding added to every successful response, to simulate larger payloads.
+     * @return {@link GatewaySimulator} for method chaining.
+     */
+    public synchronized GatewaySimulator responsePadding(int bytes) {
+        mResponsePaddingBytes = Math.max(0, bytes);
+        return this;
+    }
+
+    /**
+     * @param endpoint the {@link Endpoint}.
+     * @return the number of requests made to the endpoint so far.
+     */
+    public synchronized int getRequestCount(@Endpoint String endpoint) {
+        Integer count = mRequestCounts.get(endpoint);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Answers a request, blocking the calling thread for the configured latency.
+     *
+     * @param method the HTTP method of the request.
+     * @param url the full url of the request.
+     * @return the simulated {@link Response}.
+     */
+    public Response handle(String method, String url) {
+        URL parsedUrl;
+        try {
+            parsedUrl = new URL(url);
+        } catch (MalformedURLException e) {
+            return error(400, "Malformed url");
+        }
+
+        String endpoint = getEndpoint(method, parsedUrl);
+        if (endpoint == null) {
+            return error(404, "Not found");
+        }
+
+        long latency;
+        boolean fail;
+        int paymentMethodCount;
+        int paddingBytes;
+        int errorResponseCode;
+        synchronized (this) {
+            mRequestCounts.put(endpoint, getRequestCount(endpoint) + 1);
+
+            long minLatency = getMinLatency(endpoint);
+            long maxLatency = getMaxLatency(endpoint);
+            latency = minLatency + (long) (mRandom.nextDouble() * (maxLatency - minLatency));
+            fail = mRandom.nextDouble() < getErrorRate(endpoint);
+            paymentMethodCount = mPaymentMethodCount;
+            paddingBytes = mResponsePaddingBytes;
+            errorResponseCode = mErrorResponseCode;
+        }
+
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (fail) {
+            return error(errorResponseCode, "Simulated failure");
+        }
+
+        try {
+            JSONObject body = getBody(endpoint, parsedUrl, paymentMethodCount);
+            if (paddingBytes > 0) {
+                char[] padding = new char[paddingBytes];
+                Arrays.fill(padding, 'x');
+                body.put("simulatorPadding", new String(padding));
+            }
+
+            return new Response(ENDPOINT_TOKENIZE.equals(endpoint) ? 201 : 200, body.toString());
+        } catch (JSONException e) {
+            return error(500, e.getMessage());
+        }
+    }
+
+    /**
+     * @param method the HTTP method of the request.
+     * @param url the url of the request.
+     * @return the {@link Endpoint} the request is made to, or {@code null} if the simulator does not implement it.
+     */
+    @Nullable
+    static String getEndpoint(String method, URL url) {
+        String host = url.getHost();
+        String path = url.getPath();
+        if (path.contains("/paypal_hermes/")) {
+            return ENDPOINT_PAYPAL;
+        } else if (path.endsWith("/three_d_secure/lookup")) {
+            return ENDPOINT_THREE_D_SECURE_LOOKUP;
+        } else if (path.endsWith("/capabilities")) {
+            return ENDPOINT_UNIONPAY_CAPABILITIES;
+        } else if (path.endsWith("/union_pay_enrollments")) {
+            return ENDPOINT_UNIONPAY_ENROLLMENT;
+        } else if (path.endsWith("/configuration")) {
+            return ENDPOINT_CONFIGURATION;
+        } else if (path.endsWith("tracking/events")) {
+            return ENDPOINT_TRACKING_EVENTS;
+        } else if (host.contains("analytics") || path.endsWith("/analytics")) {
+            return ENDPOINT_ANALYTICS;
+        } else if ("GET".equals(method) && path.endsWith("/payment_methods")) {
+            return ENDPOINT_PAYMENT_METHODS;
+        } else if ("POST".equals(method) && path.contains("/payment_methods/")) {
+            return ENDPOINT_TOKENIZE;
+        }
+
+        return null;
+    }
+
+    private JSONObject getBody(String endpoint, URL url, int paymentMethodCount) throws JSONException {
+        String origin = url.getProtocol() + "://" + url.getAuthority() + "/";
+        switch (endpoint) {
+            case ENDPOINT_CONFIGURATION:
+                return getConfiguration(origin);
+            case ENDPOINT_PAYMENT_METHODS:
+                JSONArray paymentMethods = new JSONArray();
+                for (int i = 0; i < paymentMethodCount; i++) {
+                    paymentMethods.put(getCreditCard(i));
+                }
+                return new JSONObject().put("paymentMethods", paymentMethods);
+            case ENDPOINT_TOKENIZE:
+                return getTokenizationResponse(url.getPath());
+            case ENDPOINT_THREE_D_SECURE_LOOKUP:
+                JSONObject threeDSecureInfo = new JSONObject()
+                        .put("liabilityShifted", true)
+                        .put("liabilityShiftPossible", true);
+                return new JSONObject()
+                        .put("lookup", new JSONObject()
+                                .put("acsUrl", JSONObject.NULL)
+                                .put("md", "merchant-descriptor")
+                                .put("termUrl", origin + "three_d_secure/term")
+                                .put("pareq", "pareq"))
+                        .put("paymentMethod", getCreditCard(0).put("threeDSecureInfo", threeDSecureInfo))
+                        .put("threeDSecureInfo", threeDSecureInfo);
+            case ENDPOINT_UNIONPAY_CAPABILITIES:
+                return new JSONObject()
+                        .put("isUnionPay", true)
+                        .put("isDebit", false)
+                        .put("unionPay", new JSONObject()
+                                .put("supportsTwoStepAuthAndCapture", true)
+                                .put("isSupported", true));
+            case ENDPOINT_UNIONPAY_ENROLLMENT:
+                return new JSONObject()
+                        .put("unionPayEnrollmentId", "simulated-enrollment-id")
+                        .put("smsCodeRequired", true);
+            case ENDPOINT_PAYPAL:
+                String redirectUrl = origin + "paypal/checkout?token=EC-SIMULATED-TOKEN";
+                if (url.getPath().endsWith("/setup_billing_agreement")) {
+                    return new JSONObject().put("agreementSetup", new JSONObject().put("approvalUrl", redirectUrl));
+                }
+                return new JSONObject().put("paymentResource", new JSONObject().put("redirectUrl", redirectUrl));
+            default:
+                return new JSONObject();
+        }
+    }
+
+    private static JSONObject getConfiguration(String origin) throws JSONException {
+        return new JSONObject()
+                .put("clientApiUrl", origin + "merchants/" + MERCHANT_ID + "/client_api")
+                .put("environment", "development")
+                .put("merchantId", MERCHANT_ID)
+                .put("merchantAccountId", MERCHANT_ID + "_account")
+                .put("challenges", new JSONArray())
+                .put("analytics", new JSONObject().put("url", origin + "analytics"))
+                .put("threeDSecureEnabled", true)
+                .put("paypalEnabled", true)
+                .put("paypal", new JSONObject()
+                        .put("displayName", "Simulated Merchant")
+                        .put("clientId", "simulated_paypal_client_id")
+                        .put("privacyUrl", origin + "privacy")
+                        .put("userAgreementUrl", origin + "user_agreement")
+                        .put("directBaseUrl", origin)
+                        .put("environment", "offline")
+                        .put("currencyIsoCode", "USD")
+                        .put("billingAgreementsEnabled", true))
+                .put("unionPay", new JSONObject()
+                        .put("enabled", true)
+                        .put("merchantAccountId", MERCHANT_ID + "_unionpay"))
+                .put("creditCards", new JSONObject()
+                        .put("supportedCardTypes", new JSONArray(Arrays.asList("Visa", "MasterCard",
+                                "American Express", "Discover", "UnionPay"))));
+    }
+
+    private static JSONObject getTokenizationResponse(String path) throws JSONException {
+        String resource = path.substring(path.lastIndexOf('/') + 1);
+        JSONObject paymentMethod;
+        String key;
+        if ("paypal_accounts".equals(resource)) {
+            key = "paypalAccounts";
+            paymentMethod = new JSONObject()
+                    .put("type", "PayPalAccount")
+                    .put("nonce", "simulated-paypal-nonce")
+                    .put("description", "PayPal")
+                    .put("default", false)
+                    .put("isLocked", false)
+                    .put("securityQuestions", new JSONArray())
+                    .put("details", new JSONObject()
+                            .put("email", "simulated@example.com"));
+        } else {
+            key = "creditCards";
+            paymentMethod = getCreditCard(0);
+        }
+
+        return new JSONObject().put(key, new JSONArray(Collections.singletonList(paymentMethod)));
+    }
+
+    private static JSONObject getCreditCard(int index) throws JSONException {
+        return new JSONObject()
+                .put("type", "CreditCard")
+                .put("nonce", "simulated-nonce-" + index)
+                .put("description", "ending in 11")
+                .put("default", index == 0)
+                .put("isLocked", false)
+                .put("securityQuestions", new JSONArray())
+                .put("details", new JSONObject()
+                        .put("cardType", "Visa")
+                        .put("lastTwo", "11"));
+    }
+
+    private static Response error(int responseCode, String message) {
+        try {
+            return new Response(responseCode, new JSONObject()
+                    .put("error", new JSONObject().put("message", message))
+                    .toString());
+        } catch (JSONException e) {
+            return new Response(responseCode, "{}");
+        }
+    }
+
+    private Behavior getBehavior(String endpoint) {
+        Behavior behavior = mEndpointBehaviors.get(endpoint);
+        if (behavior == null) {
+            behavior = new Behavior();
+            mEndpointBehaviors.put(endpoint, behavior);
+        }
+
+        return behavior;
+    }
+
+    private long getMinLatency(String endpoint) {
+        Behavior behavior = mEndpointBehaviors.get(endpoint);
+        return behavior != null && behavior.mMinLatencyMillis >= 0 ? behavior.mMinLatencyMillis :
+                mDefaultBehavior.mMinLatencyMillis;
+    }
+
+    private long getMaxLatency(String endpoint) {
+        Behavior behavior = mEndpointBehaviors.get(endpoint);
+        return behavior != null && behavior.mMaxLatencyMillis >= 0 ? behavior.mMaxLatencyMillis :
+                mDefaultBehavior.mMaxLatencyMillis;
+    }
+
+    private double getErrorRate(String endpoint) {
+        Behavior behavior = mEndpointBehaviors.get(endpoint);
+        return behavior != null && behavior.mErrorRate >= 0 ? behavior.mErrorRate : mDefaultBehavior.mErrorRate;
+    }
+
+    /**
+     * Latency and error rate of an endpoint. Negative values fall back to the defaults.
+     */
+    private static class Behavior {
+        long mMinLatencyMillis = -1;
+        long mMaxLatencyMillis = -1;
+        double mErrorRate = -1;
+    }
+
+    /**
+     * A response returned by the {@link GatewaySimulator}.
+     */
+    public static class Response {
+
+        private final int mResponseCode;
+        private final byte[] mBody;
+
+        Response(int responseCode, String body) {
+            mResponseCode = responseCode;
+            byte[] bytes;
+            try {
+                bytes = body.getBytes(UTF_8);
+            } catch (UnsupportedEncodingException e) {
+                bytes = new byte[0];
+            }
+            mBody = bytes;
+        }
+
+        public int getResponseCode() {
+            return mResponseCode;
+        }
+
+        /**
+         * @return the UTF-8 encoded JSON body of the response.
+         */
+        public byte[] getBody() {
+            return mBody;
+        }
+
+        /**
+         * @return the headers of the response.
+         */
+        public Map<String, String> getHeaders() {
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Content-Type", "application/json; charset=utf-8");
+            headers.put("Content-Length", String.valueOf(mBody.length));
+            return headers;
+        }
+    }
+}
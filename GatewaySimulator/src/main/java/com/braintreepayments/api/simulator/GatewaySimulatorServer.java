@@ -0,0 +1,278 @@
+package com.braintreepayments.api.simulator;
+
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Minimal HTTP/1.1 server on localhost that answers requests with a {@link GatewaySimulator}, so the SDK can be
+ * exercised over real sockets, including connection setup and reuse, without leaving the device.
+ *
+ * Point a client at the url returned by {@link #start()}, for example by building with
+ * {@code systemProp.DEVELOPMENT_URL} set to it and using a development tokenization key. Only plain HTTP is
+ * supported.
+ */
+public class GatewaySimulatorServer {
+
+    private static final String ISO_8859_1 = "ISO-8859-1";
+
+    private final GatewaySimulator mSimulator;
+    private final Set<Socket> mSockets = Collections.synchronizedSet(new HashSet<Socket>());
+
+    private ServerSocket mServerSocket;
+    private ExecutorService mExecutor;
+
+    /**
+     * @param simulator the {@link GatewaySimulator} that answers requests.
+     */
+    public GatewaySimulatorServer(GatewaySimulator simulator) {
+        mSimulator = simulator;
+    }
+
+    /**
+     * Starts listening on a free port of the loopback interface.
+     *
+     * @return the base url of the server, e.g. {@code http://127.0.0.1:54321/}.
+     * @throws IOException if the server socket could not be opened.
+     */
+    public synchronized String start() throws IOException {
+        if (mServerSocket != null) {
+            throw new IllegalStateException("GatewaySimulatorServer is already started");
+        }
+
+        final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        mServerSocket = serverSocket;
+        mExecutor = Executors.newCachedThreadPool();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections(serverSocket);
+            }
+        });
+
+        return getUrl();
+    }
+
+    /**
+     * @return the base url of the server, or {@code null} if it is not started.
+     */
+    @Nullable
+    public synchronized String getUrl() {
+        if (mServerSocket == null) {
+            return null;
+        }
+
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/";
+    }
+
+    /**
+     * Stops the server and closes all open connections.
+     */
+    public synchronized void shutdown() {
+        if (mServerSocket == null) {
+            return;
+        }
+
+        try {
+            mServerSocket.close();
+        } catch (IOException ignored) {}
+
+        synchronized (mSockets) {
+            for (Socket socket : mSockets) {
+                closeQuietly(socket);
+            }
+            mSockets.clear();
+        }
+
+        mExecutor.shutdownNow();
+        mServerSocket = null;
+        mExecutor = null;
+    }
+
+    private void acceptConnections(ServerSocket serverSocket) {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+
+            mSockets.add(socket);
+            try {
+                ExecutorService executor = getExecutor();
+                if (executor == null) {
+                    throw new RejectedExecutionException("GatewaySimulatorServer is shut down");
+                }
+
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                mSockets.remove(socket);
+                closeQuietly(socket);
+                return;
+            }
+        }
+    }
+
+    @Nullable
+    private synchronized ExecutorService getExecutor() {
+        return mExecutor;
+    }
+
+    /**
+     * Serves requests on a connection until the client closes it or asks for it to be closed.
+     */
+    private void serve(Socket socket) {
+        try {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                String requestLine = readLine(in);
+                if (requestLine == null || requestLine.isEmpty()) {
+                    return;
+                }
+
+                String[] parts = requestLine.split(" ");
+                if (parts.length < 2) {
+                    return;
+                }
+
+                Map<String, String> headers = new HashMap<>();
+                for (String line; (line = readLine(in)) != null && !line.isEmpty(); ) {
+                    int separator = line.indexOf(':');
+                    if (separator > 0) {
+                        headers.put(line.substring(0, separator).trim().toLowerCase(Locale.US),
+                                line.substring(separator + 1).trim());
+                    }
+                }
+
+                // the simulator does not look at request bodies, but they have to be consumed
+                if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+                    skipChunkedBody(in);
+                } else if (headers.containsKey("content-length")) {
+                    skip(in, Long.parseLong(headers.get("content-length")));
+                }
+
+                String method = parts[0];
+                String target = parts[1];
+                String host = headers.containsKey("host") ? headers.get("host") :
+                        "127.0.0.1:" + socket.getLocalPort();
+                String url = target.startsWith("http") ? target : "http://" + host + target;
+                GatewaySimulator.Response response = mSimulator.handle(method, url);
+
+                boolean close = "close".equalsIgnoreCase(headers.get("connection"));
+                writeResponse(out, response, !"HEAD".equals(method), close);
+                if (close) {
+                    return;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+        } finally {
+            mSockets.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static void writeResponse(OutputStream out, GatewaySimulator.Response response, boolean includeBody,
+            boolean close) throws IOException {
+        StringBuilder head = new StringBuilder()
+                .append("HTTP/1.1 ")
+                .append(response.getResponseCode())
+                .append(response.getResponseCode() < 400 ? " OK" : " Error")
+                .append("\r\n");
+        for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        if (close) {
+            head.append("Connection: close\r\n");
+        }
+        head.append("\r\n");
+
+        out.write(head.toString().getBytes(ISO_8859_1));
+        if (includeBody) {
+            out.write(response.getBody());
+        }
+        out.flush();
+    }
+
+    /**
+     * @return the next line without its line terminator, or {@code null} if the stream ended.
+     */
+    @Nullable
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) c);
+        }
+
+        return line.length() == 0 ? null : line.toString();
+    }
+
+    private static void skipChunkedBody(InputStream in) throws IOException {
+        while (true) {
+            String sizeLine = readLine(in);
+            if (sizeLine == null) {
+                throw new IOException("Unexpected end of chunked body");
+            }
+
+            int extension = sizeLine.indexOf(';');
+            long size = Long.parseLong((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(), 16);
+            if (size == 0) {
+                // skip trailers
+                for (String line; (line = readLine(in)) != null && !line.isEmpty(); ) {}
+                return;
+            }
+
+            skip(in, size);
+            readLine(in);
+        }
+    }
+
+    private static void skip(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new IOException("Unexpected end of body");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {}
+    }
+}
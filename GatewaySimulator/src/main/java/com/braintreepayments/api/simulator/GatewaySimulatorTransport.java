@@ -0,0 +1,31 @@
+package com.braintreepayments.api.simulator;
+
+import com.braintreepayments.api.internal.HttpTransport;
+import com.braintreepayments.api.internal.HttpTransportRequest;
+import com.braintreepayments.api.internal.HttpTransportResponse;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * {@link HttpTransport} that answers every request in-process with a {@link GatewaySimulator}, so the SDK can be
+ * exercised without any network. Set it on a client with
+ * {@link com.braintreepayments.api.internal.HttpClient#setTransport(HttpTransport)}.
+ */
+public class GatewaySimulatorTransport implements HttpTransport {
+
+    private final GatewaySimulator mSimulator;
+
+    /**
+     * @param simulator the {@link GatewaySimulator} that answers requests.
+     */
+    public GatewaySimulatorTransport(GatewaySimulator simulator) {
+        mSimulator = simulator;
+    }
+
+    @Override
+    public HttpTransportResponse execute(HttpTransportRequest request) {
+        GatewaySimulator.Response response = mSimulator.handle(request.getMethod(), request.getUrl());
+        return new HttpTransportResponse(response.getResponseCode(), response.getHeaders(),
+                new ByteArrayInputStream(response.getBody()));
+    }
+}
@@ -0,0 +1,4 @@
+# OkHttp and Okio
+-dontwarn okhttp3.**
+-dontwarn okio.**
+-dontwarn javax.annotation.**
@@ -0,0 +1,137 @@
+package com.braintreepayments.api.okhttp;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.braintreepayments.api.exceptions.UnprocessableEntityException;
+import com.braintreepayments.api.internal.HttpClient;
+import com.braintreepayments.api.internal.HttpTransportRequest;
+import com.braintreepayments.api.internal.HttpTransportResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.net.ssl.SSLSocketFactory;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class OkHttpTransportTest {
+
+    private MockWebServer mServer;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+    }
+
+    @After
+    public void teardown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test(timeout = 5000)
+    public void execute_sendsGetRequestAndReturnsResponse() throws Exception {
+        mServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Retry-After", "1")
+                .setBody("response"));
+
+        HttpTransportResponse response = new OkHttpTransport().execute(
+                new HttpTransportRequest("GET", mServer.url("/path").toString())
+                        .header("User-Agent", "braintree/test")
+                        .connectTimeout(1000)
+                        .readTimeout(1000));
+
+        assertEquals(200, response.getResponseCode());
+        assertEquals("1", response.getHeader("retry-after"));
+        assertEquals("response", read(response));
+
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals("GET", request.getMethod());
+        assertEquals("/path", request.getPath());
+        assertEquals("braintree/test", request.getHeader("User-Agent"));
+    }
+
+    @Test(timeout = 5000)
+    public void execute_sendsPostBodyWithContentType() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(201));
+
+        HttpTransportResponse response = new OkHttpTransport().execute(
+                new HttpTransportRequest("POST", mServer.url("/").toString())
+                        .header("Content-Type", "application/json")
+                        .body("{}".getBytes("UTF-8")));
+        response.close();
+
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals(201, response.getResponseCode());
+        assertEquals("POST", request.getMethod());
+        assertEquals("application/json", request.getHeader("Content-Type"));
+        assertEquals("{}", request.getBody().readUtf8());
+    }
+
+    @Test(timeout = 5000)
+    public void execute_sendsEmptyBodyForPostWithoutBody() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(200));
+
+        new OkHttpTransport().execute(new HttpTransportRequest("POST", mServer.url("/").toString())).close();
+
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals(0, request.getBodySize());
+    }
+
+    @Test(timeout = 5000)
+    public void execute_acceptsSSLSocketFactoryWithoutTrustManager() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(200));
+
+        HttpTransportResponse response = new OkHttpTransport().execute(
+                new HttpTransportRequest("GET", mServer.url("/").toString())
+                        .sslSocketFactory((SSLSocketFactory) SSLSocketFactory.getDefault()));
+        response.close();
+
+        assertEquals(200, response.getResponseCode());
+    }
+
+    @Test(timeout = 5000)
+    public void httpClient_sendsRequestsWithTransport() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(200).setBody("{\"ok\":true}"));
+        mServer.enqueue(new MockResponse().setResponseCode(422).setBody("{\"error\":{\"message\":\"invalid\"}}"));
+        HttpClient httpClient = new HttpClient()
+                .setTransport(new OkHttpTransport());
+
+        assertEquals("{\"ok\":true}", httpClient.post(mServer.url("/").toString(), "{}"));
+
+        try {
+            httpClient.post(mServer.url("/").toString(), "{}");
+            fail("Expected UnprocessableEntityException");
+        } catch (UnprocessableEntityException e) {
+            assertEquals("{\"error\":{\"message\":\"invalid\"}}", e.getMessage());
+        }
+    }
+
+    private static String read(HttpTransportResponse response) throws IOException {
+        try {
+            InputStream body = response.getBody();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            for (int count; (count = body.read(buffer)) != -1; ) {
+                out.write(buffer, 0, count);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.braintreepayments.api.okhttp;
+
+import com.braintreepayments.api.internal.HttpTransport;
+import com.braintreepayments.api.internal.HttpTransportRequest;
+import com.braintreepayments.api.internal.HttpTransportResponse;
+import com.braintreepayments.api.internal.TLSSocketFactory;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * {@link HttpTransport} backed by OkHttp. All instances share a single connection pool, so concurrent requests to
+ * the same host are multiplexed over one HTTP/2 connection where the server supports it and otherwise reuse
+ * pooled HTTP/1.1 connections.
+ *
+ * To use, set it on any {@link com.braintreepayments.api.internal.HttpClient}:
+ * <pre>
+ *     httpClient.setTransport(new OkHttpTransport());
+ * </pre>
+ */
+public class OkHttpTransport implements HttpTransport {
+
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    private static OkHttpClient sOkHttpClient;
+    private static X509TrustManager sDefaultTrustManager;
+
+    private final OkHttpClient mOkHttpClient;
+
+    public OkHttpTransport() {
+        this(getSharedOkHttpClient());
+    }
+
+    /**
+     * @param okHttpClient the {@link OkHttpClient} to derive per-request clients from. Its connection pool and
+     * dispatcher will be shared by all requests made with this transport.
+     */
+    public OkHttpTransport(OkHttpClient okHttpClient) {
+        mOkHttpClient = okHttpClient;
+    }
+
+    private static synchronized OkHttpClient getSharedOkHttpClient() {
+        if (sOkHttpClient == null) {
+            sOkHttpClient = new OkHttpClient.Builder()
+                    .followRedirects(false)
+                    .followSslRedirects(false)
+                    .retryOnConnectionFailure(false)
+                    .build();
+        }
+
+        return sOkHttpClient;
+    }
+
+    @Override
+    public HttpTransportResponse execute(HttpTransportRequest request) throws IOException {
+        Request.Builder builder = new Request.Builder()
+                .url(request.getUrl());
+
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+
+        RequestBody body = null;
+        if (request.getBody() != null) {
+            String contentType = request.getHeaders().get(CONTENT_TYPE);
+            body = RequestBody.create(contentType == null ? null : MediaType.parse(contentType), request.getBody());
+        } else if (requiresRequestBody(request.getMethod())) {
+            // OkHttp rejects these methods without a body
+            body = RequestBody.create(null, EMPTY_BODY);
+        }
+        builder.method(request.getMethod(), body);
+
+        Response response = clientFor(request).newCall(builder.build()).execute();
+
+        Map<String, String> headers = new HashMap<>();
+        for (String name : response.headers().names()) {
+            headers.put(name, response.header(name));
+        }
+
+        return new HttpTransportResponse(response.code(), headers,
+                response.body() == null ? null : response.body().byteStream());
+    }
+
+    /**
+     * Derives a client with the request's timeouts and {@link SSLSocketFactory}. Derived clients share the
+     * connection pool and dispatcher of {@link #mOkHttpClient}.
+     */
+    private OkHttpClient clientFor(HttpTransportRequest request) throws IOException {
+        OkHttpClient.Builder builder = mOkHttpClient.newBuilder()
+                .connectTimeout(request.getConnectTimeout(), TimeUnit.MILLISECONDS)
+                .readTimeout(request.getReadTimeout(), TimeUnit.MILLISECONDS);
+
+        SSLSocketFactory sslSocketFactory = request.getSSLSocketFactory();
+        if (sslSocketFactory != null) {
+            X509TrustManager trustManager = null;
+            if (sslSocketFactory instanceof TLSSocketFactory) {
+                trustManager = ((TLSSocketFactory) sslSocketFactory).getTrustManager();
+            }
+
+            if (trustManager == null) {
+                trustManager = getDefaultTrustManager();
+            }
+
+            builder.sslSocketFactory(sslSocketFactory, trustManager);
+        }
+
+        return builder.build();
+    }
+
+    private static boolean requiresRequestBody(String method) {
+        return "POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method);
+    }
+
+    /**
+     * @return the {@link X509TrustManager} of the platform's default {@link TrustManagerFactory}, used for
+     * {@link SSLSocketFactory}s that do not expose the trust manager they were created with.
+     * @throws SSLException if the platform has no {@link X509TrustManager}.
+     */
+    private static synchronized X509TrustManager getDefaultTrustManager() throws SSLException {
+        if (sDefaultTrustManager == null) {
+            try {
+                TrustManagerFactory trustManagerFactory =
+                        TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+                trustManagerFactory.init((KeyStore) null);
+                for (TrustManager trustManager : trustManagerFactory.getTrustManagers()) {
+                    if (trustManager instanceof X509TrustManager) {
+                        sDefaultTrustManager = (X509TrustManager) trustManager;
+                        break;
+                    }
+                }
+            } catch (GeneralSecurityException e) {
+                throw new SSLException(e.getMessage());
+            }
+
+            if (sDefaultTrustManager == null) {
+                throw new SSLException("No X509TrustManager available");
+            }
+        }
+
+        return sDefaultTrustManager;
+    }
+}
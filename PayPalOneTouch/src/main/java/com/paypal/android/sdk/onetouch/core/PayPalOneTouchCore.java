@@ -4,6 +4,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.support.annotation.MainThread;
 
+import com.braintreepayments.api.internal.AdaptiveTimeouts;
 import com.paypal.android.sdk.data.collector.PayPalDataCollector;
 import com.paypal.android.sdk.onetouch.core.base.ContextInspector;
 import com.paypal.android.sdk.onetouch.core.config.ConfigManager;
@@ -157,7 +158,8 @@ public class PayPalOneTouchCore {
     private static void initService(Context context) {
         if (sConfigManager == null || sFptiManager == null) {
             PayPalHttpClient httpClient = new PayPalHttpClient()
-                    .setBaseUrl(EnvironmentManager.LIVE_API_M_ENDPOINT);
+                    .setBaseUrl(EnvironmentManager.LIVE_API_M_ENDPOINT)
+                    .setAdaptiveTimeouts(AdaptiveTimeouts.getInstance(context));
             sConfigManager = new ConfigManager(getContextInspector(context), httpClient);
             sFptiManager = new FptiManager(getContextInspector(context), httpClient);
         }
@@ -4,6 +4,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.VisibleForTesting;
 
+import com.braintreepayments.api.internal.HttpClient;
 import com.paypal.android.sdk.data.collector.InstallationIdentifier;
 import com.paypal.android.sdk.onetouch.core.BuildConfig;
 import com.paypal.android.sdk.onetouch.core.base.ContextInspector;
@@ -100,7 +101,7 @@ public class FptiManager {
         new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
             @Override
             public void run() {
-                mHttpClient.post("tracking/events", data, null);
+                mHttpClient.post("tracking/events", data, HttpClient.PRIORITY_BACKGROUND, null);
             }
         }, (10 + new Random().nextInt(190)) * 1000);
     }
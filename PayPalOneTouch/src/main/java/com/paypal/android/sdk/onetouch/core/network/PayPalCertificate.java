@@ -1,11 +1,5 @@
 package com.paypal.android.sdk.onetouch.core.network;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
-
-import javax.net.ssl.SSLException;
-
 class PayPalCertificate {
 
     private static final String CERTIFICATE =
@@ -121,11 +115,7 @@ class PayPalCertificate {
         "7M2CYfE45k+XmCpajQ==\n" +
         "-----END CERTIFICATE-----\n";
 
-    static InputStream getCertInputStream() throws SSLException {
-        try {
-            return new ByteArrayInputStream(CERTIFICATE.getBytes("UTF-8"));
-        } catch (UnsupportedEncodingException e) {
-            throw new SSLException(e.getMessage());
-        }
+    static String getCertificate() {
+        return CERTIFICATE;
     }
 }
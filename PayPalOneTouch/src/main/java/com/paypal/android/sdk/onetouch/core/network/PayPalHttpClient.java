@@ -2,6 +2,7 @@ package com.paypal.android.sdk.onetouch.core.network;
 
 import android.support.annotation.VisibleForTesting;
 
+import com.braintreepayments.api.internal.CircuitBreaker;
 import com.braintreepayments.api.internal.HttpClient;
 import com.braintreepayments.api.internal.TLSSocketFactory;
 import com.paypal.android.sdk.onetouch.core.BuildConfig;
@@ -15,13 +16,17 @@ import javax.net.ssl.SSLException;
 
 public class PayPalHttpClient extends HttpClient<PayPalHttpClient> {
 
+    private static final int REQUEST_COMPRESSION_THRESHOLD = 1024;
+
     public PayPalHttpClient() {
         setUserAgent(String.format("PayPalSDK/PayPalOneTouch-Android %s (%s; %s; %s)", BuildConfig.VERSION_NAME,
                 DeviceInspector.getOs(), DeviceInspector.getDeviceName(), BuildConfig.DEBUG ? "debug;" : ""));
         setConnectTimeout((int) TimeUnit.SECONDS.toMillis(90));
+        setRequestCompressionThreshold(REQUEST_COMPRESSION_THRESHOLD);
+        setCircuitBreaker(CircuitBreaker.getInstance());
 
         try {
-            setSSLSocketFactory(new TLSSocketFactory(PayPalCertificate.getCertInputStream()));
+            setSSLSocketFactory(TLSSocketFactory.getInstance(PayPalCertificate.getCertificate()));
         } catch (SSLException e) {
             setSSLSocketFactory(null);
         }